@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.Sampler;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.Trace;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
+import org.springframework.cloud.sleuth.sampler.AlwaysSampler;
+import org.springframework.cloud.sleuth.sampler.IsTracingSampler;
+import org.springframework.cloud.sleuth.trace.DefaultTracer;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Measures the per-request overhead of the {@link DefaultTracer} span lifecycle for
+ * sampled, unsampled and nested spans. Run with {@code -prof gc} to see the allocation
+ * rate next to the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class DefaultTracerBenchmarks {
+
+	static final ApplicationEventPublisher NOOP_PUBLISHER = new ApplicationEventPublisher() {
+		@Override
+		public void publishEvent(ApplicationEvent event) {
+		}
+
+		@Override
+		public void publishEvent(Object event) {
+		}
+	};
+
+	static final Sampler<Void> NEVER_SAMPLER = new Sampler<Void>() {
+		@Override
+		public boolean next() {
+			return false;
+		}
+	};
+
+	final Sampler<Void> alwaysSampler = new AlwaysSampler();
+
+	final DefaultTracer tracer = new DefaultTracer(new IsTracingSampler(),
+			new Random(), new CompositeSpanListener());
+
+	/** Tracer notifying through application events, as before {@code SpanListener} */
+	final DefaultTracer eventTracer = new DefaultTracer(new IsTracingSampler(),
+			new Random(), NOOP_PUBLISHER);
+
+	final Span remoteParent = MilliSpan.builder().name("parent/http/foo")
+			.traceId(1L).spanId(2L).remote(true).build();
+
+	final Span span = MilliSpan.builder().name("http/foo").traceId(1L).spanId(3L)
+			.build();
+
+	@Benchmark
+	public Trace startAndCloseSampled() {
+		Trace trace = this.tracer.startTrace("http/foo", this.alwaysSampler);
+		this.tracer.close(trace);
+		return trace;
+	}
+
+	@Benchmark
+	public Trace startAndCloseSampledWithEvents() {
+		Trace trace = this.eventTracer.startTrace("http/foo", this.alwaysSampler);
+		this.eventTracer.close(trace);
+		return trace;
+	}
+
+	@Benchmark
+	public Trace startAndCloseUnsampled() {
+		Trace trace = this.tracer.startTrace("http/foo", NEVER_SAMPLER);
+		this.tracer.close(trace);
+		return trace;
+	}
+
+	@Benchmark
+	public Trace startAndCloseNestedSampled() {
+		Trace trace = this.tracer.startTrace("http/foo", this.alwaysSampler);
+		Trace child = this.tracer.startTrace("async");
+		Trace grandChild = this.tracer.startTrace("hystrix");
+		this.tracer.close(grandChild);
+		this.tracer.close(child);
+		this.tracer.close(trace);
+		return trace;
+	}
+
+	@Benchmark
+	public Trace startAndCloseNestedUnsampled() {
+		Trace trace = this.tracer.startTrace("http/foo", NEVER_SAMPLER);
+		Trace child = this.tracer.startTrace("async");
+		Trace grandChild = this.tracer.startTrace("hystrix");
+		this.tracer.close(grandChild);
+		this.tracer.close(child);
+		this.tracer.close(trace);
+		return trace;
+	}
+
+	@Benchmark
+	public Trace joinAndCloseRemoteParent() {
+		Trace trace = this.tracer.joinTrace("http/foo", this.remoteParent);
+		// Double close to clean up the remote parent as well (like TraceFilter)
+		this.tracer.close(this.tracer.close(trace));
+		return trace;
+	}
+
+	@Benchmark
+	public Trace continueAndDetach() {
+		Trace trace = this.tracer.continueSpan(this.span);
+		this.tracer.detach(trace);
+		return trace;
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.zipkin.GzipCompressor;
+
+import zipkin.Codec;
+import zipkin.Span;
+
+/**
+ * Measures the CPU cost of gzipping a message of encoded spans, with the reused
+ * {@link GzipCompressor} used by the HTTP reporter and with a new
+ * {@link GZIPOutputStream} per message. The bytes saved are printed on setup, so both
+ * sides of the trade-off show up in the benchmark output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GzipCompressionBenchmarks {
+
+	@Param({ "10", "100", "500" })
+	int spanCount;
+
+	@Param({ "1", "6" })
+	int level;
+
+	List<Span> spans;
+
+	byte[] json;
+
+	GzipCompressor compressor;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.spans = ZipkinSpans.spans(this.spanCount, 8);
+		this.json = Codec.JSON.writeSpans(this.spans);
+		this.compressor = new GzipCompressor(this.level);
+		int gzipped = this.compressor.compress(this.json);
+		System.out.printf("%n%d spans: %d bytes of json, %d gzipped at level %d (%.1fx)%n",
+				this.spanCount, this.json.length, gzipped, this.level,
+				(double) this.json.length / gzipped);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.compressor.end();
+	}
+
+	/** What sending costs without compression, for comparison. */
+	@Benchmark
+	public byte[] encodeJson() {
+		return Codec.JSON.writeSpans(this.spans);
+	}
+
+	@Benchmark
+	public int gzipReusedCompressor() {
+		return this.compressor.compress(this.json);
+	}
+
+	@Benchmark
+	public byte[] gzipOutputStream() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new LevelGZIPOutputStream(bytes, this.level)) {
+			gzip.write(this.json);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static final class LevelGZIPOutputStream extends GZIPOutputStream {
+
+		LevelGZIPOutputStream(ByteArrayOutputStream out, int level) throws IOException {
+			super(out);
+			this.def.setLevel(level);
+		}
+
+	}
+
+}
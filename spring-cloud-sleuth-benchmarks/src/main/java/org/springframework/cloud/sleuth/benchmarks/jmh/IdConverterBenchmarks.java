@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.Span;
+
+/**
+ * Measures the conversion of ids to and from the hex form used in the
+ * {@code X-Trace-Id}, {@code X-Span-Id} and {@code X-Parent-Id} headers, against the
+ * {@link Long#toHexString(long)} and {@link BigInteger} conversions they replace.
+ * {@code spanIdHex} is what an instrumentation pays once the hex form of a span's id has
+ * been computed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdConverterBenchmarks {
+
+	final long positiveId = 0x463ac35c9f6413adL;
+
+	final long negativeId = 0xa3ac35c9f6413ad4L;
+
+	final String positiveHex = Span.IdConverter.toHex(this.positiveId);
+
+	final String negativeHex = Span.IdConverter.toHex(this.negativeId);
+
+	final Span span = MilliSpan.builder().traceId(this.positiveId).spanId(this.negativeId)
+			.build();
+
+	@Benchmark
+	public String toHexPositive() {
+		return Span.IdConverter.toHex(this.positiveId);
+	}
+
+	@Benchmark
+	public String toHexNegative() {
+		return Span.IdConverter.toHex(this.negativeId);
+	}
+
+	@Benchmark
+	public long fromHexPositive() {
+		return Span.IdConverter.fromHex(this.positiveHex);
+	}
+
+	@Benchmark
+	public long fromHexNegative() {
+		return Span.IdConverter.fromHex(this.negativeHex);
+	}
+
+	@Benchmark
+	public String toHexNegative_toHexString() {
+		return Long.toHexString(this.negativeId);
+	}
+
+	@Benchmark
+	public long fromHexNegative_bigInteger() {
+		return new BigInteger(this.negativeHex, 16).longValue();
+	}
+
+	@Benchmark
+	public String spanIdHex() {
+		return Span.IdConverter.spanIdHex(this.span);
+	}
+
+}
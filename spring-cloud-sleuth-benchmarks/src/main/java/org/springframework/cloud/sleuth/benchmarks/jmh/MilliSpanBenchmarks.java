@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.NonExportableSpan;
+import org.springframework.cloud.sleuth.Span;
+
+/**
+ * Measures the cost of building spans through {@link MilliSpan#builder()}, compared
+ * with the {@link NonExportableSpan} used for traces that are not sampled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MilliSpanBenchmarks {
+
+	final long begin = System.currentTimeMillis();
+
+	@Benchmark
+	public Span buildRootSpan() {
+		return MilliSpan.builder().begin(this.begin).name("http/foo").traceId(1L)
+				.spanId(1L).build();
+	}
+
+	@Benchmark
+	public Span buildChildSpan() {
+		return MilliSpan.builder().begin(this.begin).name("http/foo").traceId(1L)
+				.parent(1L).spanId(2L).processId("process").build();
+	}
+
+	@Benchmark
+	public Span buildUnsampledSpan() {
+		return MilliSpan.builder().begin(this.begin).name("http/foo").traceId(1L)
+				.spanId(1L).exportable(false).build();
+	}
+
+	@Benchmark
+	public Span createNonExportableSpan() {
+		return new NonExportableSpan(this.begin, "http/foo", 1L, 1L);
+	}
+
+	@Benchmark
+	public Span buildAndTagSpan() {
+		Span span = MilliSpan.builder().begin(this.begin).name("http/foo").traceId(1L)
+				.parent(1L).spanId(2L).build();
+		span.tag("http/url", "http://localhost:8080/foo?bar=baz");
+		span.tag("http/host", "localhost");
+		span.tag("http/path", "/foo");
+		span.tag("http/method", "GET");
+		span.log("cs");
+		span.log("cr");
+		return span;
+	}
+
+}
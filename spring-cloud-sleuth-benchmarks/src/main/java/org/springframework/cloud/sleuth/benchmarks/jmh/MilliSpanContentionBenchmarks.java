@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.MilliSpan;
+
+/**
+ * Measures a {@link MilliSpan} shared between threads, as it is between a request thread
+ * and the Hystrix or async executor threads it hands work to: one thread keeps tagging or
+ * logging while the others read its state.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class MilliSpanContentionBenchmarks {
+
+	final MilliSpan span = MilliSpan.builder().name("http/foo").traceId(1L).spanId(1L)
+			.build();
+
+	@Benchmark
+	@Group("tag")
+	@GroupThreads(1)
+	public void tag() {
+		// the same key, so the span doesn't grow
+		this.span.tag("http/status_code", "200");
+	}
+
+	@Benchmark
+	@Group("tag")
+	@GroupThreads(3)
+	public long readWhileTagging() {
+		return this.span.isRunning() ? this.span.getAccumulatedMillis()
+				: this.span.tags().size();
+	}
+
+	@Benchmark
+	@Group("stop")
+	@GroupThreads(4)
+	public long stopAndRead() {
+		this.span.stop();
+		return this.span.getAccumulatedMillis();
+	}
+
+}
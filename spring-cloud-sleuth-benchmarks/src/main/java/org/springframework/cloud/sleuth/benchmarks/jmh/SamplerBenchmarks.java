@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.TraceAccessor;
+import org.springframework.cloud.sleuth.sampler.CountingSampler;
+import org.springframework.cloud.sleuth.sampler.PercentageBasedSampler;
+import org.springframework.cloud.sleuth.sampler.RateLimitingSampler;
+import org.springframework.cloud.sleuth.sampler.SamplerConfiguration;
+
+/**
+ * Measures the sampling decision made for every new trace, from 8 threads to include the
+ * cost of contention. The samplers should report no allocation with {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class SamplerBenchmarks {
+
+	static final SamplerConfiguration ONE_PERCENT = new SamplerConfiguration();
+
+	static {
+		ONE_PERCENT.setPercentage(0.01f);
+	}
+
+	final Span span = MilliSpan.builder().traceId(0x463ac35c9f6413adL).build();
+
+	final PercentageBasedSampler percentageBasedSampler = new PercentageBasedSampler(
+			ONE_PERCENT, new TraceAccessor() {
+				@Override
+				public Span getCurrentSpan() {
+					return SamplerBenchmarks.this.span;
+				}
+
+				@Override
+				public boolean isTracing() {
+					return true;
+				}
+			});
+
+	final CountingSampler countingSampler = new CountingSampler(ONE_PERCENT);
+
+	// mostly measures the rejection path, as the rate is used up early in each second
+	final RateLimitingSampler rateLimitingSampler = new RateLimitingSampler(1000);
+
+	@Benchmark
+	public boolean percentageBased() {
+		return this.percentageBasedSampler.next();
+	}
+
+	@Benchmark
+	public boolean counting() {
+		return this.countingSampler.next();
+	}
+
+	@Benchmark
+	public boolean rateLimiting() {
+		return this.rateLimitingSampler.next();
+	}
+
+}
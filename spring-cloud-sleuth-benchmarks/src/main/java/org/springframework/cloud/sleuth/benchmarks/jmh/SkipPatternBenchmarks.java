@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.instrument.web.PathClassifier;
+
+/**
+ * Compares deciding whether {@code TraceFilter} skips a request with its default skip
+ * pattern and with the {@link PathClassifier} built from it, for a short path, a skipped
+ * one and a long one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SkipPatternBenchmarks {
+
+	@Param({ "/api/customers", "/metrics/heap",
+			"/api/customers/12345/orders/67890/items/abcdef/attachments/2016-03-01/invoice" })
+	String path;
+
+	// TraceFilter.DEFAULT_SKIP_PATTERN, copied as the filter needs the servlet api
+	static final Pattern DEFAULT_SKIP_PATTERN = Pattern.compile(
+			"/api-docs.*|/autoconfig|/configprops|/dump|/info|/metrics.*|/mappings|/trace|/swagger.*|.*\\.png|.*\\.css|.*\\.js|.*\\.html|/favicon.ico|/hystrix.stream");
+
+	final PathClassifier classifier = new PathClassifier(DEFAULT_SKIP_PATTERN);
+
+	@Benchmark
+	public boolean pattern() {
+		return DEFAULT_SKIP_PATTERN.matcher(this.path).matches();
+	}
+
+	@Benchmark
+	public boolean classifier() {
+		return this.classifier.matches(this.path);
+	}
+
+}
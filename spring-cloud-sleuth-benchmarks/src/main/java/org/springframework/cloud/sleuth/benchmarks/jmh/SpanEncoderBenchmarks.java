@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.zipkin.SpanEncoder;
+
+import zipkin.Span;
+
+/**
+ * Compares the time it takes each {@link SpanEncoder} to encode a message of spans
+ * carrying 10 to 20 tags. The size of the messages is printed on setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpanEncoderBenchmarks {
+
+	@Param({ "10", "20" })
+	int tags;
+
+	@Param({ "1", "100" })
+	int spanCount;
+
+	List<Span> spans;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.spans = ZipkinSpans.spans(this.spanCount, this.tags);
+		int json = SpanEncoder.JSON.encode(this.spans).length;
+		int thrift = SpanEncoder.THRIFT.encode(this.spans).length;
+		System.out.printf("%n%d spans with %d tags: %d bytes of json, %d of thrift%n",
+				this.spanCount, this.tags, json, thrift);
+	}
+
+	@Benchmark
+	public byte[] encodeJson() {
+		return SpanEncoder.JSON.encode(this.spans);
+	}
+
+	@Benchmark
+	public byte[] encodeThrift() {
+		return SpanEncoder.THRIFT.encode(this.spans);
+	}
+
+}
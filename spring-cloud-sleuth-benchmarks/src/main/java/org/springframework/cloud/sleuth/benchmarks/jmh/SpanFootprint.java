@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.cloud.sleuth.Log;
+import org.springframework.cloud.sleuth.MilliSpan;
+
+/**
+ * Prints the heap retained by a typical {@link MilliSpan} with six tags and two logs, and
+ * by its tags and logs compared with the {@link LinkedHashMap} and {@link ArrayList} they
+ * used to be kept in (the sizes include the same strings and {@link Log logs} on both
+ * sides, so the difference is the cost of the collections). Run with:
+ *
+ * <pre>
+ * java -cp spring-cloud-sleuth-benchmarks/target/benchmarks.jar \
+ *     org.springframework.cloud.sleuth.benchmarks.jmh.SpanFootprint
+ * </pre>
+ */
+public class SpanFootprint {
+
+	public static void main(String[] args) {
+		MilliSpan span = MilliSpan.builder().begin(1L).name("http/foo").traceId(1L)
+				.parent(1L).spanId(2L).build();
+		Map<String, String> tags = new LinkedHashMap<>();
+		tags.put("http/url", "http://localhost:8080/foo?bar=baz");
+		tags.put("http/host", "localhost");
+		tags.put("http/path", "/foo");
+		tags.put("http/method", "GET");
+		tags.put("http/status_code", "200");
+		tags.put("http/x-request-id", "a3ac35c9f6413ad4");
+		for (Map.Entry<String, String> tag : tags.entrySet()) {
+			span.tag(tag.getKey(), tag.getValue());
+		}
+		span.log("sr");
+		span.log("ss");
+		List<Log> logs = new ArrayList<>(span.logs());
+
+		System.out.println("MilliSpan: " + size(span) + " bytes");
+		System.out.println("Tags: " + size(span.tags()) + " bytes, as a LinkedHashMap: "
+				+ size(Collections.unmodifiableMap(tags)) + " bytes");
+		System.out.println("Logs: " + size(span.logs()) + " bytes, as an ArrayList: "
+				+ size(Collections.unmodifiableList(logs)) + " bytes");
+	}
+
+	private static long size(Object object) {
+		return GraphLayout.parseInstance(object).totalSize();
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.Trace;
+import org.springframework.cloud.sleuth.trace.TraceContextHolder;
+
+/**
+ * Measures the thread local access done by {@link TraceContextHolder} on every span
+ * transition.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraceContextHolderBenchmarks {
+
+	final Trace trace = new Trace(MilliSpan.builder().name("http/foo").traceId(1L)
+			.spanId(1L).build());
+
+	@Benchmark
+	public Trace setAndRemoveCurrentTrace() {
+		TraceContextHolder.setCurrentTrace(this.trace);
+		Trace current = TraceContextHolder.getCurrentTrace();
+		TraceContextHolder.removeCurrentTrace();
+		return current;
+	}
+
+	@Benchmark
+	public Span getCurrentSpanWhenTracing() {
+		TraceContextHolder.setCurrentTrace(this.trace);
+		try {
+			return TraceContextHolder.getCurrentSpan();
+		}
+		finally {
+			TraceContextHolder.removeCurrentTrace();
+		}
+	}
+
+	@Benchmark
+	public Span getCurrentSpanWhenNotTracing() {
+		return TraceContextHolder.getCurrentSpan();
+	}
+
+	@Benchmark
+	public boolean isTracing() {
+		return TraceContextHolder.isTracing();
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.zipkin.EncodedSpanReporter;
+import org.springframework.cloud.sleuth.zipkin.SpanEncoder;
+import org.springframework.cloud.sleuth.zipkin.ZipkinSpanListener;
+import org.springframework.cloud.sleuth.zipkin.ZipkinSpanReporter;
+
+import zipkin.Codec;
+import zipkin.Endpoint;
+
+/**
+ * Measures the conversion of completed Sleuth spans to Zipkin spans by the
+ * {@link ZipkinSpanListener}, for typical HTTP client and local spans. Run with
+ * {@code -prof gc} to see what the conversion allocates.
+ *
+ * <p>The {@code encode} benchmarks compare converting then json encoding each span with
+ * writing the json directly, as the listener does for an {@link EncodedSpanReporter}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ZipkinSpanListenerBenchmarks {
+
+	static final Endpoint ENDPOINT = Endpoint.create("sample-service",
+			10 << 24 | 1 << 16 | 2 << 8 | 3, 8080);
+
+	zipkin.Span reported;
+
+	byte[] encoded;
+
+	// Reports on the calling thread, so each call includes the whole conversion
+	final ZipkinSpanListener listener = new ZipkinSpanListener(new ZipkinSpanReporter() {
+		@Override
+		public void report(zipkin.Span span) {
+			ZipkinSpanListenerBenchmarks.this.reported = span;
+		}
+	}, ENDPOINT);
+
+	final ZipkinSpanListener encodingListener = new ZipkinSpanListener(new EncodedSpanReporter() {
+		@Override
+		public SpanEncoder encoder() {
+			return SpanEncoder.JSON;
+		}
+
+		@Override
+		public void reportEncoded(byte[] span) {
+			ZipkinSpanListenerBenchmarks.this.encoded = span;
+		}
+
+		@Override
+		public void report(zipkin.Span span) {
+			throw new UnsupportedOperationException();
+		}
+	}, ENDPOINT);
+
+	final Span httpSpan = httpSpan();
+
+	final Span localSpan = MilliSpan.builder().begin(1L).end(2L).name("async")
+			.traceId(1L).spanId(2L).processId("TaskExecutor").build();
+
+	static Span httpSpan() {
+		Span span = MilliSpan.builder().begin(1L).end(2L).name("http/api/customers")
+				.traceId(1L).parent(1L).spanId(2L).build();
+		span.tag("http/url", "http://localhost:8080/api/customers?page=2");
+		span.tag("http/host", "localhost");
+		span.tag("http/path", "/api/customers");
+		span.tag("http/method", "GET");
+		span.tag("http/status_code", "503");
+		span.log("cs");
+		span.log("cr");
+		return span;
+	}
+
+	@Benchmark
+	public zipkin.Span convertHttpSpan() {
+		this.listener.spanReleased(null, this.httpSpan);
+		return this.reported;
+	}
+
+	@Benchmark
+	public zipkin.Span convertLocalSpan() {
+		this.listener.spanReleased(null, this.localSpan);
+		return this.reported;
+	}
+
+	@Benchmark
+	public byte[] encodeHttpSpan_convertThenCodec() {
+		this.listener.spanReleased(null, this.httpSpan);
+		return Codec.JSON.writeSpan(this.reported);
+	}
+
+	@Benchmark
+	public byte[] encodeHttpSpan_direct() {
+		this.encodingListener.spanReleased(null, this.httpSpan);
+		return this.encoded;
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.benchmarks.jmh;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import zipkin.Annotation;
+import zipkin.BinaryAnnotation;
+import zipkin.Constants;
+import zipkin.Endpoint;
+import zipkin.Span;
+
+/**
+ * Builds Zipkin spans shaped like the ones an instrumented web application reports: a
+ * client span with timeline annotations and a number of http tags.
+ */
+final class ZipkinSpans {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Endpoint ENDPOINT = Endpoint.create("sample-service",
+			10 << 24 | 1 << 16 | 2 << 8 | 3, 8080);
+
+	private ZipkinSpans() {
+	}
+
+	static List<Span> spans(int count, int tags) {
+		List<Span> spans = new ArrayList<>(count);
+		long timestamp = System.currentTimeMillis() * 1000L;
+		for (int i = 0; i < count; i++) {
+			spans.add(span(0x463ac35c9f6413adL, 0x72485a3953bb6124L + i, timestamp, tags));
+		}
+		return spans;
+	}
+
+	private static Span span(long traceId, long spanId, long timestamp, int tags) {
+		Span.Builder span = new Span.Builder().traceId(traceId).parentId(traceId)
+				.id(spanId).name("http:/api/v1/customers").timestamp(timestamp)
+				.duration(12345L);
+		span.addAnnotation(annotation(timestamp, Constants.CLIENT_SEND));
+		span.addAnnotation(annotation(timestamp + 12345L, Constants.CLIENT_RECV));
+		for (int i = 0; i < tags; i++) {
+			span.addBinaryAnnotation(new BinaryAnnotation.Builder()
+					.type(BinaryAnnotation.Type.STRING).key("http.header.x-custom-" + i)
+					.value(("value-" + i + "-" + spanId).getBytes(UTF_8))
+					.endpoint(ENDPOINT).build());
+		}
+		return span.build();
+	}
+
+	private static Annotation annotation(long timestamp, String value) {
+		return new Annotation.Builder().timestamp(timestamp).value(value)
+				.endpoint(ENDPOINT).build();
+	}
+
+}
@@ -18,48 +18,107 @@ package org.springframework.cloud.sleuth;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.Singular;
+import lombok.ToString;
 
 /**
+ * Span timed in milliseconds. It is safe to share between threads (e.g. the request
+ * thread and a Hystrix or async executor thread) without locking: stopping is a single
+ * compare-and-set on the end time, and tags and logs are copied on write into compact,
+ * read-only snapshots ({@link SpanTags} and {@link SpanLogs}) that are published with a
+ * compare-and-set, so readers never see a collection being modified.
+ *
  * @author Spencer Gibb
  */
 @Data
-@Builder(toBuilder=true)
+@EqualsAndHashCode(exclude = { "parentsView", "idsHex", "limits" })
+@ToString(exclude = { "parentsView", "idsHex", "limits" })
 public class MilliSpan implements Span {
+	private static final AtomicLongFieldUpdater<MilliSpan> END_UPDATER =
+			AtomicLongFieldUpdater.newUpdater(MilliSpan.class, "end");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<MilliSpan, Map> TAGS_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(MilliSpan.class, Map.class, "tags");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<MilliSpan, List> LOGS_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(MilliSpan.class, List.class, "logs");
+
+	private static final SpanLimits DEFAULT_LIMITS = new SpanLimits();
+
 	private final long begin;
-	private long end = 0;
+	private volatile long end = 0;
 	private final String name;
 	private final long traceId;
-	@Singular
-	private List<Long> parents = new ArrayList<>();
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private long parentId;
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private boolean hasParent;
+	// every parent, only kept for the rare span that has more than one
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private List<Long> multipleParents;
+	// getParents() of a span with a single parent, created on first use
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private List<Long> parentsView;
 	private final long spanId;
 	private boolean remote = false;
 	private boolean exportable = true;
-	private final Map<String, String> tags = new LinkedHashMap<>();
+	// read-only snapshots, replaced on every tag() or log()
+	@Setter(AccessLevel.NONE)
+	private volatile Map<String, String> tags = SpanTags.EMPTY;
 	private final String processId;
-	@Singular
-	private final List<Log> logs = new ArrayList<>();
+	@Setter(AccessLevel.NONE)
+	private volatile List<Log> logs = SpanLogs.EMPTY;
+	@Getter(AccessLevel.NONE)
+	private final SpanIdsHex idsHex = new SpanIdsHex();
+	// bounds on the tags and logs, set by the tracer that created the span
+	@Getter(AccessLevel.NONE)
+	private final SpanLimits limits;
 
 	public static MilliSpan.MilliSpanBuilder builder() {
 		return new MilliSpan().toBuilder();
 	}
 
-	public MilliSpan(long begin, long end, String name, long traceId, List<Long> parents, long spanId, boolean remote, boolean exportable, String processId) {
+	public MilliSpan(long begin, long end, String name, long traceId, List<Long> parents,
+			long spanId, boolean remote, boolean exportable, String processId) {
+		this(begin, end, name, traceId, parents, spanId, remote, exportable, processId,
+				null);
+	}
+
+	/**
+	 * @param limits bounds on the tags and logs of the span, defaults apply when
+	 * {@code null}
+	 */
+	@Builder(toBuilder = true)
+	public MilliSpan(long begin, long end, String name, long traceId,
+			@Singular @Builder.ObtainVia(method = "getParents") List<Long> parents,
+			long spanId, boolean remote, boolean exportable, String processId,
+			SpanLimits limits) {
 		this.begin = begin<=0 ? System.currentTimeMillis() : begin;
 		this.end = end;
 		this.name = name;
 		this.traceId = traceId;
-		this.parents = parents;
+		setParents(parents);
 		this.spanId = spanId;
 		this.remote = remote;
 		this.exportable = exportable;
 		this.processId = processId;
+		this.limits = limits != null ? limits : DEFAULT_LIMITS;
 	}
 
 	//for serialization
@@ -69,55 +128,147 @@ public class MilliSpan implements Span {
 		this.traceId = 0;
 		this.spanId = 0;
 		this.processId = null;
-		this.parents = new ArrayList<>();
+		this.limits = DEFAULT_LIMITS;
+	}
+
+	/**
+	 * Whether the span has a parent, in which case {@link #parentId()} returns it.
+	 * Cheaper than checking {@link #getParents()}, which boxes the ids. See
+	 * {@link SpanParents} for any span.
+	 */
+	public boolean hasParent() {
+		return this.hasParent;
+	}
+
+	/**
+	 * The id of the (first) parent of the span, or 0 if it {@link #hasParent() has
+	 * none}.
+	 */
+	public long parentId() {
+		return this.parentId;
+	}
+
+	@Override
+	public List<Long> getParents() {
+		if (this.multipleParents != null) {
+			return this.multipleParents;
+		}
+		if (!this.hasParent) {
+			return Collections.emptyList();
+		}
+		List<Long> parents = this.parentsView;
+		if (parents == null) {
+			parents = Collections.singletonList(this.parentId);
+			this.parentsView = parents;
+		}
+		return parents;
 	}
 
+	public void setParents(List<Long> parents) {
+		this.hasParent = parents != null && !parents.isEmpty();
+		this.parentId = this.hasParent ? parents.get(0) : 0;
+		this.multipleParents = this.hasParent && parents.size() > 1
+				? Collections.unmodifiableList(new ArrayList<>(parents)) : null;
+		this.parentsView = null;
+	}
+
+	/**
+	 * Stops the span, unless it already was. When several threads race to stop it, the
+	 * first one sets the end time and the others leave it untouched.
+	 */
 	@Override
-	public synchronized void stop() {
+	public void stop() {
 		if (this.end == 0) {
 			if (this.begin == 0) {
 				throw new IllegalStateException("Span for " + this.name
 						+ " has not been started");
 			}
-			this.end = System.currentTimeMillis();
+			END_UPDATER.compareAndSet(this, 0, System.currentTimeMillis());
 		}
 	}
 
 	@Override
-	public synchronized long getAccumulatedMillis() {
+	public long getAccumulatedMillis() {
 		if (this.begin == 0) {
 			return 0;
 		}
-		if (this.end > 0) {
-			return this.end - this.begin;
+		long end = this.end;
+		if (end > 0) {
+			return end - this.begin;
 		}
 		return System.currentTimeMillis() - this.begin;
 	}
 
 	@Override
-	public synchronized boolean isRunning() {
+	public boolean isRunning() {
 		return this.begin != 0 && this.end == 0;
 	}
 
+	/**
+	 * The trace id as hex, computed at most once. See
+	 * {@link Span.IdConverter#traceIdHex(Span)}.
+	 */
+	public String traceIdHex() {
+		return this.idsHex.traceIdHex(this.traceId);
+	}
+
+	/**
+	 * The span id as hex, computed at most once. See
+	 * {@link Span.IdConverter#spanIdHex(Span)}.
+	 */
+	public String spanIdHex() {
+		return this.idsHex.spanIdHex(this.spanId);
+	}
+
 	@Override
 	public void tag(String key, String value) {
-		this.tags.put(key, value);
+		SpanLimits limits = this.limits;
+		key = limits.truncateKey(key);
+		value = limits.truncateValue(value);
+		// the room left by the logs, read once rather than on every retry
+		int maxCharacters = limits.getMaxSize() - SpanLogs.characters(this.logs);
+		Map<String, String> tags;
+		SpanTags updated;
+		do {
+			tags = this.tags;
+			updated = SpanTags.copyOf(tags).with(key, value, limits.getMaxTags(),
+					maxCharacters);
+			if (updated == null) {
+				limits.tagDropped();
+				return;
+			}
+		}
+		while (updated != tags && !TAGS_UPDATER.compareAndSet(this, tags, updated));
 	}
 
 	@Override
 	public void log(String msg) {
-		this.logs.add(new Log(System.currentTimeMillis(),
-				msg));
+		SpanLimits limits = this.limits;
+		Log log = new Log(System.currentTimeMillis(), limits.truncateValue(msg));
+		// the room left by the tags, read once rather than on every retry
+		int maxCharacters = limits.getMaxSize() - SpanTags.characters(this.tags);
+		List<Log> logs;
+		SpanLogs updated;
+		do {
+			logs = this.logs;
+			updated = SpanLogs.copyOf(logs).with(log, limits.getMaxLogs(),
+					maxCharacters);
+			if (updated == null) {
+				limits.logDropped();
+				return;
+			}
+		}
+		while (!LOGS_UPDATER.compareAndSet(this, logs, updated));
 	}
 
 	@Override
 	public Map<String, String> tags() {
-		return Collections.unmodifiableMap(this.tags);
+		return this.tags;
 	}
 
 	@Override
 	public List<Log> logs() {
-		return Collections.unmodifiableList(this.logs);
+		return this.logs;
 	}
 
 }
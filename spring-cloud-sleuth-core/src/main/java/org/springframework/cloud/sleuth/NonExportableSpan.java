@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Immutable span used when the sampler has decided not to export a trace. It only
+ * carries the ids (so they can still be propagated and logged), never allocates any
+ * collections and silently ignores tags and logs. Timing is not recorded either, so
+ * {@link #getEnd()} is always 0.
+ */
+@EqualsAndHashCode(exclude = "idsHex")
+@ToString(exclude = "idsHex")
+public final class NonExportableSpan implements Span {
+
+	private final long begin;
+	private final String name;
+	private final long traceId;
+	private final long spanId;
+	private final SpanIdsHex idsHex = new SpanIdsHex();
+
+	public NonExportableSpan(long begin, String name, long traceId, long spanId) {
+		this.begin = begin;
+		this.name = name;
+		this.traceId = traceId;
+		this.spanId = spanId;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public long getSpanId() {
+		return this.spanId;
+	}
+
+	@Override
+	public long getTraceId() {
+		return this.traceId;
+	}
+
+	/**
+	 * The trace id as hex, computed at most once. See
+	 * {@link Span.IdConverter#traceIdHex(Span)}.
+	 */
+	public String traceIdHex() {
+		return this.idsHex.traceIdHex(this.traceId);
+	}
+
+	/**
+	 * The span id as hex, computed at most once. See
+	 * {@link Span.IdConverter#spanIdHex(Span)}.
+	 */
+	public String spanIdHex() {
+		return this.idsHex.spanIdHex(this.spanId);
+	}
+
+	@Override
+	public String getProcessId() {
+		return null;
+	}
+
+	@Override
+	public List<Long> getParents() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * See {@link SpanParents}.
+	 */
+	public boolean hasParent() {
+		return false;
+	}
+
+	public long parentId() {
+		return 0;
+	}
+
+	@Override
+	public boolean isRemote() {
+		return false;
+	}
+
+	@Override
+	public void stop() {
+	}
+
+	@Override
+	public long getBegin() {
+		return this.begin;
+	}
+
+	@Override
+	public long getEnd() {
+		return 0;
+	}
+
+	@Override
+	public long getAccumulatedMillis() {
+		return 0;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return false;
+	}
+
+	@Override
+	public boolean isExportable() {
+		return false;
+	}
+
+	@Override
+	public void tag(String key, String value) {
+	}
+
+	@Override
+	public void log(String msg) {
+	}
+
+	@Override
+	public Map<String, String> tags() {
+		return Collections.emptyMap();
+	}
+
+	@Override
+	public List<Log> logs() {
+		return Collections.emptyList();
+	}
+
+}
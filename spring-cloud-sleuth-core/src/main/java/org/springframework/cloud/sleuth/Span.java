@@ -16,12 +16,15 @@
 
 package org.springframework.cloud.sleuth;
 
-import org.springframework.util.Assert;
-
-import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
 /**
  * Interface for gathering and reporting statistics about a block of execution.
  * <p/>
@@ -133,23 +136,174 @@ public interface Span {
 
 
 	/**
-	 * Class used for conversions of long ids to their String representation
+	 * Class used for conversions of long ids to their String representation. The hex form
+	 * is the one of {@link Long#toHexString(long)} (lower case, no leading zeros); parsing
+	 * accepts either case and, like {@link java.math.BigInteger#longValue()}, keeps the
+	 * lowest 64 bits of longer ids.
 	 */
 	class IdConverter {
 
+		private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+		// value of each ASCII hex digit, -1 for any other character
+		private static final byte[] HEX_VALUES = new byte[128];
+
+		static {
+			Arrays.fill(HEX_VALUES, (byte) -1);
+			for (int i = 0; i < 10; i++) {
+				HEX_VALUES['0' + i] = (byte) i;
+			}
+			for (int i = 0; i < 6; i++) {
+				HEX_VALUES['a' + i] = (byte) (10 + i);
+				HEX_VALUES['A' + i] = (byte) (10 + i);
+			}
+		}
+
+		/**
+		 * The {@link Span#getTraceId() trace id} of the span as hex, as it is propagated in
+		 * headers and logged. Computed at most once for the spans of this package.
+		 */
+		public static String traceIdHex(Span span) {
+			if (span instanceof MilliSpan) {
+				return ((MilliSpan) span).traceIdHex();
+			}
+			if (span instanceof NonExportableSpan) {
+				return ((NonExportableSpan) span).traceIdHex();
+			}
+			return toHex(span.getTraceId());
+		}
+
+		/**
+		 * The {@link Span#getSpanId() span id} of the span as hex, as it is propagated in
+		 * headers and logged. Computed at most once for the spans of this package.
+		 */
+		public static String spanIdHex(Span span) {
+			if (span instanceof MilliSpan) {
+				return ((MilliSpan) span).spanIdHex();
+			}
+			if (span instanceof NonExportableSpan) {
+				return ((NonExportableSpan) span).spanIdHex();
+			}
+			return toHex(span.getSpanId());
+		}
+
 		/**
 		 * Represents given long id as hex string
 		 */
 		public static String toHex(long id) {
-			return Long.toHexString(id);
+			char[] chars = new char[hexLength(id)];
+			toHex(id, chars, 0);
+			return new String(chars);
+		}
+
+		/**
+		 * Writes the hex form of the id at the given offset, which must leave room for
+		 * {@link #hexLength(long)} characters.
+		 *
+		 * @return the offset following the last character written
+		 */
+		public static int toHex(long id, char[] destination, int offset) {
+			int end = offset + hexLength(id);
+			for (int i = end - 1; i >= offset; i--) {
+				destination[i] = HEX_DIGITS[(int) id & 0xf];
+				id >>>= 4;
+			}
+			return end;
+		}
+
+		/**
+		 * Writes the hex form of the id as ASCII at the given offset, which must leave room
+		 * for {@link #hexLength(long)} bytes.
+		 *
+		 * @return the offset following the last byte written
+		 */
+		public static int toHex(long id, byte[] destination, int offset) {
+			int end = offset + hexLength(id);
+			for (int i = end - 1; i >= offset; i--) {
+				destination[i] = (byte) HEX_DIGITS[(int) id & 0xf];
+				id >>>= 4;
+			}
+			return end;
+		}
+
+		/**
+		 * @return the number of characters in the hex form of the id, from 1 to 16
+		 */
+		public static int hexLength(long id) {
+			return id == 0 ? 1 : (67 - Long.numberOfLeadingZeros(id)) >> 2;
 		}
 
 		/**
 		 * Represents hex string as long
 		 */
 		public static long fromHex(String hexString) {
-			Assert.hasText(hexString, "Can't convert empty hex string to long");
-			return new BigInteger(hexString, 16).longValue();
+			return fromHex((CharSequence) hexString);
+		}
+
+		/**
+		 * Parses the hex id, optionally preceded by a sign.
+		 *
+		 * @throws IllegalArgumentException if the id is empty
+		 * @throws NumberFormatException if it contains anything else than hex digits
+		 */
+		public static long fromHex(CharSequence hex) {
+			Assert.isTrue(StringUtils.hasText(hex), "Can't convert empty hex string to long");
+			int length = hex.length();
+			char first = hex.charAt(0);
+			int start = first == '-' || first == '+' ? 1 : 0;
+			if (start == length) {
+				throw invalidHex(hex);
+			}
+			long result = 0;
+			for (int i = start; i < length; i++) {
+				int value = hexValue(hex.charAt(i));
+				if (value < 0) {
+					throw invalidHex(hex);
+				}
+				result = result << 4 | value;
+			}
+			return first == '-' ? -result : result;
+		}
+
+		/**
+		 * Parses the hex id held by {@code length} characters from the given offset.
+		 *
+		 * @see #fromHex(CharSequence)
+		 */
+		public static long fromHex(char[] hex, int offset, int length) {
+			return fromHex(CharBuffer.wrap(hex, offset, length));
+		}
+
+		/**
+		 * Parses the hex id held, as ASCII, by {@code length} bytes from the given offset.
+		 *
+		 * @see #fromHex(CharSequence)
+		 */
+		public static long fromHex(byte[] hex, int offset, int length) {
+			Assert.isTrue(length > 0, "Can't convert empty hex string to long");
+			int end = offset + length;
+			byte first = hex[offset];
+			int start = first == '-' || first == '+' ? offset + 1 : offset;
+			if (start == end) {
+				throw invalidHex(new String(hex, offset, length, StandardCharsets.ISO_8859_1));
+			}
+			long result = 0;
+			for (int i = start; i < end; i++) {
+				int value = hexValue((char) (hex[i] & 0xff));
+				if (value < 0) {
+					throw invalidHex(new String(hex, offset, length, StandardCharsets.ISO_8859_1));
+				}
+				result = result << 4 | value;
+			}
+			return first == '-' ? -result : result;
+		}
+
+		private static int hexValue(char c) {
+			return c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+		}
+
+		private static NumberFormatException invalidHex(CharSequence hex) {
+			return new NumberFormatException("Not a hex id: [" + hex + "]");
 		}
 	}
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth;
+
+/**
+ * Hex form of the ids of a span, computed the first time it is asked for. Threads racing
+ * to compute it at the same time just compute the same (immutable) strings, so there is
+ * no need to synchronize.
+ */
+final class SpanIdsHex {
+
+	private String traceIdHex;
+	private String spanIdHex;
+
+	String traceIdHex(long traceId) {
+		String hex = this.traceIdHex;
+		if (hex == null) {
+			hex = Span.IdConverter.toHex(traceId);
+			this.traceIdHex = hex;
+		}
+		return hex;
+	}
+
+	String spanIdHex(long spanId) {
+		String hex = this.spanIdHex;
+		if (hex == null) {
+			hex = Span.IdConverter.toHex(spanId);
+			this.spanIdHex = hex;
+		}
+		return hex;
+	}
+
+}
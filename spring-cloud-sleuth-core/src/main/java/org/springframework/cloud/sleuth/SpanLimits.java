@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Bounds on what a {@link MilliSpan} keeps, so that the memory taken by a span waiting to
+ * be exported stays predictable whatever the application tags it with. Values and keys
+ * that are too long are truncated; tags and logs that don't fit any more are dropped.
+ * Both are counted, see {@link #getTruncatedValues()}, {@link #getDroppedTags()} and
+ * {@link #getDroppedLogs()}.
+ *
+ * <p>Sizes are counted in characters, which is the number of bytes once exported for
+ * ASCII text. The limits are handed to the
+ * {@link org.springframework.cloud.sleuth.trace.DefaultTracer DefaultTracer}, which
+ * applies them to the spans it creates, and changes are seen when they are rebound (e.g.
+ * on a refresh in Spring Cloud).
+ */
+@ConfigurationProperties("spring.sleuth.span")
+@Data
+@EqualsAndHashCode(exclude = { "droppedTags", "droppedLogs", "truncatedValues" })
+@ToString(exclude = { "droppedTags", "droppedLogs", "truncatedValues" })
+public class SpanLimits {
+
+	/**
+	 * Maximum number of tags of a span. Further tags are dropped, but the value of an
+	 * existing tag can still be replaced.
+	 */
+	private int maxTags = 64;
+
+	/**
+	 * Maximum number of logs of a span. Further logs are dropped.
+	 */
+	private int maxLogs = 64;
+
+	/**
+	 * Maximum length of a tag key. Longer keys are truncated.
+	 */
+	private int maxKeyLength = 256;
+
+	/**
+	 * Maximum length of a tag value or a log message. Longer values are truncated.
+	 */
+	private int maxValueLength = 8192;
+
+	/**
+	 * Maximum size of the tags and logs of a span, keys included. Tags and logs that
+	 * would exceed it are dropped.
+	 */
+	private int maxSize = 65536;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final AtomicLong droppedTags = new AtomicLong();
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final AtomicLong droppedLogs = new AtomicLong();
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private final AtomicLong truncatedValues = new AtomicLong();
+
+	/**
+	 * @return the number of tags dropped because a span had too many, or was too large
+	 */
+	public long getDroppedTags() {
+		return this.droppedTags.get();
+	}
+
+	/**
+	 * @return the number of logs dropped because a span had too many, or was too large
+	 */
+	public long getDroppedLogs() {
+		return this.droppedLogs.get();
+	}
+
+	/**
+	 * @return the number of tag keys, tag values and log messages that were truncated
+	 */
+	public long getTruncatedValues() {
+		return this.truncatedValues.get();
+	}
+
+	String truncateKey(String key) {
+		return truncate(key, this.maxKeyLength);
+	}
+
+	String truncateValue(String value) {
+		return truncate(value, this.maxValueLength);
+	}
+
+	private String truncate(String value, int maxLength) {
+		if (value == null || value.length() <= maxLength) {
+			return value;
+		}
+		this.truncatedValues.incrementAndGet();
+		int length = Math.max(maxLength, 0);
+		// don't leave half of a surrogate pair behind
+		if (length > 0 && Character.isHighSurrogate(value.charAt(length - 1))) {
+			length--;
+		}
+		return value.substring(0, length);
+	}
+
+	void tagDropped() {
+		this.droppedTags.incrementAndGet();
+	}
+
+	void logDropped() {
+		this.droppedLogs.incrementAndGet();
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Read-only logs of a span, backed by a single array. Like {@link SpanTags}, instances
+ * are immutable, {@link #with(Log)} returns a copy, and copies share an array with room
+ * to spare, so adding a log only copies the array once it is full.
+ */
+final class SpanLogs extends AbstractList<Log> implements RandomAccess {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	static final SpanLogs EMPTY = new SpanLogs(new Slots(0, 0), 0, 0);
+
+	private final Slots slots;
+	private final int size;
+	private final int characters;
+
+	private SpanLogs(Slots slots, int size, int characters) {
+		this.slots = slots;
+		this.size = size;
+		this.characters = characters;
+	}
+
+	/**
+	 * @return logs holding the given ones, in the same order
+	 */
+	static SpanLogs copyOf(List<Log> logs) {
+		if (logs instanceof SpanLogs) {
+			return (SpanLogs) logs;
+		}
+		Slots slots = new Slots(Math.max(logs.size(), INITIAL_CAPACITY), logs.size());
+		int characters = 0;
+		int i = 0;
+		for (Log log : logs) {
+			slots.array[i++] = log;
+			characters += SpanTags.length(log.getMsg());
+		}
+		return new SpanLogs(slots, logs.size(), characters);
+	}
+
+	/**
+	 * @return these logs followed by the given one
+	 */
+	SpanLogs with(Log log) {
+		return with(log, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return these logs followed by the given one, or {@code null} if that would make
+	 * more than {@code maxLogs} logs or more than {@code maxCharacters} characters
+	 */
+	SpanLogs with(Log log, int maxLogs, int maxCharacters) {
+		int characters = this.characters + SpanTags.length(log.getMsg());
+		if (this.size >= maxLogs || characters > maxCharacters) {
+			return null;
+		}
+		Slots slots = this.slots;
+		if (!slots.claim(this.size)) {
+			slots = slots.copy(this.size, Math.max(INITIAL_CAPACITY, this.size * 2));
+			slots.used = this.size + 1;
+		}
+		slots.array[this.size] = log;
+		return new SpanLogs(slots, this.size + 1, characters);
+	}
+
+	/**
+	 * @return the total length of the messages
+	 */
+	int characters() {
+		return this.characters;
+	}
+
+	/**
+	 * @return the total length of the messages of the given logs, without copying them
+	 */
+	static int characters(List<Log> logs) {
+		if (logs instanceof SpanLogs) {
+			return ((SpanLogs) logs).characters();
+		}
+		int characters = 0;
+		for (Log log : logs) {
+			characters += SpanTags.length(log.getMsg());
+		}
+		return characters;
+	}
+
+	@Override
+	public Log get(int index) {
+		if (index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		}
+		return this.slots.array[index];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * The array shared by copies of the same logs, and how many of its slots have been
+	 * claimed, see {@link SpanTags}.
+	 */
+	private static final class Slots {
+
+		private static final AtomicIntegerFieldUpdater<Slots> USED_UPDATER =
+				AtomicIntegerFieldUpdater.newUpdater(Slots.class, "used");
+
+		final Log[] array;
+
+		volatile int used;
+
+		Slots(int capacity, int used) {
+			this.array = new Log[capacity];
+			this.used = used;
+		}
+
+		boolean claim(int size) {
+			return size < this.array.length
+					&& USED_UPDATER.compareAndSet(this, size, size + 1);
+		}
+
+		Slots copy(int size, int capacity) {
+			Slots slots = new Slots(capacity, size);
+			System.arraycopy(this.array, 0, slots.array, 0, size);
+			return slots;
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth;
+
+import java.util.List;
+
+/**
+ * Reads the parent of a {@link Span} without boxing: {@link MilliSpan} and
+ * {@link NonExportableSpan} keep it as a primitive, any other span is read through
+ * {@link Span#getParents()}.
+ */
+public final class SpanParents {
+
+	private SpanParents() {
+	}
+
+	public static boolean hasParent(Span span) {
+		if (span instanceof MilliSpan) {
+			return ((MilliSpan) span).hasParent();
+		}
+		if (span instanceof NonExportableSpan) {
+			return ((NonExportableSpan) span).hasParent();
+		}
+		return !span.getParents().isEmpty();
+	}
+
+	/**
+	 * @return the id of the (first) parent of the span, or 0 if it has none
+	 */
+	public static long parentId(Span span) {
+		if (span instanceof MilliSpan) {
+			return ((MilliSpan) span).parentId();
+		}
+		if (span instanceof NonExportableSpan) {
+			return ((NonExportableSpan) span).parentId();
+		}
+		List<Long> parents = span.getParents();
+		return parents.isEmpty() ? 0 : parents.get(0);
+	}
+
+}
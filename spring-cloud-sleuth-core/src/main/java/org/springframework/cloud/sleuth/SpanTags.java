@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Read-only, insertion-ordered tags of a span, kept in a single array of alternating
+ * keys and values. A span usually has a handful of tags, for which a linear scan is as
+ * fast as hashing and takes a fraction of the memory of a
+ * {@link java.util.LinkedHashMap}.
+ *
+ * <p>Instances are immutable: {@link #with(String, String)} returns a copy, which is
+ * what lets {@link MilliSpan} publish a new instance with a compare-and-set instead of
+ * locking. Copies share the array, which has room to spare: adding a tag claims the
+ * next free slots, and the array is only copied (at twice the size) once it is full,
+ * or when another copy of the same tags has already claimed them.
+ */
+final class SpanTags extends AbstractMap<String, String> {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	static final SpanTags EMPTY = new SpanTags(new Slots(0, 0), 0, 0);
+
+	private final Slots slots;
+	private final int size;
+	private final int characters;
+
+	private SpanTags(Slots slots, int size, int characters) {
+		this.slots = slots;
+		this.size = size;
+		this.characters = characters;
+	}
+
+	/**
+	 * @return tags holding the given ones, in the same order
+	 */
+	static SpanTags copyOf(Map<String, String> tags) {
+		if (tags instanceof SpanTags) {
+			return (SpanTags) tags;
+		}
+		Slots slots = new Slots(Math.max(tags.size(), INITIAL_CAPACITY), tags.size());
+		int characters = 0;
+		int i = 0;
+		for (Entry<String, String> entry : tags.entrySet()) {
+			slots.array[i++] = entry.getKey();
+			slots.array[i++] = entry.getValue();
+			characters += length(entry.getKey()) + length(entry.getValue());
+		}
+		return new SpanTags(slots, tags.size(), characters);
+	}
+
+	/**
+	 * @return these tags plus the given one, replacing the value of an existing key in
+	 * place
+	 */
+	SpanTags with(String key, String value) {
+		return with(key, value, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return these tags plus the given one, replacing the value of an existing key in
+	 * place, or {@code null} if a new key would make more than {@code maxTags} tags, or
+	 * if the tags would grow beyond {@code maxCharacters} characters
+	 */
+	SpanTags with(String key, String value, int maxTags, int maxCharacters) {
+		int index = indexOf(key);
+		if (index >= 0) {
+			String previous = this.slots.array[2 * index + 1];
+			if (ObjectUtils.nullSafeEquals(previous, value)) {
+				return this;
+			}
+			int characters = this.characters - length(previous) + length(value);
+			// replacing a value with a shorter one is always fine
+			if (characters > this.characters && characters > maxCharacters) {
+				return null;
+			}
+			Slots slots = this.slots.copy(this.size, this.slots.capacity());
+			slots.array[2 * index + 1] = value;
+			return new SpanTags(slots, this.size, characters);
+		}
+		int characters = this.characters + length(key) + length(value);
+		if (this.size >= maxTags
+				|| (characters > this.characters && characters > maxCharacters)) {
+			return null;
+		}
+		Slots slots = this.slots;
+		if (!slots.claim(this.size)) {
+			slots = slots.copy(this.size, Math.max(INITIAL_CAPACITY, this.size * 2));
+			slots.used = this.size + 1;
+		}
+		slots.array[2 * this.size] = key;
+		slots.array[2 * this.size + 1] = value;
+		return new SpanTags(slots, this.size + 1, characters);
+	}
+
+	/**
+	 * @return the total length of the keys and values
+	 */
+	int characters() {
+		return this.characters;
+	}
+
+	/**
+	 * @return the total length of the keys and values of the given tags, without copying
+	 * them
+	 */
+	static int characters(Map<String, String> tags) {
+		if (tags instanceof SpanTags) {
+			return ((SpanTags) tags).characters();
+		}
+		int characters = 0;
+		for (Entry<String, String> entry : tags.entrySet()) {
+			characters += length(entry.getKey()) + length(entry.getValue());
+		}
+		return characters;
+	}
+
+	static int length(String string) {
+		return string != null ? string.length() : 0;
+	}
+
+	private int indexOf(Object key) {
+		String[] array = this.slots.array;
+		for (int i = 0; i < this.size; i++) {
+			if (ObjectUtils.nullSafeEquals(array[2 * i], key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public String get(Object key) {
+		int index = indexOf(key);
+		return index >= 0 ? this.slots.array[2 * index + 1] : null;
+	}
+
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		// not cached: it would make every copy larger, and spans are usually iterated once
+		return new EntrySet();
+	}
+
+	private final class EntrySet extends AbstractSet<Entry<String, String>> {
+
+		@Override
+		public int size() {
+			return SpanTags.this.size;
+		}
+
+		@Override
+		public Iterator<Entry<String, String>> iterator() {
+			return new Iterator<Entry<String, String>>() {
+
+				private int index;
+
+				@Override
+				public boolean hasNext() {
+					return this.index < SpanTags.this.size;
+				}
+
+				@Override
+				public Entry<String, String> next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					String[] array = SpanTags.this.slots.array;
+					int i = 2 * this.index++;
+					return new SimpleImmutableEntry<>(array[i], array[i + 1]);
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+	/**
+	 * The array shared by copies of the same tags, and how many of its key and value
+	 * pairs have been claimed. A pair is claimed once, by the first copy that adds a tag
+	 * to the tags before it, so copies never overwrite what another one can read.
+	 */
+	private static final class Slots {
+
+		private static final AtomicIntegerFieldUpdater<Slots> USED_UPDATER =
+				AtomicIntegerFieldUpdater.newUpdater(Slots.class, "used");
+
+		final String[] array;
+
+		volatile int used;
+
+		Slots(int capacity, int used) {
+			this.array = new String[2 * capacity];
+			this.used = used;
+		}
+
+		int capacity() {
+			return this.array.length / 2;
+		}
+
+		boolean claim(int size) {
+			return size < capacity() && USED_UPDATER.compareAndSet(this, size, size + 1);
+		}
+
+		Slots copy(int size, int capacity) {
+			Slots slots = new Slots(capacity, size);
+			System.arraycopy(this.array, 0, slots.array, 0, 2 * size);
+			return slots;
+		}
+
+	}
+
+}
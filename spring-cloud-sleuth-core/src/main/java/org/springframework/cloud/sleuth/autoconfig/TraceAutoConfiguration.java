@@ -16,15 +16,27 @@
 
 package org.springframework.cloud.sleuth.autoconfig;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.sleuth.Sampler;
+import org.springframework.cloud.sleuth.SpanLimits;
+import org.springframework.cloud.sleuth.event.ApplicationEventSpanListener;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
+import org.springframework.cloud.sleuth.event.SpanEventRelay;
+import org.springframework.cloud.sleuth.export.SpanQueueStatus;
+import org.springframework.cloud.sleuth.sampler.AdaptiveSampler;
 import org.springframework.cloud.sleuth.sampler.IsTracingSampler;
+import org.springframework.cloud.sleuth.sampler.SamplerConfiguration;
 import org.springframework.cloud.sleuth.trace.DefaultTracer;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -32,6 +44,7 @@ import java.util.Random;
  */
 @Configuration
 @ConditionalOnProperty(value="spring.sleuth.enabled", matchIfMissing=true)
+@EnableConfigurationProperties(SpanLimits.class)
 public class TraceAutoConfiguration {
 
 	@Bean
@@ -45,10 +58,63 @@ public class TraceAutoConfiguration {
 		return new IsTracingSampler();
 	}
 
+	/**
+	 * Dispatches the span lifecycle to every
+	 * {@link org.springframework.cloud.sleuth.event.SpanListener} bean
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	public CompositeSpanListener spanListener() {
+		return new CompositeSpanListener();
+	}
+
+	/**
+	 * Republishes the span lifecycle as application events, for listeners written
+	 * against the events in {@code org.springframework.cloud.sleuth.event}. On by
+	 * default for compatibility; set {@code spring.sleuth.events.enabled=false} to
+	 * skip the event publication.
+	 */
+	@Bean
+	@ConditionalOnProperty(value = "spring.sleuth.events.enabled", matchIfMissing = true)
+	public ApplicationEventSpanListener applicationEventSpanListener(
+			ApplicationEventPublisher publisher) {
+		return new ApplicationEventSpanListener(publisher);
+	}
+
+	/**
+	 * Hands the span events still published by application code to the span listeners
+	 */
+	@Bean
+	public SpanEventRelay spanEventRelay(CompositeSpanListener spanListener) {
+		return new SpanEventRelay(spanListener);
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public DefaultTracer traceManager(Sampler<Void> sampler,
-									  ApplicationEventPublisher publisher) {
-		return new DefaultTracer(sampler, random(), publisher);
+									  CompositeSpanListener spanListener,
+									  SpanLimits spanLimits) {
+		return new DefaultTracer(sampler, random(), spanListener, spanLimits);
+	}
+
+	/**
+	 * Samples at a rate that follows the load on the export queues, i.e. the
+	 * {@link SpanQueueStatus} beans qualified as {@link SpanQueueStatus#EXPORT_QUEUE}
+	 */
+	@Configuration
+	@ConditionalOnProperty("spring.sleuth.sampler.adaptive")
+	@EnableConfigurationProperties(SamplerConfiguration.class)
+	protected static class AdaptiveSamplerConfiguration {
+
+		@Autowired(required = false)
+		@Qualifier(SpanQueueStatus.EXPORT_QUEUE)
+		private List<SpanQueueStatus> queues = Collections.emptyList();
+
+		@Bean
+		@ConditionalOnMissingBean
+		public Sampler<Void> adaptiveTraceSampler(SamplerConfiguration configuration) {
+			return new AdaptiveSampler(configuration, this.queues);
+		}
+
 	}
 }
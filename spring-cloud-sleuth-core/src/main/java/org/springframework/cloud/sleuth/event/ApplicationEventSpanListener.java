@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.event;
+
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * {@link SpanListener} that republishes the span lifecycle as the
+ * {@link org.springframework.context.ApplicationEvent ApplicationEvents} of this package
+ * (e.g. {@link SpanAcquiredEvent}, {@link SpanReleasedEvent}), for existing
+ * {@code @EventListener} or {@code ApplicationListener} components. Registered by
+ * default; switch it off with {@code spring.sleuth.events.enabled=false} once nothing
+ * listens for the events any more.
+ */
+@SuppressWarnings("deprecation")
+public class ApplicationEventSpanListener implements SpanListener {
+
+	private final ApplicationEventPublisher publisher;
+
+	public ApplicationEventSpanListener(ApplicationEventPublisher publisher) {
+		this.publisher = publisher;
+	}
+
+	@Override
+	public void spanAcquired(Span parent, Span span) {
+		this.publisher.publishEvent(new SpanAcquiredEvent(this, parent, span));
+	}
+
+	@Override
+	public void spanContinued(Span span) {
+		this.publisher.publishEvent(new SpanContinuedEvent(this, span));
+	}
+
+	@Override
+	public void spanReleased(Span parent, Span span) {
+		this.publisher.publishEvent(new SpanReleasedEvent(this, parent, span));
+	}
+
+	@Override
+	public void serverReceived(Span parent, Span span) {
+		this.publisher.publishEvent(new ServerReceivedEvent(this, parent, span));
+	}
+
+	@Override
+	public void serverSent(Span parent, Span span) {
+		this.publisher.publishEvent(new ServerSentEvent(this, parent, span));
+	}
+
+	@Override
+	public void clientSent(Span span) {
+		this.publisher.publishEvent(new ClientSentEvent(this, span));
+	}
+
+	@Override
+	public void clientReceived(Span span) {
+		this.publisher.publishEvent(new ClientReceivedEvent(this, span));
+	}
+
+}
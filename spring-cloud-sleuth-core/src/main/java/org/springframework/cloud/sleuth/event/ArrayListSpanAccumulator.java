@@ -21,17 +21,16 @@ import java.util.ArrayList;
 import lombok.Value;
 
 import org.springframework.cloud.sleuth.Span;
-import org.springframework.context.ApplicationListener;
 
 /**
  * @author Spencer Gibb
  */
 @Value
-public class ArrayListSpanAccumulator implements ApplicationListener<SpanReleasedEvent> {
+public class ArrayListSpanAccumulator extends SpanListenerAdapter {
 	private final ArrayList<Span> spans = new ArrayList<>();
 
 	@Override
-	public void onApplicationEvent(SpanReleasedEvent event) {
-		spans.add(event.getSpan());
+	public void spanReleased(Span parent, Span span) {
+		spans.add(span);
 	}
 }
@@ -25,7 +25,9 @@ import org.springframework.context.ApplicationEvent;
 /**
  * @author Dave Syer
  *
+ * @deprecated implement a {@link SpanListener} instead
  */
+@Deprecated
 @Data
 @EqualsAndHashCode(callSuper = false)
 @SuppressWarnings("serial")
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+
+/**
+ * {@link SpanListener} that fans out to a fixed, ordered array of delegates. The
+ * delegates are either given explicitly or, when declared as a bean without any,
+ * resolved once from the bean factory after all singletons have been created. No
+ * lookup happens per span. A span finished before that point (e.g. from another
+ * bean's initialization) reaches no listener unless they were given explicitly.
+ *
+ * <p>Delegates are sorted by {@link org.springframework.core.Ordered} or by an
+ * {@link org.springframework.core.annotation.Order @Order} on their class, not on the
+ * {@code @Bean} method that declares them.
+ */
+public class CompositeSpanListener
+		implements SpanListener, BeanFactoryAware, SmartInitializingSingleton {
+
+	private static final SpanListener[] NO_LISTENERS = new SpanListener[0];
+
+	private volatile SpanListener[] listeners = NO_LISTENERS;
+
+	private ListableBeanFactory beanFactory;
+
+	public CompositeSpanListener() {
+	}
+
+	public CompositeSpanListener(SpanListener... listeners) {
+		this(Arrays.asList(listeners));
+	}
+
+	public CompositeSpanListener(Collection<? extends SpanListener> listeners) {
+		setListeners(listeners);
+	}
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		if (beanFactory instanceof ListableBeanFactory) {
+			this.beanFactory = (ListableBeanFactory) beanFactory;
+		}
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (this.beanFactory != null && this.listeners.length == 0) {
+			setListeners(this.beanFactory.getBeansOfType(SpanListener.class).values());
+		}
+	}
+
+	public void setListeners(Collection<? extends SpanListener> listeners) {
+		List<SpanListener> sorted = new ArrayList<>(listeners.size());
+		for (SpanListener listener : listeners) {
+			if (listener != this) {
+				sorted.add(listener);
+			}
+		}
+		AnnotationAwareOrderComparator.sort(sorted);
+		this.listeners = sorted.toArray(new SpanListener[sorted.size()]);
+	}
+
+	public List<SpanListener> getListeners() {
+		return Arrays.asList(this.listeners);
+	}
+
+	@Override
+	public void spanAcquired(Span parent, Span span) {
+		for (SpanListener listener : this.listeners) {
+			listener.spanAcquired(parent, span);
+		}
+	}
+
+	@Override
+	public void spanContinued(Span span) {
+		for (SpanListener listener : this.listeners) {
+			listener.spanContinued(span);
+		}
+	}
+
+	@Override
+	public void spanReleased(Span parent, Span span) {
+		for (SpanListener listener : this.listeners) {
+			listener.spanReleased(parent, span);
+		}
+	}
+
+	@Override
+	public void serverReceived(Span parent, Span span) {
+		for (SpanListener listener : this.listeners) {
+			listener.serverReceived(parent, span);
+		}
+	}
+
+	@Override
+	public void serverSent(Span parent, Span span) {
+		for (SpanListener listener : this.listeners) {
+			listener.serverSent(parent, span);
+		}
+	}
+
+	@Override
+	public void clientSent(Span span) {
+		for (SpanListener listener : this.listeners) {
+			listener.clientSent(span);
+		}
+	}
+
+	@Override
+	public void clientReceived(Span span) {
+		for (SpanListener listener : this.listeners) {
+			listener.clientReceived(span);
+		}
+	}
+
+}
@@ -24,7 +24,9 @@ import org.springframework.context.ApplicationEvent;
 
 /**
  * @author Spencer Gibb
+ * @deprecated implement a {@link SpanListener} instead
  */
+@Deprecated
 @Data
 @EqualsAndHashCode(callSuper=false)
 @SuppressWarnings("serial")
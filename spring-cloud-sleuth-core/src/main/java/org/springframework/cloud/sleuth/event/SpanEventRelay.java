@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.event;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.core.Ordered;
+
+/**
+ * Hands the span events that application code still publishes itself (e.g. a
+ * {@link ClientSentEvent} from a custom client) to the {@link SpanListener SpanListeners}
+ * of a {@link CompositeSpanListener}, so that they keep reaching the exporters. Events
+ * republished by an {@link ApplicationEventSpanListener} are ignored, and so is that
+ * listener, so nothing is reported or published twice.
+ */
+@SuppressWarnings("deprecation")
+public class SpanEventRelay implements SmartApplicationListener {
+
+	private final CompositeSpanListener spanListener;
+
+	public SpanEventRelay(CompositeSpanListener spanListener) {
+		this.spanListener = spanListener;
+	}
+
+	@Override
+	public boolean supportsEventType(Class<? extends ApplicationEvent> eventType) {
+		return SpanAcquiredEvent.class.isAssignableFrom(eventType)
+				|| SpanContinuedEvent.class.isAssignableFrom(eventType)
+				|| SpanReleasedEvent.class.isAssignableFrom(eventType)
+				|| ServerReceivedEvent.class.isAssignableFrom(eventType)
+				|| ServerSentEvent.class.isAssignableFrom(eventType)
+				|| ClientSentEvent.class.isAssignableFrom(eventType)
+				|| ClientReceivedEvent.class.isAssignableFrom(eventType);
+	}
+
+	@Override
+	public boolean supportsSourceType(Class<?> sourceType) {
+		return !ApplicationEventSpanListener.class.isAssignableFrom(sourceType);
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.LOWEST_PRECEDENCE;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		for (SpanListener listener : this.spanListener.getListeners()) {
+			if (!(listener instanceof ApplicationEventSpanListener)) {
+				relay(event, listener);
+			}
+		}
+	}
+
+	private void relay(ApplicationEvent event, SpanListener listener) {
+		if (event instanceof SpanAcquiredEvent) {
+			SpanAcquiredEvent acquired = (SpanAcquiredEvent) event;
+			listener.spanAcquired(acquired.getParent(), acquired.getSpan());
+		}
+		else if (event instanceof SpanContinuedEvent) {
+			listener.spanContinued(((SpanContinuedEvent) event).getSpan());
+		}
+		else if (event instanceof SpanReleasedEvent) {
+			SpanReleasedEvent released = (SpanReleasedEvent) event;
+			listener.spanReleased(released.getParent(), released.getSpan());
+		}
+		else if (event instanceof ServerReceivedEvent) {
+			ServerReceivedEvent received = (ServerReceivedEvent) event;
+			listener.serverReceived(received.getParent(), received.getSpan());
+		}
+		else if (event instanceof ServerSentEvent) {
+			ServerSentEvent sent = (ServerSentEvent) event;
+			listener.serverSent(sent.getParent(), sent.getSpan());
+		}
+		else if (event instanceof ClientSentEvent) {
+			listener.clientSent(((ClientSentEvent) event).getSpan());
+		}
+		else if (event instanceof ClientReceivedEvent) {
+			listener.clientReceived(((ClientReceivedEvent) event).getSpan());
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.event;
+
+import org.springframework.cloud.sleuth.Span;
+
+/**
+ * Callback for the lifecycle of spans. Every bean of this type is picked up once at
+ * startup by the {@link CompositeSpanListener} and then invoked directly by the tracer
+ * and the instrumentation, in {@link org.springframework.core.annotation.Order order}.
+ * <p/>
+ * Implementations are called on the thread that drives the span, so they should be
+ * quick. Extend {@link SpanListenerAdapter} to only implement the callbacks you need.
+ */
+public interface SpanListener {
+
+	/**
+	 * A span was created, as a child of the (nullable) parent.
+	 */
+	void spanAcquired(Span parent, Span span);
+
+	/**
+	 * A span was attached to the current thread.
+	 */
+	void spanContinued(Span span);
+
+	/**
+	 * A span was stopped and is ready for collection. The parent (nullable) is the span
+	 * that becomes current again.
+	 */
+	void spanReleased(Span parent, Span span);
+
+	/**
+	 * A request from another process was received (the parent is the remote span).
+	 */
+	void serverReceived(Span parent, Span span);
+
+	/**
+	 * The response to a request from another process was sent (the parent is the
+	 * remote span).
+	 */
+	void serverSent(Span parent, Span span);
+
+	/**
+	 * A request to another process was sent.
+	 */
+	void clientSent(Span span);
+
+	/**
+	 * The response to a request to another process was received.
+	 */
+	void clientReceived(Span span);
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.export;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.context.Lifecycle;
+import org.springframework.util.Assert;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Decouples the threads that complete spans from the work of exporting them. Spans are
+ * {@link #export(Span) exported} into a {@link SpanRingBuffer} in constant time, and a
+ * single background thread drains them in batches of up to {@code maxBatchSize} to the
+ * {@link Handler}, which does the conversion and reporting.
+ *
+ * <p>The thread is only created by {@link #start()}; spans exported before that wait in
+ * the buffer. While the buffer is empty the thread parks until the next span is
+ * exported.
+ */
+@CommonsLog
+public class AsyncSpanExporter implements Lifecycle, Flushable, Closeable {
+
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+	// Only a safety net: exporting a span wakes the idle thread up
+	private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Receives batches of spans on the exporter thread.
+	 */
+	public interface Handler {
+		void handle(List<Span> spans);
+	}
+
+	private final SpanRingBuffer buffer;
+	private final int maxBatchSize;
+	private final Handler handler;
+	// Held while a batch is handled so flush() can't overtake the exporter thread
+	private final ReentrantLock drainLock = new ReentrantLock();
+	private volatile Thread thread;
+	private volatile boolean running;
+	// Set by the exporter thread while it parks on an empty buffer
+	private volatile boolean idle;
+
+	public AsyncSpanExporter(SpanRingBuffer buffer, Handler handler) {
+		this(buffer, DEFAULT_MAX_BATCH_SIZE, handler);
+	}
+
+	public AsyncSpanExporter(SpanRingBuffer buffer, int maxBatchSize, Handler handler) {
+		Assert.isTrue(maxBatchSize > 0, "maxBatchSize must be positive");
+		this.buffer = buffer;
+		this.maxBatchSize = maxBatchSize;
+		this.handler = handler;
+	}
+
+	/**
+	 * Starts the exporter thread, unless it is already running. If the thread of a
+	 * previous {@link #stop()} is still handing a batch to the handler, waits for it to
+	 * exit first, so there is never more than one exporter thread.
+	 */
+	@Override
+	public synchronized void start() {
+		if (this.running) {
+			return;
+		}
+		Thread previous = this.thread;
+		if (previous != null) {
+			awaitExit(previous);
+		}
+		this.running = true;
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				consume();
+			}
+		}, "sleuth-span-exporter");
+		thread.setDaemon(true);
+		this.thread = thread;
+		thread.start();
+	}
+
+	/**
+	 * Stops the exporter thread, waiting up to a second for it to finish the batch it is
+	 * handling. Spans still in the buffer stay there until the next {@link #flush()} or
+	 * {@link #start()}.
+	 */
+	@Override
+	public synchronized void stop() {
+		if (!this.running) {
+			return;
+		}
+		this.running = false;
+		Thread thread = this.thread;
+		LockSupport.unpark(thread);
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(1));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (thread.isAlive()) {
+			// Kept, so that start() doesn't run a second thread next to this one
+			log.warn("The span exporter thread is still handling a batch after being stopped");
+		}
+		else {
+			this.thread = null;
+		}
+	}
+
+	private void awaitExit(Thread thread) {
+		boolean interrupted = false;
+		try {
+			while (thread.isAlive()) {
+				try {
+					thread.join();
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.thread = null;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	/**
+	 * Queues the span for export, subject to the buffer's {@link OverflowPolicy}.
+	 *
+	 * @return false if the span was dropped
+	 */
+	public boolean export(Span span) {
+		boolean offered = this.buffer.offer(span);
+		if (this.idle) {
+			LockSupport.unpark(this.thread);
+		}
+		return offered;
+	}
+
+	private void consume() {
+		List<Span> batch = new ArrayList<>(this.maxBatchSize);
+		while (this.running) {
+			if (drain(batch) == 0) {
+				this.idle = true;
+				// Checked again after publishing idle: a span exported in between either
+				// is seen here or unparks this thread
+				if (this.buffer.isEmpty() && this.running) {
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				}
+				this.idle = false;
+			}
+		}
+	}
+
+	private int drain(List<Span> batch) {
+		this.drainLock.lock();
+		try {
+			int count = this.buffer.drainTo(batch, this.maxBatchSize);
+			if (count > 0) {
+				try {
+					this.handler.handle(batch);
+				}
+				catch (Throwable e) {
+					// Not even an Error may kill the only thread exporting spans
+					log.warn("Failed to export " + count + " spans", e);
+				}
+				finally {
+					batch.clear();
+				}
+			}
+			return count;
+		}
+		finally {
+			this.drainLock.unlock();
+		}
+	}
+
+	/**
+	 * Hands every span exported so far to the handler before returning, on the calling
+	 * thread if the exporter thread hasn't got to them yet.
+	 */
+	@Override
+	public void flush() {
+		List<Span> batch = new ArrayList<>(this.maxBatchSize);
+		while (drain(batch) > 0) {
+		}
+	}
+
+	/**
+	 * Like {@link #flush()}, but doesn't hand another batch to the handler once the
+	 * timeout has elapsed.
+	 *
+	 * @return true if the buffer was emptied
+	 */
+	public boolean flush(long timeout, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		List<Span> batch = new ArrayList<>(this.maxBatchSize);
+		while (System.nanoTime() - deadline < 0) {
+			if (drain(batch) == 0) {
+				return true;
+			}
+		}
+		return this.buffer.isEmpty();
+	}
+
+	/**
+	 * Stops the exporter thread and flushes what is left in the buffer.
+	 */
+	@Override
+	public void close() {
+		stop();
+		flush();
+	}
+
+	public SpanRingBuffer getBuffer() {
+		return this.buffer;
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.export;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A queue of completed spans waiting to be sent, that can be emptied before the
+ * application shuts down. See {@link SpanQueueLifecycle}.
+ */
+public interface DrainableSpanQueue {
+
+	/**
+	 * Stops queueing spans. Spans completed afterwards are not sent.
+	 */
+	void stopAccepting();
+
+	/**
+	 * Sends the queued spans on the calling thread, until there are none left or the
+	 * timeout has elapsed.
+	 *
+	 * @return the number of spans sent
+	 */
+	int drain(long timeout, TimeUnit unit);
+
+	/**
+	 * Discards the spans still queued.
+	 *
+	 * @return the number of spans discarded
+	 */
+	int abandon();
+
+}
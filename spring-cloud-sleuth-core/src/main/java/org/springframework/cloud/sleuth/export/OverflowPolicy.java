@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.export;
+
+/**
+ * What a {@link SpanRingBuffer} does with a span offered while it is full.
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * Reject the offered span. The cheapest option for the caller.
+	 */
+	DROP_NEWEST,
+
+	/**
+	 * Discard the oldest queued span to make room for the offered one.
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * Wait until there is room, for at most the buffer's maximum block time, then drop
+	 * the offered span. Applies back pressure to the traced application, so only use it
+	 * when losing spans is worse than slowing down requests.
+	 */
+	BLOCK
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.export;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.SmartLifecycle;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Empties a {@link DrainableSpanQueue} when the application context is stopped or
+ * closed, so that the spans of the last moments of an instance are sent rather than lost.
+ * The queue stops accepting spans, then gets up to {@code timeout} milliseconds to send
+ * the ones it holds; whatever is left after that is abandoned. The number of spans sent
+ * and abandoned is logged.
+ *
+ * <p>The default phase is the highest, so that the queue is drained before the
+ * components it sends spans through are stopped.
+ */
+@CommonsLog
+public class SpanQueueLifecycle implements SmartLifecycle {
+
+	private final DrainableSpanQueue queue;
+	private final long timeout;
+	private int phase = Integer.MAX_VALUE;
+	private volatile boolean running;
+
+	/**
+	 * @param timeout in milliseconds
+	 */
+	public SpanQueueLifecycle(DrainableSpanQueue queue, long timeout) {
+		this.queue = queue;
+		this.timeout = timeout;
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+	}
+
+	@Override
+	public void stop() {
+		if (!this.running) {
+			return;
+		}
+		this.running = false;
+		this.queue.stopAccepting();
+		int flushed = this.queue.drain(this.timeout, TimeUnit.MILLISECONDS);
+		int abandoned = this.queue.abandon();
+		if (abandoned > 0) {
+			log.warn("Flushed " + flushed + " spans on shutdown, abandoned " + abandoned
+					+ " that could not be sent within " + this.timeout + "ms");
+		}
+		else if (log.isInfoEnabled()) {
+			log.info("Flushed " + flushed + " spans on shutdown");
+		}
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	@Override
+	public int getPhase() {
+		return this.phase;
+	}
+
+	public void setPhase(int phase) {
+		this.phase = phase;
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.export;
+
+/**
+ * How loaded a queue of spans waiting to be exported is, for samplers that back off when
+ * the export pipeline can't keep up. See
+ * {@link org.springframework.cloud.sleuth.sampler.AdaptiveSampler}.
+ *
+ * <p>Beans of this type with the {@link #EXPORT_QUEUE} qualifier are the queues the
+ * auto-configured adaptive sampler watches, one per export pipeline so that no span is
+ * counted twice.
+ */
+public interface SpanQueueStatus {
+
+	String EXPORT_QUEUE = "sleuthExportQueue";
+
+	/**
+	 * @return an estimate of the number of spans waiting to be exported
+	 */
+	int getQueuedSpans();
+
+	int getQueueCapacity();
+
+	/**
+	 * @return the number of spans queued since the queue was created
+	 */
+	long getAcceptedSpans();
+
+	/**
+	 * @return the number of spans lost so far because the queue was full or, when the
+	 * queue sends them itself, because they couldn't be sent
+	 */
+	long getDroppedSpans();
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.export;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.util.Assert;
+
+/**
+ * Bounded, lock-free ring buffer that completed spans are handed to. Offering is a
+ * couple of CAS operations on a preallocated array, so it is safe to call from any
+ * number of request threads. It is meant to be drained by a single consumer, though
+ * concurrent drains are safe too (which is what lets {@link OverflowPolicy#DROP_OLDEST}
+ * evict from the producer side).
+ *
+ * <p>Every slot carries a sequence number telling producers and consumers whose turn it
+ * is, as described by Dmitry Vyukov for his bounded MPMC queue. The capacity is rounded
+ * up to a power of two.
+ */
+public class SpanRingBuffer implements SpanQueueStatus {
+
+	public static final long DEFAULT_MAX_BLOCK_MILLIS = 1000;
+
+	private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final Span[] spans;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final OverflowPolicy overflowPolicy;
+	private final long maxBlockNanos;
+
+	private final AtomicLong enqueuePosition = new AtomicLong();
+	private final AtomicLong dequeuePosition = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	public SpanRingBuffer(int capacity, OverflowPolicy overflowPolicy) {
+		this(capacity, overflowPolicy, DEFAULT_MAX_BLOCK_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param maxBlockTime how long {@link OverflowPolicy#BLOCK} waits for room before
+	 * dropping the offered span
+	 */
+	public SpanRingBuffer(int capacity, OverflowPolicy overflowPolicy, long maxBlockTime,
+			TimeUnit unit) {
+		Assert.isTrue(capacity > 0, "capacity must be positive");
+		Assert.isTrue(maxBlockTime >= 0, "maxBlockTime can not be negative");
+		Assert.notNull(overflowPolicy, "overflowPolicy can not be null");
+		int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.spans = new Span[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+		this.mask = size - 1;
+		this.overflowPolicy = overflowPolicy;
+		this.maxBlockNanos = unit.toNanos(maxBlockTime);
+	}
+
+	/**
+	 * Adds the span, applying the {@link OverflowPolicy} if the buffer is full.
+	 *
+	 * @return false if the span was dropped
+	 */
+	public boolean offer(Span span) {
+		boolean blocking = false;
+		long deadline = 0;
+		while (!tryOffer(span)) {
+			switch (this.overflowPolicy) {
+			case DROP_OLDEST:
+				if (poll() != null) {
+					this.dropped.incrementAndGet();
+				}
+				break;
+			case BLOCK:
+				long now = System.nanoTime();
+				if (!blocking) {
+					blocking = true;
+					deadline = now + this.maxBlockNanos;
+				}
+				if (now - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+					this.dropped.incrementAndGet();
+					return false;
+				}
+				LockSupport.parkNanos(Math.min(BLOCK_PARK_NANOS, deadline - now));
+				break;
+			default:
+				this.dropped.incrementAndGet();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean tryOffer(Span span) {
+		long position = this.enqueuePosition.get();
+		for (;;) {
+			int index = (int) position & this.mask;
+			long difference = this.sequences.get(index) - position;
+			if (difference == 0) {
+				if (this.enqueuePosition.compareAndSet(position, position + 1)) {
+					this.spans[index] = span;
+					// publishes the span to the consumer
+					this.sequences.set(index, position + 1);
+					return true;
+				}
+				position = this.enqueuePosition.get();
+			}
+			else if (difference < 0) {
+				// the consumer hasn't freed this slot yet
+				return false;
+			}
+			else {
+				position = this.enqueuePosition.get();
+			}
+		}
+	}
+
+	/**
+	 * @return the oldest span, or null if the buffer is empty
+	 */
+	public Span poll() {
+		long position = this.dequeuePosition.get();
+		for (;;) {
+			int index = (int) position & this.mask;
+			long difference = this.sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (this.dequeuePosition.compareAndSet(position, position + 1)) {
+					Span span = this.spans[index];
+					this.spans[index] = null;
+					// hands the slot back to the producers, one lap later
+					this.sequences.set(index, position + this.mask + 1);
+					return span;
+				}
+				position = this.dequeuePosition.get();
+			}
+			else if (difference < 0) {
+				return null;
+			}
+			else {
+				position = this.dequeuePosition.get();
+			}
+		}
+	}
+
+	/**
+	 * Moves at most {@code maxSpans} spans, oldest first, to the given collection.
+	 *
+	 * @return the number of spans moved
+	 */
+	public int drainTo(Collection<? super Span> collection, int maxSpans) {
+		int count = 0;
+		while (count < maxSpans) {
+			Span span = poll();
+			if (span == null) {
+				break;
+			}
+			collection.add(span);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Discards every queued span.
+	 *
+	 * @return the number of spans discarded
+	 */
+	public int clear() {
+		int count = 0;
+		while (poll() != null) {
+			count++;
+		}
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * @return an estimate of the number of queued spans
+	 */
+	public int size() {
+		long size = this.enqueuePosition.get() - this.dequeuePosition.get();
+		return (int) Math.max(0, Math.min(size, this.spans.length));
+	}
+
+	@Override
+	public int getQueuedSpans() {
+		return size();
+	}
+
+	public int getCapacity() {
+		return this.spans.length;
+	}
+
+	@Override
+	public int getQueueCapacity() {
+		return getCapacity();
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
+	/**
+	 * @return the longest {@link OverflowPolicy#BLOCK} waits for room, in milliseconds
+	 */
+	public long getMaxBlockTime() {
+		return TimeUnit.NANOSECONDS.toMillis(this.maxBlockNanos);
+	}
+
+	/**
+	 * @return the number of spans that made it into the buffer since it was created
+	 */
+	@Override
+	public long getAcceptedSpans() {
+		return this.enqueuePosition.get();
+	}
+
+	/**
+	 * @return the number of spans lost because the buffer was full
+	 */
+	@Override
+	public long getDroppedSpans() {
+		return this.dropped.get();
+	}
+
+}
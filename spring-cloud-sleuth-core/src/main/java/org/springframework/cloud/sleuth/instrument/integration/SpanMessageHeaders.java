@@ -17,10 +17,10 @@
 package org.springframework.cloud.sleuth.instrument.integration;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanParents;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.instrument.TraceKeys;
 import org.springframework.integration.support.MessageBuilder;
@@ -46,12 +46,12 @@ public class SpanMessageHeaders {
 		}
 
 		Map<String, String> headers = new HashMap<>();
-		addHeader(headers, Trace.TRACE_ID_NAME, span.getTraceId());
-		addHeader(headers, Trace.SPAN_ID_NAME, span.getSpanId());
+		addHeader(headers, Trace.TRACE_ID_NAME, Span.IdConverter.traceIdHex(span));
+		addHeader(headers, Trace.SPAN_ID_NAME, Span.IdConverter.spanIdHex(span));
 
 		if (span.isExportable()) {
 			addAnnotations(traceKeys, message, span);
-			addHeader(headers, Trace.PARENT_ID_NAME, getFirst(span.getParents()));
+			addHeader(headers, Trace.PARENT_ID_NAME, getParentId(span));
 			addHeader(headers, Trace.SPAN_NAME_NAME, span.getName());
 			addHeader(headers, Trace.PROCESS_ID_NAME, span.getProcessId());
 		}
@@ -104,8 +104,8 @@ public class SpanMessageHeaders {
 		}
 	}
 
-	private static Long getFirst(List<Long> parents) {
-		return parents.isEmpty() ? null : parents.get(0);
+	private static Long getParentId(Span span) {
+		return SpanParents.hasParent(span) ? SpanParents.parentId(span) : null;
 	}
 
 }
@@ -16,11 +16,11 @@
 
 package org.springframework.cloud.sleuth.instrument.integration;
 
-import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanParents;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.trace.TraceContextHolder;
 import org.springframework.messaging.Message;
@@ -115,7 +115,6 @@ public class StompMessageBuilder {
 	}
 
 	private Long getParentId(final Span currentSpan) {
-		List<Long> parents = currentSpan.getParents();
-		return parents.isEmpty() ? null : parents.get(0);
+		return SpanParents.hasParent(currentSpan) ? SpanParents.parentId(currentSpan) : null;
 	}
 }
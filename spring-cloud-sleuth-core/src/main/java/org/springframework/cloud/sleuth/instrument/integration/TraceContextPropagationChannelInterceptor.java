@@ -18,6 +18,7 @@ package org.springframework.cloud.sleuth.instrument.integration;
 
 import org.springframework.aop.support.AopUtils;
 import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanParents;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.integration.channel.DirectChannel;
@@ -94,8 +95,7 @@ public class TraceContextPropagationChannelInterceptor extends ChannelIntercepto
 	}
 
 	private Long getParentId(Span span) {
-		return !span.getParents().isEmpty()
-				? span.getParents().get(0) : null;
+		return SpanParents.hasParent(span) ? SpanParents.parentId(span) : null;
 	}
 
 	protected void populatePropagatedContext(Span span, Message<?> message,
@@ -128,8 +128,8 @@ public class TraceContextPropagationChannelInterceptor extends ChannelIntercepto
 			Map<String, Object> headers = new HashMap<>();
 			headers.putAll(message.getHeaders());
 
-			setHeader(headers, Trace.SPAN_ID_NAME, this.span.getSpanId());
-			setHeader(headers, Trace.TRACE_ID_NAME, this.span.getTraceId());
+			setHeader(headers, Trace.SPAN_ID_NAME, Span.IdConverter.spanIdHex(this.span));
+			setHeader(headers, Trace.TRACE_ID_NAME, Span.IdConverter.traceIdHex(this.span));
 			setHeader(headers, Trace.SPAN_NAME_NAME, this.span.getName());
 			Long parentId = getParentId(span);
 			if (parentId != null) {
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Sampling rules for the requests the {@link TraceFilter} starts traces for, e.g.
+ *
+ * <pre>
+ * spring.sleuth.web.sampling.rules[0].path=/health
+ * spring.sleuth.web.sampling.rules[0].percentage=0.0
+ * spring.sleuth.web.sampling.rules[1].path=/checkout/**
+ * spring.sleuth.web.sampling.rules[1].method=POST
+ * spring.sleuth.web.sampling.rules[1].percentage=1.0
+ * spring.sleuth.web.sampling.percentage=0.01
+ * </pre>
+ *
+ * The rules are compiled into a single matcher when the properties are bound, and again
+ * when they are rebound after the environment changed (e.g. on a refresh in Spring Cloud),
+ * so they can be changed without a restart.
+ */
+@ConfigurationProperties("spring.sleuth.web.sampling")
+@Data
+@EqualsAndHashCode(exclude = "compiledRules")
+@ToString(exclude = "compiledRules")
+public class HttpSamplingProperties implements InitializingBean {
+
+	/**
+	 * Rules tried in order, the first one matching the request decides. At most 64.
+	 */
+	private List<Rule> rules = new ArrayList<>();
+
+	/**
+	 * Percentage of the requests no rule matches that should be sampled, from 0.0 to 1.0.
+	 * If not set, the default Sampler decides.
+	 */
+	private Float percentage;
+
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private volatile HttpSamplingRules compiledRules;
+
+	@Override
+	public void afterPropertiesSet() {
+		this.compiledRules = new HttpSamplingRules(this.rules, this.percentage);
+	}
+
+	HttpSamplingRules getCompiledRules() {
+		HttpSamplingRules compiledRules = this.compiledRules;
+		if (compiledRules == null) {
+			afterPropertiesSet();
+			compiledRules = this.compiledRules;
+		}
+		return compiledRules;
+	}
+
+	@Data
+	public static class Rule {
+
+		/**
+		 * Ant-style pattern of the path within the application, e.g. /checkout/**.
+		 */
+		private String path;
+
+		/**
+		 * HTTP method the rule is limited to. Any method if not set.
+		 */
+		private String method;
+
+		/**
+		 * Percentage of the matching requests that should be sampled, from 0.0 to 1.0.
+		 */
+		private float percentage;
+
+	}
+
+}
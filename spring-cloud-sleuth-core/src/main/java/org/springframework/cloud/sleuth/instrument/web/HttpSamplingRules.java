@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cloud.sleuth.Sampler;
+import org.springframework.cloud.sleuth.sampler.AlwaysSampler;
+import org.springframework.cloud.sleuth.sampler.CountingSampler;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link HttpSamplingProperties Sampling rules} compiled into one matcher. Each rule is a
+ * bit of a mask: paths without wildcards are looked up in a map, and patterns ending with
+ * {@code /**} are prefixes of a {@link PathTrie}, so a request is matched against every
+ * such rule at once. Only the remaining patterns go through an {@link AntPathMatcher},
+ * and what they match is cached per path.
+ */
+final class HttpSamplingRules {
+
+	static final int MAX_RULES = 64;
+
+	private static final Sampler<Void> NEVER = new Sampler<Void>() {
+		@Override
+		public boolean next() {
+			return false;
+		}
+	};
+
+	private final String[] methods; // Null elements match any method
+	private final Sampler<?>[] samplers;
+	private final Sampler<?> defaultSampler; // Null leaves the decision to the tracer
+	private final Map<String, Long> exactPaths = new HashMap<>();
+	private final PathTrie prefixes = new PathTrie(false);
+	private final List<String> patterns = new ArrayList<>();
+	private final List<Long> patternMasks = new ArrayList<>();
+	private final AntPathMatcher matcher = new AntPathMatcher();
+	private final PathMatchCache patternMatches = new PathMatchCache(1024);
+
+	HttpSamplingRules(List<HttpSamplingProperties.Rule> rules, Float percentage) {
+		Assert.isTrue(rules.size() <= MAX_RULES, "At most " + MAX_RULES
+				+ " sampling rules are supported, got " + rules.size());
+		this.methods = new String[rules.size()];
+		this.samplers = new Sampler<?>[rules.size()];
+		for (int i = 0; i < rules.size(); i++) {
+			HttpSamplingProperties.Rule rule = rules.get(i);
+			Assert.hasText(rule.getPath(), "A sampling rule needs a path");
+			this.methods[i] = StringUtils.hasText(rule.getMethod()) ? rule.getMethod() : null;
+			this.samplers[i] = sampler(rule.getPercentage());
+			addPath(rule.getPath(), 1L << i);
+		}
+		this.defaultSampler = percentage != null ? sampler(percentage) : null;
+	}
+
+	private void addPath(String path, long mask) {
+		if (!this.matcher.isPattern(path)) {
+			Long existing = this.exactPaths.get(path);
+			this.exactPaths.put(path, existing != null ? existing | mask : mask);
+		}
+		else if (path.endsWith("/**")
+				&& !this.matcher.isPattern(path.substring(0, path.length() - 3))) {
+			String prefix = path.substring(0, path.length() - 3);
+			// like the AntPathMatcher, /checkout/** also matches /checkout
+			addPath(prefix, mask);
+			this.prefixes.put(prefix + "/", mask);
+		}
+		else {
+			this.patterns.add(path);
+			this.patternMasks.add(mask);
+		}
+	}
+
+	private static Sampler<?> sampler(float percentage) {
+		if (percentage <= 0) {
+			return NEVER;
+		}
+		if (percentage >= 1) {
+			return new AlwaysSampler();
+		}
+		return new CountingSampler(percentage);
+	}
+
+	/**
+	 * @return the sampler of the first rule matching the request, or of the default
+	 * percentage; null when neither applies
+	 */
+	Sampler<?> samplerFor(String method, String path) {
+		long mask = this.prefixes.match(path) | matchPatterns(path);
+		Long exact = this.exactPaths.get(path);
+		if (exact != null) {
+			mask |= exact;
+		}
+		while (mask != 0) {
+			int rule = Long.numberOfTrailingZeros(mask);
+			String ruleMethod = this.methods[rule];
+			if (ruleMethod == null || ruleMethod.equalsIgnoreCase(method)) {
+				return this.samplers[rule];
+			}
+			mask &= mask - 1;
+		}
+		return this.defaultSampler;
+	}
+
+	private long matchPatterns(String path) {
+		if (this.patterns.isEmpty()) {
+			return 0;
+		}
+		Long cached = this.patternMatches.get(path);
+		if (cached != null) {
+			return cached;
+		}
+		long mask = 0;
+		for (int i = 0; i < this.patterns.size(); i++) {
+			if (this.matcher.match(this.patterns.get(i), path)) {
+				mask |= this.patternMasks.get(i);
+			}
+		}
+		this.patternMatches.put(path, mask);
+		return mask;
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Tells whether a path matches a regular expression like the
+ * {@link TraceFilter#DEFAULT_SKIP_PATTERN}, without running the expression for every
+ * request. The alternatives of the expression are sorted by shape:
+ *
+ * <ul>
+ * <li>literal paths, e.g. {@code /info}, go into a set</li>
+ * <li>literal prefixes, e.g. {@code /metrics.*}, go into a {@link PathTrie}</li>
+ * <li>literal suffixes, e.g. {@code .*\.png}, go into a reversed {@link PathTrie}</li>
+ * </ul>
+ *
+ * so a path is classified in one pass over its characters. The alternatives of any other
+ * shape are kept as a regular expression, whose result is cached per path. An expression
+ * with groups, classes, anchors or flags is kept whole.
+ */
+public final class PathClassifier {
+
+	private static final String UNSUPPORTED = "()[]{}^$+?*|";
+
+	private final Set<String> exactPaths = new HashSet<>();
+	private final PathTrie prefixes = new PathTrie(false);
+	private final PathTrie suffixes = new PathTrie(true);
+	private final Pattern fallback; // Null when every alternative has been sorted out
+	private final PathMatchCache fallbackMatches;
+
+	public PathClassifier(Pattern pattern) {
+		this(pattern, 1024);
+	}
+
+	/**
+	 * @param cacheSize how many paths the results of the expression are cached for
+	 */
+	public PathClassifier(Pattern pattern, int cacheSize) {
+		String regex = pattern.pattern();
+		List<String> others = new ArrayList<>();
+		if (pattern.flags() != 0 || containsAny(regex, "()[]") || regex.contains("\\|")) {
+			others.add(regex);
+		}
+		else {
+			for (String alternative : regex.split("\\|", -1)) {
+				if (!add(alternative)) {
+					others.add(alternative);
+				}
+			}
+		}
+		this.fallback = others.isEmpty() ? null : (others.size() == 1
+				&& others.get(0).equals(regex) ? pattern
+						: Pattern.compile(StringUtils.collectionToDelimitedString(others, "|")));
+		this.fallbackMatches = this.fallback != null ? new PathMatchCache(cacheSize) : null;
+	}
+
+	/**
+	 * @return whether the whole path matches the expression
+	 */
+	public boolean matches(String path) {
+		if (this.exactPaths.contains(path) || this.prefixes.match(path) != 0
+				|| this.suffixes.match(path) != 0) {
+			return true;
+		}
+		if (this.fallback == null) {
+			return false;
+		}
+		Long cached = this.fallbackMatches.get(path);
+		if (cached != null) {
+			return cached != 0;
+		}
+		boolean matches = this.fallback.matcher(path).matches();
+		this.fallbackMatches.put(path, matches ? 1 : 0);
+		return matches;
+	}
+
+	/**
+	 * @return false if the alternative isn't a literal path, prefix or suffix
+	 */
+	private boolean add(String alternative) {
+		boolean anyPrefix = alternative.startsWith(".*");
+		boolean anySuffix = alternative.endsWith(".*") && alternative.length() >= 2
+				&& !alternative.endsWith("\\.*");
+		if (anyPrefix && anySuffix) {
+			if (!alternative.equals(".*")) {
+				return false; // contains: no cheaper than the expression
+			}
+			this.prefixes.put("", 1);
+			return true;
+		}
+		String literal = literal(alternative.substring(anyPrefix ? 2 : 0,
+				alternative.length() - (anySuffix ? 2 : 0)));
+		if (literal == null) {
+			return false;
+		}
+		if (anyPrefix) {
+			this.suffixes.put(literal, 1);
+		}
+		else if (anySuffix) {
+			this.prefixes.put(literal, 1);
+		}
+		else {
+			this.exactPaths.add(literal);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the text the expression matches, or null if it matches more than one text
+	 */
+	private static String literal(String regex) {
+		StringBuilder literal = new StringBuilder(regex.length());
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				if (i + 1 < regex.length() && regex.charAt(i + 1) == '.') {
+					literal.append('.');
+					i++;
+					continue;
+				}
+				return null;
+			}
+			if (c == '.' || UNSUPPORTED.indexOf(c) >= 0) {
+				return null;
+			}
+			literal.append(c);
+		}
+		return literal.toString();
+	}
+
+	private static boolean containsAny(String value, String chars) {
+		for (int i = 0; i < chars.length(); i++) {
+			if (value.indexOf(chars.charAt(i)) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least recently used cache of what was worked out for a path, for the paths
+ * only a regular expression or an Ant pattern can classify. Applications serve a limited
+ * set of paths over and over, so those are evaluated once, while paths that embed ids
+ * can't grow the cache past its size.
+ *
+ * <p>The cache is split in segments, each guarded by its own lock, so that request
+ * threads rarely wait for each other.
+ */
+final class PathMatchCache {
+
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	PathMatchCache(int maxSize) {
+		int segmentSize = Math.max(1, maxSize / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++) {
+			this.segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * @return the cached value for the path, or null if there is none
+	 */
+	Long get(String path) {
+		Segment segment = segmentFor(path);
+		synchronized (segment) {
+			return segment.get(path);
+		}
+	}
+
+	void put(String path, long value) {
+		Segment segment = segmentFor(path);
+		synchronized (segment) {
+			segment.put(path, value);
+		}
+	}
+
+	private Segment segmentFor(String path) {
+		int hash = path.hashCode();
+		return this.segments[(hash ^ hash >>> 16) & (SEGMENTS - 1)];
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Segment extends LinkedHashMap<String, Long> {
+
+		private final int maxSize;
+
+		Segment(int maxSize) {
+			super(16, 0.75f, true); // access order
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+			return size() > this.maxSize;
+		}
+
+	}
+
+}
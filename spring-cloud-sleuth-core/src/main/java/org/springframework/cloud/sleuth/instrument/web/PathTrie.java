@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.Arrays;
+
+/**
+ * Character trie of path prefixes (or suffixes, when reversed), each carrying a bit mask.
+ * Matching a path walks it once and returns the union of the masks of every key it starts
+ * (or ends) with, whatever the number of keys, so a set of patterns is tested in one pass
+ * instead of one regular expression or Ant pattern at a time.
+ *
+ * <p>Not thread-safe while keys are added. Once built, any number of threads can match.
+ */
+final class PathTrie {
+
+	private final boolean reversed;
+	private final Node root = new Node();
+	private boolean empty = true;
+
+	/**
+	 * @param reversed whether keys are suffixes, matched from the end of the path
+	 */
+	PathTrie(boolean reversed) {
+		this.reversed = reversed;
+	}
+
+	void put(String key, long mask) {
+		Node node = this.root;
+		for (int i = 0, length = key.length(); i < length; i++) {
+			node = node.getOrCreateChild(charAt(key, i, length));
+		}
+		node.mask |= mask;
+		this.empty = false;
+	}
+
+	/**
+	 * @return the union of the masks of the keys the path starts with (or ends with, when
+	 * reversed), 0 if there are none
+	 */
+	long match(String path) {
+		Node node = this.root;
+		long mask = node.mask;
+		for (int i = 0, length = path.length(); i < length; i++) {
+			node = node.child(charAt(path, i, length));
+			if (node == null) {
+				break;
+			}
+			mask |= node.mask;
+		}
+		return mask;
+	}
+
+	boolean isEmpty() {
+		return this.empty;
+	}
+
+	private char charAt(String value, int i, int length) {
+		return this.reversed ? value.charAt(length - 1 - i) : value.charAt(i);
+	}
+
+	private static final class Node {
+
+		private static final char[] NO_KEYS = new char[0];
+		private static final Node[] NO_CHILDREN = new Node[0];
+
+		// Paths branch little, so a scan of parallel arrays beats a map
+		private char[] keys = NO_KEYS;
+		private Node[] children = NO_CHILDREN;
+		private long mask;
+
+		Node child(char c) {
+			char[] keys = this.keys;
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == c) {
+					return this.children[i];
+				}
+			}
+			return null;
+		}
+
+		Node getOrCreateChild(char c) {
+			Node child = child(c);
+			if (child == null) {
+				child = new Node();
+				int length = this.keys.length;
+				this.keys = Arrays.copyOf(this.keys, length + 1);
+				this.children = Arrays.copyOf(this.children, length + 1);
+				this.keys[length] = c;
+				this.children[length] = child;
+			}
+			return child;
+		}
+
+	}
+
+}
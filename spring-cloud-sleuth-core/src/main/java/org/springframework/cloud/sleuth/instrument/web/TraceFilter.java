@@ -18,10 +18,10 @@ package org.springframework.cloud.sleuth.instrument.web;
 import static org.springframework.util.StringUtils.hasText;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import javax.servlet.FilterChain;
@@ -29,19 +29,18 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.sleuth.MilliSpan;
 import org.springframework.cloud.sleuth.MilliSpan.MilliSpanBuilder;
+import org.springframework.cloud.sleuth.Sampler;
 import org.springframework.cloud.sleuth.Span;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.Tracer;
-import org.springframework.cloud.sleuth.event.ServerReceivedEvent;
-import org.springframework.cloud.sleuth.event.ServerSentEvent;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
+import org.springframework.cloud.sleuth.event.SpanListener;
 import org.springframework.cloud.sleuth.instrument.TraceKeys;
 import org.springframework.cloud.sleuth.sampler.IsTracingSampler;
 import org.springframework.cloud.sleuth.trace.TraceContextHolder;
-import org.springframework.context.ApplicationEvent;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.util.StringUtils;
@@ -55,7 +54,11 @@ import org.springframework.web.util.UrlPathHelper;
  *
  * <p>In order to keep the size of spans manageable, this only add tags defined in {@link TraceKeys}.
  * If you need to add additional tags, such as headers subtype this and override
- * {@link #addRequestTags} or {@link #addResponseTags}.
+ * {@link #addRequestTags} or {@link #addResponseTags}. Request tags are only added to
+ * spans that are exported.
+ *
+ * <p>New traces are sampled according to the {@link HttpSamplingProperties} if set, or
+ * else by the tracer's default sampler.
  *
  * @see TraceManager
  * @see TraceKeys
@@ -68,22 +71,28 @@ import org.springframework.web.util.UrlPathHelper;
  * @author Dave Syer
  */
 @Order(Ordered.HIGHEST_PRECEDENCE + 5)
-public class TraceFilter extends OncePerRequestFilter
-		implements ApplicationEventPublisherAware {
+public class TraceFilter extends OncePerRequestFilter {
 
 	protected static final String TRACE_REQUEST_ATTR = TraceFilter.class.getName()
 			+ ".TRACE";
 
+	// The path the filter already worked out, for addRequestTags
+	private static final String PATH_REQUEST_ATTR = TraceFilter.class.getName()
+			+ ".PATH";
+
 	public static final Pattern DEFAULT_SKIP_PATTERN = Pattern.compile(
 			"/api-docs.*|/autoconfig|/configprops|/dump|/info|/metrics.*|/mappings|/trace|/swagger.*|.*\\.png|.*\\.css|.*\\.js|.*\\.html|/favicon.ico|/hystrix.stream");
 
 	private final Tracer tracer;
 	private final TraceKeys traceKeys;
-	private final Pattern skipPattern;
+	private final PathClassifier skipPaths;
 	private final Random random;
 
 	private UrlPathHelper urlPathHelper = new UrlPathHelper();
-	private ApplicationEventPublisher publisher;
+	private SpanListener spanListener;
+	private HttpSamplingProperties samplingProperties;
+	// Header name to tag key, so names are lower-cased once
+	private final ConcurrentMap<String, String> headerTagKeys = new ConcurrentHashMap<>();
 
 
 	public TraceFilter(Tracer tracer, TraceKeys traceKeys) {
@@ -91,15 +100,39 @@ public class TraceFilter extends OncePerRequestFilter
 	}
 
 	public TraceFilter(Tracer tracer, TraceKeys traceKeys, Pattern skipPattern, Random random) {
+		this(tracer, traceKeys, skipPattern, random, null);
+	}
+
+	public TraceFilter(Tracer tracer, TraceKeys traceKeys, Pattern skipPattern,
+			Random random, SpanListener spanListener) {
 		this.tracer = tracer;
 		this.traceKeys = traceKeys;
-		this.skipPattern = skipPattern;
+		this.skipPaths = new PathClassifier(skipPattern);
 		this.random = random;
+		this.spanListener = spanListener;
 	}
 
-	@Override
-	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
-		this.publisher = publisher;
+	public void setSpanListener(SpanListener spanListener) {
+		this.spanListener = spanListener;
+	}
+
+	/**
+	 * Falls back to the span listener of the application context when none was set,
+	 * so that a filter declared as a bean of its own still reports to it.
+	 */
+	@Autowired(required = false)
+	public void setContextSpanListener(CompositeSpanListener spanListener) {
+		if (this.spanListener == null) {
+			this.spanListener = spanListener;
+		}
+	}
+
+	/**
+	 * @param samplingProperties per path and method sampling rules for the traces this
+	 * filter starts. The latest rules are used when the properties are rebound.
+	 */
+	public void setSamplingProperties(HttpSamplingProperties samplingProperties) {
+		this.samplingProperties = samplingProperties;
 	}
 
 	@Override
@@ -109,7 +142,7 @@ public class TraceFilter extends OncePerRequestFilter
 		TraceContextHolder.removeCurrentTrace();
 
 		String uri = this.urlPathHelper.getPathWithinApplication(request);
-		boolean skip = this.skipPattern.matcher(uri).matches()
+		boolean skip = this.skipPaths.matches(uri)
 				|| getHeader(request, response, Trace.NOT_SAMPLED_NAME) != null;
 
 		Trace trace = (Trace) request.getAttribute(TRACE_REQUEST_ATTR);
@@ -147,7 +180,9 @@ public class TraceFilter extends OncePerRequestFilter
 
 			Span parent = span.build();
 			trace = this.tracer.joinTrace(name, parent);
-			publish(new ServerReceivedEvent(this, parent, trace.getSpan()));
+			if (this.spanListener != null) {
+				this.spanListener.serverReceived(parent, trace.getSpan());
+			}
 			request.setAttribute(TRACE_REQUEST_ATTR, trace);
 
 		}
@@ -157,7 +192,12 @@ public class TraceFilter extends OncePerRequestFilter
 				);
 			}
 			else {
-				trace = this.tracer.startTrace(name);
+				Sampler<?> sampler = this.samplingProperties != null
+						? this.samplingProperties.getCompiledRules()
+								.samplerFor(request.getMethod(), uri)
+						: null;
+				trace = sampler != null ? this.tracer.startTrace(name, sampler)
+						: this.tracer.startTrace(name);
 			}
 			request.setAttribute(TRACE_REQUEST_ATTR, trace);
 		}
@@ -165,7 +205,10 @@ public class TraceFilter extends OncePerRequestFilter
 		Throwable exception = null;
 		try {
 
-			addRequestTags(request);
+			if (trace.getSpan() != null && trace.getSpan().isExportable()) {
+				request.setAttribute(PATH_REQUEST_ATTR, uri);
+				addRequestTags(request);
+			}
 			filterChain.doFilter(request, response);
 
 		}
@@ -184,9 +227,9 @@ public class TraceFilter extends OncePerRequestFilter
 			if (trace != null) {
 				addResponseTags(response, exception);
 				addResponseHeaders(response, trace.getSpan());
-				if (trace.getSaved() != null) {
-					publish(new ServerSentEvent(this, trace.getSaved().getSpan(),
-							trace.getSpan()));
+				if (trace.getSaved() != null && this.spanListener != null) {
+					this.spanListener.serverSent(trace.getSaved().getSpan(),
+							trace.getSpan());
 				}
 				// Double close to clean up the parent (remote span as well)
 				this.tracer.close(this.tracer.close(trace));
@@ -196,20 +239,20 @@ public class TraceFilter extends OncePerRequestFilter
 
 	private void addResponseHeaders(HttpServletResponse response, Span span) {
 		if (span != null) {
-			response.addHeader(Trace.SPAN_ID_NAME, Span.IdConverter.toHex(span.getSpanId()));
-			response.addHeader(Trace.TRACE_ID_NAME, Span.IdConverter.toHex(span.getTraceId()));
-		}
-	}
-
-	private void publish(ApplicationEvent event) {
-		if (this.publisher != null) {
-			this.publisher.publishEvent(event);
+			response.addHeader(Trace.SPAN_ID_NAME, Span.IdConverter.spanIdHex(span));
+			response.addHeader(Trace.TRACE_ID_NAME, Span.IdConverter.traceIdHex(span));
 		}
 	}
 
-	/** Override to add annotations not defined in {@link TraceKeys}. */
+	/**
+	 * Override to add annotations not defined in {@link TraceKeys}. Only called when the
+	 * span is exportable.
+	 */
 	protected void addRequestTags(HttpServletRequest request) {
-		String uri = this.urlPathHelper.getPathWithinApplication(request);
+		String uri = (String) request.getAttribute(PATH_REQUEST_ATTR);
+		if (uri == null) {
+			uri = this.urlPathHelper.getPathWithinApplication(request);
+		}
 		this.tracer.addTag(this.traceKeys.getHttp().getUrl(), getFullUrl(request));
 		this.tracer.addTag(this.traceKeys.getHttp().getHost(),
 				request.getServerName());
@@ -219,15 +262,31 @@ public class TraceFilter extends OncePerRequestFilter
 		for (String name : this.traceKeys.getHttp().getHeaders()) {
 			Enumeration<String> values = request.getHeaders(name);
 			if (values.hasMoreElements()) {
-				String key = this.traceKeys.getHttp().getPrefix() + name.toLowerCase();
-				ArrayList<String> list = Collections.list(values);
-				String value = list.size() == 1 ? list.get(0)
-						: StringUtils.collectionToDelimitedString(list, ",", "'", "'");
-				this.tracer.addTag(key, value);
+				String value = values.nextElement();
+				if (values.hasMoreElements()) {
+					StringBuilder joined = new StringBuilder().append('\'').append(value)
+							.append('\'');
+					while (values.hasMoreElements()) {
+						joined.append(",'").append(values.nextElement()).append('\'');
+					}
+					value = joined.toString();
+				}
+				this.tracer.addTag(headerTagKey(name), value);
 			}
 		}
 	}
 
+	private String headerTagKey(String name) {
+		String prefix = this.traceKeys.getHttp().getPrefix();
+		String key = this.headerTagKeys.get(name);
+		if (key == null || key.length() != prefix.length() + name.length()
+				|| !key.startsWith(prefix)) {
+			key = prefix + name.toLowerCase();
+			this.headerTagKeys.put(name, key);
+		}
+		return key;
+	}
+
 	/** Override to add annotations not defined in {@link TraceKeys}. */
 	protected void addResponseTags(HttpServletResponse response, Throwable e) {
 		int httpStatus = response.getStatus();
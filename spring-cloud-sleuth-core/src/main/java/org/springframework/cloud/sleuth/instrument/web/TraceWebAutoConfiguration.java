@@ -30,8 +30,8 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.cloud.sleuth.TraceAccessor;
 import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.cloud.sleuth.autoconfig.TraceAutoConfiguration;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
 import org.springframework.cloud.sleuth.instrument.TraceKeys;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.StringUtils;
@@ -49,7 +49,7 @@ import org.springframework.util.StringUtils;
 @ConditionalOnWebApplication
 @ConditionalOnBean(Tracer.class)
 @AutoConfigureAfter(TraceAutoConfiguration.class)
-@EnableConfigurationProperties(TraceKeys.class)
+@EnableConfigurationProperties({ TraceKeys.class, HttpSamplingProperties.class })
 public class TraceWebAutoConfiguration {
 
 	/**
@@ -74,11 +74,13 @@ public class TraceWebAutoConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public TraceFilter traceFilter(ApplicationEventPublisher publisher, Random random) {
+	public TraceFilter traceFilter(CompositeSpanListener spanListener, Random random,
+			HttpSamplingProperties samplingProperties) {
 		Pattern pattern = StringUtils.hasText(this.skipPattern) ? Pattern.compile(this.skipPattern)
 				: TraceFilter.DEFAULT_SKIP_PATTERN;
-		TraceFilter filter = new TraceFilter(this.tracer, this.traceKeys, pattern, random);
-		filter.setApplicationEventPublisher(publisher);
+		TraceFilter filter = new TraceFilter(this.tracer, this.traceKeys, pattern, random,
+				spanListener);
+		filter.setSamplingProperties(samplingProperties);
 		return filter;
 	}
 
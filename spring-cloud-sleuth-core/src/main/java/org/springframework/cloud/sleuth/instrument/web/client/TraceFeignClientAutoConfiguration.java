@@ -36,15 +36,13 @@ import org.springframework.cloud.netflix.feign.FeignAutoConfiguration;
 import org.springframework.cloud.netflix.feign.support.ResponseEntityDecoder;
 import org.springframework.cloud.netflix.feign.support.SpringDecoder;
 import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanParents;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.TraceAccessor;
 import org.springframework.cloud.sleuth.Tracer;
-import org.springframework.cloud.sleuth.event.ClientReceivedEvent;
-import org.springframework.cloud.sleuth.event.ClientSentEvent;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
 import org.springframework.cloud.sleuth.instrument.hystrix.SleuthHystrixAutoConfiguration;
 import org.springframework.cloud.sleuth.instrument.hystrix.SleuthHystrixConcurrencyStrategy;
-import org.springframework.context.ApplicationEvent;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -79,7 +77,7 @@ public class TraceFeignClientAutoConfiguration {
 	private ObjectFactory<HttpMessageConverters> messageConverters;
 
 	@Autowired
-	private ApplicationEventPublisher publisher;
+	private CompositeSpanListener spanListener;
 
 	@Autowired
 	private TraceAccessor accessor;
@@ -109,7 +107,7 @@ public class TraceFeignClientAutoConfiguration {
 				finally {
 					Span span = getCurrentSpan();
 					if (span != null) {
-						publish(new ClientReceivedEvent(this, span));
+						TraceFeignClientAutoConfiguration.this.spanListener.clientReceived(span);
 					}
 				}
 			}
@@ -126,25 +124,18 @@ public class TraceFeignClientAutoConfiguration {
 					setHeader(template, Trace.NOT_SAMPLED_NAME, "");
 					return;
 				}
-				template.header(Trace.TRACE_ID_NAME, Span.IdConverter.toHex(span.getTraceId()));
+				template.header(Trace.TRACE_ID_NAME, Span.IdConverter.traceIdHex(span));
 				setHeader(template, Trace.SPAN_NAME_NAME, span.getName());
-				setHeader(template, Trace.SPAN_ID_NAME, span.getSpanId());
+				setHeader(template, Trace.SPAN_ID_NAME, Span.IdConverter.spanIdHex(span));
 				setHeader(template, Trace.PARENT_ID_NAME, getParentId(span));
 				setHeader(template, Trace.PROCESS_ID_NAME, span.getProcessId());
-				publish(new ClientSentEvent(this, span));
+				TraceFeignClientAutoConfiguration.this.spanListener.clientSent(span);
 			}
 		};
 	}
 
-	private void publish(ApplicationEvent event) {
-		if (this.publisher != null) {
-			this.publisher.publishEvent(event);
-		}
-	}
-
 	private Long getParentId(Span span) {
-		return !span.getParents().isEmpty()
-				? span.getParents().get(0) : null;
+		return SpanParents.hasParent(span) ? SpanParents.parentId(span) : null;
 	}
 
 	public void setHeader(RequestTemplate request, String name, String value) {
@@ -169,8 +160,8 @@ public class TraceFeignClientAutoConfiguration {
 			setHeader(newHeaders, Trace.NOT_SAMPLED_NAME, "");
 			return newHeaders;
 		}
-		setHeader(newHeaders, Trace.TRACE_ID_NAME, span.getTraceId());
-		setHeader(newHeaders, Trace.SPAN_ID_NAME, span.getSpanId());
+		setHeader(newHeaders, Trace.TRACE_ID_NAME, Span.IdConverter.traceIdHex(span));
+		setHeader(newHeaders, Trace.SPAN_ID_NAME, Span.IdConverter.spanIdHex(span));
 		setHeader(newHeaders, Trace.PARENT_ID_NAME, getParentId(span));
 		return newHeaders;
 	}
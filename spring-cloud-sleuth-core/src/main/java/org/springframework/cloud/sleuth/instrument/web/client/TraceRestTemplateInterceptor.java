@@ -15,14 +15,13 @@
  */
 package org.springframework.cloud.sleuth.instrument.web.client;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanParents;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.TraceAccessor;
-import org.springframework.cloud.sleuth.event.ClientReceivedEvent;
-import org.springframework.cloud.sleuth.event.ClientSentEvent;
-import org.springframework.context.ApplicationEvent;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
+import org.springframework.cloud.sleuth.event.SpanListener;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
@@ -41,20 +40,35 @@ import java.io.IOException;
  * @author Marcin Grzejszczak, 4financeIT
  * @author Spencer Gibb
  */
-public class TraceRestTemplateInterceptor implements ClientHttpRequestInterceptor,
-ApplicationEventPublisherAware {
+public class TraceRestTemplateInterceptor implements ClientHttpRequestInterceptor {
 
-	private ApplicationEventPublisher publisher;
+	private SpanListener spanListener;
 
 	private TraceAccessor accessor;
 
 	public TraceRestTemplateInterceptor(TraceAccessor accessor) {
+		this(accessor, null);
+	}
+
+	public TraceRestTemplateInterceptor(TraceAccessor accessor,
+			SpanListener spanListener) {
 		this.accessor = accessor;
+		this.spanListener = spanListener;
 	}
 
-	@Override
-	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
-		this.publisher = publisher;
+	public void setSpanListener(SpanListener spanListener) {
+		this.spanListener = spanListener;
+	}
+
+	/**
+	 * Falls back to the span listener of the application context when none was set,
+	 * so that an interceptor declared as a bean of its own still reports to it.
+	 */
+	@Autowired(required = false)
+	public void setContextSpanListener(CompositeSpanListener spanListener) {
+		if (this.spanListener == null) {
+			this.spanListener = spanListener;
+		}
 	}
 
 	@Override
@@ -65,31 +79,27 @@ ApplicationEventPublisherAware {
 			setHeader(request, Trace.NOT_SAMPLED_NAME, "");
 			return execution.execute(request, body);
 		}
-		setHeader(request, Trace.TRACE_ID_NAME, span.getTraceId());
-		setHeader(request, Trace.SPAN_ID_NAME, span.getSpanId());
+		setHeader(request, Trace.TRACE_ID_NAME, Span.IdConverter.traceIdHex(span));
+		setHeader(request, Trace.SPAN_ID_NAME, Span.IdConverter.spanIdHex(span));
 		setHeader(request, Trace.SPAN_NAME_NAME, span.getName());
 		setHeader(request, Trace.PARENT_ID_NAME, getParentId(span));
 		setHeader(request, Trace.PROCESS_ID_NAME, span.getProcessId());
-		publish(new ClientSentEvent(this, span));
+		if (this.spanListener != null) {
+			this.spanListener.clientSent(span);
+		}
 		return new TraceHttpResponse(this, execution.execute(request, body));
 	}
 
 	public void close() {
-		if (getCurrentSpan() == null) {
+		Span span = getCurrentSpan();
+		if (span == null || this.spanListener == null) {
 			return;
 		}
-		publish(new ClientReceivedEvent(this, getCurrentSpan()));
-	}
-
-	private void publish(ApplicationEvent event) {
-		if (this.publisher != null) {
-			this.publisher.publishEvent(event);
-		}
+		this.spanListener.clientReceived(span);
 	}
 
 	private Long getParentId(Span span) {
-		return !span.getParents().isEmpty() ? span
-				.getParents().get(0) : null;
+		return SpanParents.hasParent(span) ? SpanParents.parentId(span) : null;
 	}
 
 	public void setHeader(HttpRequest request, String name, String value) {
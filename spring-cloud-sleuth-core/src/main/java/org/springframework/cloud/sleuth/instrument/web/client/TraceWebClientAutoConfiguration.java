@@ -30,6 +30,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.sleuth.TraceAccessor;
 import org.springframework.cloud.sleuth.autoconfig.TraceAutoConfiguration;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
@@ -47,8 +48,9 @@ public class TraceWebClientAutoConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public TraceRestTemplateInterceptor traceRestTemplateInterceptor(TraceAccessor accessor) {
-		return new TraceRestTemplateInterceptor(accessor);
+	public TraceRestTemplateInterceptor traceRestTemplateInterceptor(TraceAccessor accessor,
+			CompositeSpanListener spanListener) {
+		return new TraceRestTemplateInterceptor(accessor, spanListener);
 	}
 
 	@Bean
@@ -16,12 +16,11 @@
 
 package org.springframework.cloud.sleuth.instrument.zuul;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.sleuth.Span;
 import org.springframework.cloud.sleuth.TraceAccessor;
-import org.springframework.cloud.sleuth.event.ClientReceivedEvent;
-import org.springframework.context.ApplicationEvent;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
+import org.springframework.cloud.sleuth.event.SpanListener;
 
 import com.netflix.zuul.ZuulFilter;
 
@@ -29,20 +28,34 @@ import com.netflix.zuul.ZuulFilter;
  * @author Dave Syer
  *
  */
-public class TracePostZuulFilter extends ZuulFilter
-		implements ApplicationEventPublisherAware {
+public class TracePostZuulFilter extends ZuulFilter {
 
-	private ApplicationEventPublisher publisher;
+	private SpanListener spanListener;
 
 	private final TraceAccessor accessor;
 
 	public TracePostZuulFilter(TraceAccessor accessor) {
+		this(accessor, null);
+	}
+
+	public TracePostZuulFilter(TraceAccessor accessor, SpanListener spanListener) {
 		this.accessor = accessor;
+		this.spanListener = spanListener;
 	}
 
-	@Override
-	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
-		this.publisher = publisher;
+	public void setSpanListener(SpanListener spanListener) {
+		this.spanListener = spanListener;
+	}
+
+	/**
+	 * Falls back to the span listener of the application context when none was set,
+	 * so that a filter declared as a bean of its own still reports to it.
+	 */
+	@Autowired(required = false)
+	public void setContextSpanListener(CompositeSpanListener spanListener) {
+		if (this.spanListener == null) {
+			this.spanListener = spanListener;
+		}
 	}
 
 	@Override
@@ -53,7 +66,9 @@ public class TracePostZuulFilter extends ZuulFilter
 	@Override
 	public Object run() {
 		// TODO: the client sent event should come from the client not the filter!
-		publish(new ClientReceivedEvent(this, getCurrentSpan()));
+		if (this.spanListener != null) {
+			this.spanListener.clientReceived(getCurrentSpan());
+		}
 		return null;
 	}
 
@@ -67,12 +82,6 @@ public class TracePostZuulFilter extends ZuulFilter
 		return 0;
 	}
 
-	private void publish(ApplicationEvent event) {
-		if (this.publisher != null) {
-			this.publisher.publishEvent(event);
-		}
-	}
-
 	private Span getCurrentSpan() {
 		return this.accessor.getCurrentSpan();
 	}
@@ -18,13 +18,13 @@ package org.springframework.cloud.sleuth.instrument.zuul;
 
 import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanParents;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.TraceAccessor;
-import org.springframework.cloud.sleuth.event.ClientSentEvent;
-import org.springframework.context.ApplicationEvent;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
+import org.springframework.cloud.sleuth.event.SpanListener;
 import org.springframework.util.ReflectionUtils;
 
 import java.util.Map;
@@ -33,20 +33,34 @@ import java.util.Map;
  * @author Dave Syer
  *
  */
-public class TracePreZuulFilter extends ZuulFilter implements
-ApplicationEventPublisherAware {
+public class TracePreZuulFilter extends ZuulFilter {
 
-	private ApplicationEventPublisher publisher;
+	private SpanListener spanListener;
 
 	private final TraceAccessor accessor;
 
 	public TracePreZuulFilter(TraceAccessor accessor) {
+		this(accessor, null);
+	}
+
+	public TracePreZuulFilter(TraceAccessor accessor, SpanListener spanListener) {
 		this.accessor = accessor;
+		this.spanListener = spanListener;
 	}
 
-	@Override
-	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
-		this.publisher = publisher;
+	public void setSpanListener(SpanListener spanListener) {
+		this.spanListener = spanListener;
+	}
+
+	/**
+	 * Falls back to the span listener of the application context when none was set,
+	 * so that a filter declared as a bean of its own still reports to it.
+	 */
+	@Autowired(required = false)
+	public void setContextSpanListener(CompositeSpanListener spanListener) {
+		if (this.spanListener == null) {
+			this.spanListener = spanListener;
+		}
 	}
 
 	@Override
@@ -65,13 +79,15 @@ ApplicationEventPublisherAware {
 			return null;
 		}
 		try {
-			setHeader(response, Trace.SPAN_ID_NAME, span.getSpanId());
-			setHeader(response, Trace.TRACE_ID_NAME, span.getTraceId());
+			setHeader(response, Trace.SPAN_ID_NAME, Span.IdConverter.spanIdHex(span));
+			setHeader(response, Trace.TRACE_ID_NAME, Span.IdConverter.traceIdHex(span));
 			setHeader(response, Trace.SPAN_NAME_NAME, span.getName());
 			setHeader(response, Trace.PARENT_ID_NAME, getParentId(span));
 			setHeader(response, Trace.PROCESS_ID_NAME, span.getProcessId());
 			// TODO: the client sent event should come from the client not the filter!
-			publish(new ClientSentEvent(this, span));
+			if (this.spanListener != null) {
+				this.spanListener.clientSent(span);
+			}
 		}
 		catch (Exception ex) {
 			ReflectionUtils.rethrowRuntimeException(ex);
@@ -84,8 +100,7 @@ ApplicationEventPublisherAware {
 	}
 
 	private Long getParentId(Span span) {
-		return !span.getParents().isEmpty() ? span
-				.getParents().get(0) : null;
+		return SpanParents.hasParent(span) ? SpanParents.parentId(span) : null;
 	}
 
 	public void setHeader(Map<String, String> request, String name, String value) {
@@ -107,10 +122,4 @@ ApplicationEventPublisherAware {
 		return 0;
 	}
 
-	private void publish(ApplicationEvent event) {
-		if (this.publisher != null) {
-			this.publisher.publishEvent(event);
-		}
-	}
-
 }
@@ -19,17 +19,17 @@ package org.springframework.cloud.sleuth.instrument.zuul;
 import com.netflix.client.http.HttpRequest;
 import com.netflix.niws.client.http.RestClient;
 import lombok.SneakyThrows;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
 import org.springframework.cloud.netflix.zuul.filters.route.RestClientRibbonCommand;
 import org.springframework.cloud.netflix.zuul.filters.route.RestClientRibbonCommandFactory;
 import org.springframework.cloud.netflix.zuul.filters.route.RibbonCommandContext;
 import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanParents;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.TraceAccessor;
-import org.springframework.cloud.sleuth.event.ClientSentEvent;
-import org.springframework.context.ApplicationEvent;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
+import org.springframework.cloud.sleuth.event.SpanListener;
 import org.springframework.util.MultiValueMap;
 
 import java.io.InputStream;
@@ -38,22 +38,37 @@ import java.net.URISyntaxException;
 /**
  * @author Spencer Gibb
  */
-public class TraceRestClientRibbonCommandFactory extends RestClientRibbonCommandFactory
-		implements ApplicationEventPublisherAware {
+public class TraceRestClientRibbonCommandFactory extends RestClientRibbonCommandFactory {
 
-	private ApplicationEventPublisher publisher;
+	private SpanListener spanListener;
 
 	private final TraceAccessor accessor;
 
 	public TraceRestClientRibbonCommandFactory(SpringClientFactory clientFactory,
 			TraceAccessor accessor) {
+		this(clientFactory, accessor, null);
+	}
+
+	public TraceRestClientRibbonCommandFactory(SpringClientFactory clientFactory,
+			TraceAccessor accessor, SpanListener spanListener) {
 		super(clientFactory);
 		this.accessor = accessor;
+		this.spanListener = spanListener;
 	}
 
-	@Override
-	public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
-		this.publisher = publisher;
+	public void setSpanListener(SpanListener spanListener) {
+		this.spanListener = spanListener;
+	}
+
+	/**
+	 * Falls back to the span listener of the application context when none was set,
+	 * so that a command factory declared as a bean of its own still reports to it.
+	 */
+	@Autowired(required = false)
+	public void setContextSpanListener(CompositeSpanListener spanListener) {
+		if (this.spanListener == null) {
+			this.spanListener = spanListener;
+		}
 	}
 
 	@Override
@@ -65,12 +80,12 @@ public class TraceRestClientRibbonCommandFactory extends RestClientRibbonCommand
 		return new TraceRestClientRibbonCommand(context.getServiceId(), restClient,
 				getVerb(context.getVerb()), context.getUri(), context.getRetryable(),
 				context.getHeaders(), context.getParams(), context.getRequestEntity(),
-				this.publisher, this.accessor);
+				this.spanListener, this.accessor);
 	}
 
 	class TraceRestClientRibbonCommand extends RestClientRibbonCommand {
 
-		private ApplicationEventPublisher publisher;
+		private SpanListener spanListener;
 
 		private final TraceAccessor accessor;
 
@@ -79,11 +94,11 @@ public class TraceRestClientRibbonCommandFactory extends RestClientRibbonCommand
 				HttpRequest.Verb verb, String uri, Boolean retryable,
 				MultiValueMap<String, String> headers,
 				MultiValueMap<String, String> params, InputStream requestEntity,
-				ApplicationEventPublisher publisher, TraceAccessor accessor)
+				SpanListener spanListener, TraceAccessor accessor)
 						throws URISyntaxException {
 			super(commandKey, restClient, verb, uri, retryable, headers, params,
 					requestEntity);
-			this.publisher = publisher;
+			this.spanListener = spanListener;
 			this.accessor = accessor;
 		}
 
@@ -94,25 +109,20 @@ public class TraceRestClientRibbonCommandFactory extends RestClientRibbonCommand
 				setHeader(requestBuilder, Trace.NOT_SAMPLED_NAME, "");
 				return;
 			}
-			setHeader(requestBuilder, Trace.TRACE_ID_NAME, span.getTraceId());
-			setHeader(requestBuilder, Trace.SPAN_ID_NAME, span.getSpanId());
+			setHeader(requestBuilder, Trace.TRACE_ID_NAME, Span.IdConverter.traceIdHex(span));
+			setHeader(requestBuilder, Trace.SPAN_ID_NAME, Span.IdConverter.spanIdHex(span));
 			setHeader(requestBuilder, Trace.SPAN_NAME_NAME, span.getName());
 			setHeader(requestBuilder, Trace.PARENT_ID_NAME,
 					getParentId(span));
 			setHeader(requestBuilder, Trace.PROCESS_ID_NAME,
 					span.getProcessId());
-			publish(new ClientSentEvent(this, span));
-		}
-
-		private void publish(ApplicationEvent event) {
-			if (this.publisher != null) {
-				this.publisher.publishEvent(event);
+			if (this.spanListener != null) {
+				this.spanListener.clientSent(span);
 			}
 		}
 
 		private Long getParentId(Span span) {
-			return !span.getParents().isEmpty()
-					? span.getParents().get(0) : null;
+			return SpanParents.hasParent(span) ? SpanParents.parentId(span) : null;
 		}
 
 		public void setHeader(HttpRequest.Builder builder, String name, String value) {
@@ -25,6 +25,7 @@ import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
 import org.springframework.cloud.sleuth.TraceAccessor;
 import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.cloud.sleuth.autoconfig.TraceAutoConfiguration;
+import org.springframework.cloud.sleuth.event.CompositeSpanListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -45,19 +46,22 @@ public class TraceZuulAutoConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public TracePreZuulFilter tracePreZuulFilter(TraceAccessor accessor) {
-		return new TracePreZuulFilter(accessor);
+	public TracePreZuulFilter tracePreZuulFilter(TraceAccessor accessor,
+			CompositeSpanListener spanListener) {
+		return new TracePreZuulFilter(accessor, spanListener);
 	}
 
 	@Bean
-	public TraceRestClientRibbonCommandFactory traceRestClientRibbonCommandFactory(SpringClientFactory factory, TraceAccessor accessor) {
-		return new TraceRestClientRibbonCommandFactory(factory, accessor);
+	public TraceRestClientRibbonCommandFactory traceRestClientRibbonCommandFactory(SpringClientFactory factory, TraceAccessor accessor,
+			CompositeSpanListener spanListener) {
+		return new TraceRestClientRibbonCommandFactory(factory, accessor, spanListener);
 	}
 
 	@Bean
 	@ConditionalOnMissingBean
-	public TracePostZuulFilter tracePostZuulFilter(TraceAccessor accessor) {
-		return new TracePostZuulFilter(accessor);
+	public TracePostZuulFilter tracePostZuulFilter(TraceAccessor accessor,
+			CompositeSpanListener spanListener) {
+		return new TracePostZuulFilter(accessor, spanListener);
 	}
 
 }
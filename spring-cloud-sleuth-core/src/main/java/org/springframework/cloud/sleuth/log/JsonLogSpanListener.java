@@ -20,8 +20,9 @@ import lombok.Data;
 import lombok.SneakyThrows;
 import lombok.extern.apachecommons.CommonsLog;
 
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.event.SpanListenerAdapter;
 import org.springframework.cloud.sleuth.event.SpanReleasedEvent;
-import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 
@@ -33,7 +34,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 @CommonsLog
 @Data
-public class JsonLogSpanListener {
+@Order(Ordered.LOWEST_PRECEDENCE-10)
+public class JsonLogSpanListener extends SpanListenerAdapter {
 
 	private final String prefix;
 	private final String suffix;
@@ -45,12 +47,19 @@ public class JsonLogSpanListener {
 		this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 	}
 
+	@Override
 	@SneakyThrows
-	@EventListener(SpanReleasedEvent.class)
-	@Order(Ordered.LOWEST_PRECEDENCE-10)
-	public void stop(SpanReleasedEvent event) {
-		log.info(this.prefix + this.objectMapper.writeValueAsString(event.getSpan()) +
+	public void spanReleased(Span parent, Span span) {
+		log.info(this.prefix + this.objectMapper.writeValueAsString(span) +
 				this.suffix);
 	}
 
+	/**
+	 * @deprecated use {@link #spanReleased(Span, Span)}
+	 */
+	@Deprecated
+	public void stop(SpanReleasedEvent event) {
+		spanReleased(event.getParent(), event.getSpan());
+	}
+
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.sampler;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.cloud.sleuth.export.SpanQueueStatus;
+import org.springframework.util.Assert;
+
+/**
+ * {@link RateLimitingSampler} whose rate follows the load on the export pipeline. Once a
+ * second it looks at the queues spans wait in before being exported:
+ *
+ * <ul>
+ * <li>if spans were dropped or a queue is at least 80% full, the rate is halved (down to
+ * one trace per second, so there are still traces to look at during an incident)</li>
+ * <li>if every queue is less than half full, the rate grows by a tenth of the budget</li>
+ * </ul>
+ *
+ * The rate never goes over the span budget divided by the number of spans a trace
+ * produces, as measured from the spans the queues accepted. That count includes spans of
+ * traces started upstream, which aren't sampled here but still use the budget.
+ *
+ * Pass one queue per export pipeline (e.g. the Zipkin reporter, or the queue of the
+ * stream listener) so that spans are not counted twice.
+ */
+public class AdaptiveSampler extends RateLimitingSampler {
+
+	static final float HIGH_WATERMARK = 0.8f;
+	static final float LOW_WATERMARK = 0.5f;
+
+	private final int spansPerSecond;
+	private final List<SpanQueueStatus> queues;
+	private volatile int limit;
+	private float spansPerTrace = 1f;
+	private long acceptedSpans;
+	private long droppedSpans;
+
+	/**
+	 * @param configuration the budget is read once, when the sampler is created
+	 */
+	public AdaptiveSampler(SamplerConfiguration configuration,
+			List<? extends SpanQueueStatus> queues) {
+		this(configuration.getSpansPerSecond(), queues);
+	}
+
+	public AdaptiveSampler(int spansPerSecond, SpanQueueStatus... queues) {
+		this(spansPerSecond, Arrays.asList(queues));
+	}
+
+	public AdaptiveSampler(int spansPerSecond, List<? extends SpanQueueStatus> queues) {
+		// a trace has at least one span, so the budget bounds the traces too
+		super(spansPerSecond);
+		Assert.notNull(queues, "queues can not be null");
+		this.spansPerSecond = spansPerSecond;
+		this.queues = Arrays.asList(queues.toArray(new SpanQueueStatus[queues.size()]));
+		// starts low and ramps up, rather than flooding the pipeline before the first check
+		this.limit = spansPerSecond == 0 ? 0 : Math.max(1, spansPerSecond / 10);
+		for (SpanQueueStatus queue : this.queues) {
+			this.acceptedSpans += queue.getAcceptedSpans();
+			this.droppedSpans += queue.getDroppedSpans();
+		}
+	}
+
+	@Override
+	int limit() {
+		return this.limit;
+	}
+
+	@Override
+	synchronized void secondStarted(long elapsedSeconds, int sampled) {
+		if (this.spansPerSecond == 0) {
+			return;
+		}
+		long accepted = 0;
+		long dropped = 0;
+		float load = 0;
+		for (SpanQueueStatus queue : this.queues) {
+			accepted += queue.getAcceptedSpans();
+			dropped += queue.getDroppedSpans();
+			load = Math.max(load,
+					(float) queue.getQueuedSpans() / Math.max(1, queue.getQueueCapacity()));
+		}
+		long acceptedSinceLast = accepted - this.acceptedSpans;
+		long droppedSinceLast = dropped - this.droppedSpans;
+		this.acceptedSpans = accepted;
+		this.droppedSpans = dropped;
+
+		// only a second right after the last one says how many spans a trace produces
+		if (elapsedSeconds == 1 && sampled > 0 && acceptedSinceLast > 0) {
+			this.spansPerTrace = Math.max(1f, (float) acceptedSinceLast / sampled);
+		}
+		int budget = Math.max(1, (int) (this.spansPerSecond / this.spansPerTrace));
+		int limit = this.limit;
+		if (droppedSinceLast > 0 || load >= HIGH_WATERMARK) {
+			limit = Math.max(1, limit / 2);
+		}
+		else if (load < LOW_WATERMARK) {
+			limit += Math.max(1, budget / 10);
+		}
+		this.limit = Math.min(limit, budget);
+	}
+
+	/**
+	 * @return the number of traces that can currently be sampled per second
+	 */
+	public int getCurrentTracesPerSecond() {
+		return this.limit;
+	}
+
+}
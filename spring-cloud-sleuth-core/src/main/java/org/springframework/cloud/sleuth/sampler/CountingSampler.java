@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.sampler;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.cloud.sleuth.Sampler;
+import org.springframework.util.Assert;
+
+/**
+ * Sampler that samples exactly the given percentage of every 100 decisions, or of every
+ * 10000 when the percentage has finer precision than 1%. The decisions of a window are
+ * computed up front and shuffled, so sampled traces are spread across the window rather
+ * than bunched at its start. Deciding is a read of a {@link BitSet} and an update of an
+ * {@link AtomicInteger}: it doesn't lock or allocate.
+ *
+ * Unlike the {@link PercentageBasedSampler} the decision doesn't depend on the trace id,
+ * so it isn't consistent across processes. Use it where traces start.
+ */
+public class CountingSampler implements Sampler<Void> {
+
+	private final AtomicInteger counter = new AtomicInteger();
+	private final BitSet sampleDecisions;
+	private final int windowSize;
+
+	/**
+	 * @param configuration the percentage is read once, when the sampler is created
+	 */
+	public CountingSampler(SamplerConfiguration configuration) {
+		this(configuration.getPercentage());
+	}
+
+	/**
+	 * @param percentage from 0.0 to 1.0, rounded to 0.0001
+	 */
+	public CountingSampler(float percentage) {
+		this(percentage, new Random());
+	}
+
+	CountingSampler(float percentage, Random random) {
+		Assert.isTrue(percentage >= 0 && percentage <= 1,
+				"percentage must be between 0.0 and 1.0");
+		int outOf10000 = Math.round(percentage * 10000);
+		if (outOf10000 % 100 == 0) {
+			this.windowSize = 100;
+			this.sampleDecisions = randomBitSet(100, outOf10000 / 100, random);
+		}
+		else {
+			this.windowSize = 10000;
+			this.sampleDecisions = randomBitSet(10000, outOf10000, random);
+		}
+	}
+
+	@Override
+	public boolean next() {
+		return this.sampleDecisions.get(nextIndex());
+	}
+
+	private int nextIndex() {
+		for (;;) {
+			int current = this.counter.get();
+			int next = current + 1 == this.windowSize ? 0 : current + 1;
+			if (this.counter.compareAndSet(current, next)) {
+				return current;
+			}
+		}
+	}
+
+	/**
+	 * Sets {@code cardinality} bits out of {@code size}, picked with a partial
+	 * Fisher-Yates shuffle of the indexes.
+	 */
+	static BitSet randomBitSet(int size, int cardinality, Random random) {
+		int[] indexes = new int[size];
+		for (int i = 0; i < size; i++) {
+			indexes[i] = i;
+		}
+		BitSet result = new BitSet(size);
+		for (int i = 0; i < cardinality; i++) {
+			int chosen = i + random.nextInt(size - i);
+			result.set(indexes[chosen]);
+			indexes[chosen] = indexes[i];
+		}
+		return result;
+	}
+
+}
@@ -1,5 +1,7 @@
 package org.springframework.cloud.sleuth.sampler;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 import org.springframework.cloud.sleuth.Sampler;
 import org.springframework.cloud.sleuth.Span;
 import org.springframework.cloud.sleuth.TraceAccessor;
@@ -11,11 +13,17 @@ import org.springframework.cloud.sleuth.TraceAccessor;
  *
  * <ul>
  *     <li>We're taking the TraceID into consideration for sampling to be consistent</li>
- *     <li>We apply the Zipkin algorithm to define whether we should sample or not (we're comparing against thresholdg) - https://github.com/openzipkin/zipkin-java/blob/master/zipkin/src/main/java/zipkin/Sampler.java</li>
+ *     <li>We apply the Zipkin algorithm to define whether we should sample or not (we're comparing against threshold) - https://github.com/openzipkin/zipkin-java/blob/master/zipkin/src/main/java/zipkin/Sampler.java</li>
  * </ul>
  *
+ * The 63 low bits of the trace id are compared with the percentage of
+ * {@link Long#MAX_VALUE}, so any rate down to 0.01% (and below) is honoured. When no
+ * span is current, which is the case when the tracer starts a new trace, a random id
+ * stands in for the trace id that is about to be generated.
+ *
  * The value provided from SamplerConfiguration in terms of percentage is an estimation. It might occur that amount
- * of data sampled differs from the provided percentage.
+ * of data sampled differs from the provided percentage. Use the {@link CountingSampler}
+ * when the rate has to be exact.
  *
  * @author Marcin Grzejszczak
  * @author Adrian Cole
@@ -32,14 +40,18 @@ public class PercentageBasedSampler implements Sampler<Void> {
 
 	@Override
 	public boolean next() {
-		Span currentSpan = this.traceAccessor.getCurrentSpan();
-		long threshold = Math.abs(Long.MAX_VALUE * (int) (this.configuration.getPercentage() * 100)); // drops fractional percentage.
-		if (currentSpan == null || threshold == 0L) {
+		float percentage = this.configuration.getPercentage();
+		if (percentage <= 0) {
 			return false;
 		}
-		long traceId = currentSpan.getTraceId();
-		Long mod = Math.abs(traceId % 100);
-		return mod.compareTo(threshold) <= 0;
+		if (percentage >= 1) {
+			return true;
+		}
+		Span currentSpan = this.traceAccessor.getCurrentSpan();
+		long traceId = currentSpan != null ? currentSpan.getTraceId()
+				: ThreadLocalRandom.current().nextLong();
+		long threshold = (long) (Long.MAX_VALUE * (double) percentage);
+		return (traceId & Long.MAX_VALUE) < threshold;
 	}
 
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.sampler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cloud.sleuth.Sampler;
+import org.springframework.util.Assert;
+
+/**
+ * Sampler that samples at most a given number of new traces per second, however much
+ * traffic there is, so that the volume sent to the collector stays bounded at peak while
+ * quiet periods still produce traces.
+ *
+ * The current second and the number of traces sampled in it share an {@link AtomicLong},
+ * so a decision is a read and at most one compare-and-set. Once the limit is reached,
+ * requests are rejected without writing anything, which keeps contention low when many
+ * threads ask at once. The budget isn't spread within a second: a burst can use it up
+ * at the start of the second.
+ */
+public class RateLimitingSampler implements Sampler<Void> {
+
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final int tracesPerSecond;
+	// second in the high 32 bits, traces sampled during it in the low 32
+	private final AtomicLong state = new AtomicLong();
+	private final long origin = nanoTime();
+
+	/**
+	 * @param configuration the rate is read once, when the sampler is created
+	 */
+	public RateLimitingSampler(SamplerConfiguration configuration) {
+		this(configuration.getTracesPerSecond());
+	}
+
+	public RateLimitingSampler(int tracesPerSecond) {
+		Assert.isTrue(tracesPerSecond >= 0, "tracesPerSecond can not be negative");
+		this.tracesPerSecond = tracesPerSecond;
+	}
+
+	@Override
+	public boolean next() {
+		long second = (nanoTime() - this.origin) / NANOS_PER_SECOND;
+		for (;;) {
+			long current = this.state.get();
+			long currentSecond = current >>> 32;
+			if (currentSecond != second) {
+				if (currentSecond > second) {
+					// another thread read the clock later and already moved on
+					return false;
+				}
+				if (this.state.compareAndSet(current, second << 32)) {
+					secondStarted(second - currentSecond, (int) current);
+				}
+				continue;
+			}
+			if ((int) current >= limit()) {
+				return false;
+			}
+			if (this.state.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of traces that can be sampled in the current second
+	 */
+	int limit() {
+		return this.tracesPerSecond;
+	}
+
+	/**
+	 * Called by the one thread that moves the sampler to a new second, before it decides.
+	 *
+	 * @param elapsedSeconds seconds since the last second a decision was made in
+	 * @param sampled traces sampled during that last second
+	 */
+	void secondStarted(long elapsedSeconds, int sampled) {
+	}
+
+	public int getTracesPerSecond() {
+		return this.tracesPerSecond;
+	}
+
+	// Visible for testing
+	long nanoTime() {
+		return System.nanoTime();
+	}
+
+}
@@ -21,7 +21,24 @@ public class SamplerConfiguration {
 	 * <li> 0.0 - 0% requests should be sampled </li>
 	 * </ul>
 	 *
-	 * The precision is whole-numbers only. We don't support 0.1% of the trace rate.
+	 * The precision is 0.0001, or 0.01% of the requests.
 	 */
 	private float percentage = 0.1f;
+
+	/**
+	 * Maximum number of new traces a {@link RateLimitingSampler} samples per second.
+	 */
+	private int tracesPerSecond = 10;
+
+	/**
+	 * Number of spans per second an {@link AdaptiveSampler} aims to export from this
+	 * instance, when the export pipeline keeps up.
+	 */
+	private int spansPerSecond = 1000;
+
+	/**
+	 * Whether to sample with an {@link AdaptiveSampler} that watches the export queues,
+	 * unless another sampler bean is defined.
+	 */
+	private boolean adaptive = false;
 }
@@ -18,17 +18,20 @@ package org.springframework.cloud.sleuth.trace;
 
 import static org.springframework.cloud.sleuth.util.ExceptionUtils.warn;
 
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 
 import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.NonExportableSpan;
 import org.springframework.cloud.sleuth.Sampler;
 import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanLimits;
+import org.springframework.cloud.sleuth.SpanParents;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.Tracer;
-import org.springframework.cloud.sleuth.event.SpanAcquiredEvent;
-import org.springframework.cloud.sleuth.event.SpanContinuedEvent;
-import org.springframework.cloud.sleuth.event.SpanReleasedEvent;
+import org.springframework.cloud.sleuth.event.ApplicationEventSpanListener;
+import org.springframework.cloud.sleuth.event.SpanListener;
 import org.springframework.cloud.sleuth.instrument.TraceCallable;
 import org.springframework.cloud.sleuth.instrument.TraceRunnable;
 import org.springframework.cloud.sleuth.util.ExceptionUtils;
@@ -41,15 +44,35 @@ public class DefaultTracer implements Tracer {
 
 	private final Sampler<Void> defaultSampler;
 
-	private final ApplicationEventPublisher publisher;
+	private final SpanListener spanListener;
 
 	private final Random random;
 
+	private final SpanLimits limits;
+
 	public DefaultTracer(Sampler<Void> defaultSampler,
-						 Random random, ApplicationEventPublisher publisher) {
+						 Random random, SpanListener spanListener) {
+		this(defaultSampler, random, spanListener, new SpanLimits());
+	}
+
+	/**
+	 * Creates a tracer whose spans enforce the given limits on their tags and logs.
+	 */
+	public DefaultTracer(Sampler<Void> defaultSampler,
+						 Random random, SpanListener spanListener, SpanLimits limits) {
 		this.defaultSampler = defaultSampler;
 		this.random = random;
-		this.publisher = publisher;
+		this.spanListener = spanListener;
+		this.limits = limits;
+	}
+
+	/**
+	 * Creates a tracer that notifies about the span lifecycle by publishing the legacy
+	 * {@link org.springframework.context.ApplicationEvent ApplicationEvents}.
+	 */
+	public DefaultTracer(Sampler<Void> defaultSampler,
+						 Random random, ApplicationEventPublisher publisher) {
+		this(defaultSampler, random, new ApplicationEventSpanListener(publisher));
 	}
 
 	@Override
@@ -78,11 +101,11 @@ public class DefaultTracer implements Tracer {
 			span = createChild(getCurrentSpan(), name);
 		}
 		else {
-			// Non-exportable so we keep the trace but not other data
+			// Non-exportable so we keep the trace but not other data. Nothing will ever
+			// be reported for it so there is no need to announce its acquisition
+			// either (continuing it below still lets the logging context pick it up).
 			long id = createId();
-			span = MilliSpan.builder().begin(System.currentTimeMillis()).name(name)
-					.traceId(id).spanId(id).exportable(false).build();
-			this.publisher.publishEvent(new SpanAcquiredEvent(this, span));
+			span = new NonExportableSpan(System.currentTimeMillis(), name, id, id);
 		}
 		return continueSpan(span);
 	}
@@ -129,14 +152,13 @@ public class DefaultTracer implements Tracer {
 			if (span != null) {
 				span.stop();
 				if (savedTrace != null
-						&& span.getParents().contains(savedTrace.getSpan().getSpanId())) {
-					this.publisher.publishEvent(
-							new SpanReleasedEvent(this, savedTrace.getSpan(), span));
+						&& isChildOf(span, savedTrace.getSpan())) {
+					this.spanListener.spanReleased(savedTrace.getSpan(), span);
 					TraceContextHolder.setCurrentTrace(savedTrace);
 				}
 				else {
 					if (!span.isRemote()) {
-						this.publisher.publishEvent(new SpanReleasedEvent(this, span));
+						this.spanListener.spanReleased(null, span);
 					}
 					TraceContextHolder.removeCurrentTrace();
 				}
@@ -152,8 +174,8 @@ public class DefaultTracer implements Tracer {
 		long id = createId();
 		if (parent == null) {
 			MilliSpan span = MilliSpan.builder().begin(System.currentTimeMillis())
-					.name(name).traceId(id).spanId(id).build();
-			this.publisher.publishEvent(new SpanAcquiredEvent(this, span));
+					.name(name).traceId(id).spanId(id).limits(this.limits).build();
+			this.spanListener.spanAcquired(null, span);
 			return span;
 		}
 		else {
@@ -163,12 +185,25 @@ public class DefaultTracer implements Tracer {
 			}
 			MilliSpan span = MilliSpan.builder().begin(System.currentTimeMillis())
 					.name(name).traceId(parent.getTraceId()).parent(parent.getSpanId())
-					.spanId(id).processId(parent.getProcessId()).build();
-			this.publisher.publishEvent(new SpanAcquiredEvent(this, parent, span));
+					.spanId(id).processId(parent.getProcessId()).limits(this.limits)
+					.build();
+			this.spanListener.spanAcquired(parent, span);
 			return span;
 		}
 	}
 
+	private boolean isChildOf(Span span, Span parent) {
+		if (!SpanParents.hasParent(span)) {
+			return false;
+		}
+		if (SpanParents.parentId(span) == parent.getSpanId()) {
+			return true;
+		}
+		// only boxes the ids for the rare span with more than one parent
+		List<Long> parents = span.getParents();
+		return parents.size() > 1 && parents.contains(parent.getSpanId());
+	}
+
 	private long createId() {
 		return random.nextLong();
 	}
@@ -176,7 +211,7 @@ public class DefaultTracer implements Tracer {
 	@Override
 	public Trace continueSpan(Span span) {
 		if (span != null) {
-			this.publisher.publishEvent(new SpanContinuedEvent(this, span));
+			this.spanListener.spanContinued(span);
 		}
 		Trace trace = createTrace(TraceContextHolder.getCurrentTrace(), span);
 		TraceContextHolder.setCurrentTrace(trace);
@@ -38,6 +38,7 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -99,6 +100,22 @@ public class DefaultTraceManagerTests {
 		assertThat("gen4 was non-empty", gen4.isEmpty(), is(true));
 	}
 
+	@Test
+	public void unsampledTraceIsNotExportableAndNotAcquired() {
+		ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+
+		DefaultTracer traceManager = new DefaultTracer(new IsTracingSampler(), new Random(), publisher);
+
+		Trace trace = traceManager.startTrace(CREATE_SIMPLE_TRACE);
+		traceManager.close(trace);
+
+		assertThat(trace.getSpan().isExportable(), is(false));
+		assertThat(trace.getSpan().getTraceId(), is(trace.getSpan().getSpanId()));
+		assertThat(trace.getSpan().getName(), is(CREATE_SIMPLE_TRACE));
+		verify(publisher, never()).publishEvent(isA(SpanAcquiredEvent.class));
+		verify(publisher, times(1)).publishEvent(isA(SpanReleasedEvent.class));
+	}
+
 	private Span assertSpan(List<Span> spans, Long parentId, String name) {
 		List<Span> found = findSpans(spans, parentId);
 		assertThat("more than one span with parentId " + parentId, found.size(), is(1));
@@ -18,7 +18,19 @@ package org.springframework.cloud.sleuth;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.BDDAssertions.then;
 
 /**
  * @author Rob Winch
@@ -40,4 +52,188 @@ public class MilliSpanTests {
 
 		span.logs().add(new Log(1, "1"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void hexIdsAreComputedOnce() {
+		MilliSpan span = MilliSpan.builder().traceId(0xa3ac35c9f6413ad4L).spanId(123123L).build();
+
+		then(span.traceIdHex()).isEqualTo("a3ac35c9f6413ad4").isSameAs(span.traceIdHex());
+		then(span.spanIdHex()).isEqualTo("1e0f3").isSameAs(span.spanIdHex());
+	}
+
+	@Test
+	public void hexIdsDontAffectEquality() {
+		MilliSpan span = new MilliSpan(1, 2, "name", 1L, Collections.<Long>emptyList(), 2L, true, true, "process");
+		MilliSpan other = new MilliSpan(1, 2, "name", 1L, Collections.<Long>emptyList(), 2L, true, true, "process");
+
+		span.traceIdHex();
+
+		then(span).isEqualTo(other);
+		then(span.hashCode()).isEqualTo(other.hashCode());
+		then(span.toString()).isEqualTo(other.toString());
+	}
+
+	@Test
+	public void rootSpanHasNoParent() {
+		MilliSpan span = MilliSpan.builder().traceId(1L).spanId(1L).build();
+
+		then(span.hasParent()).isFalse();
+		then(span.getParents()).isEmpty();
+	}
+
+	@Test
+	public void parentIsKeptAsPrimitive() {
+		MilliSpan span = MilliSpan.builder().traceId(1L).parent(3L).spanId(2L).build();
+
+		then(span.hasParent()).isTrue();
+		then(span.parentId()).isEqualTo(3L);
+		then(span.getParents()).containsExactly(3L).isSameAs(span.getParents());
+	}
+
+	@Test
+	public void keepsEveryParent() {
+		MilliSpan span = MilliSpan.builder().traceId(1L).parents(Arrays.asList(3L, 4L))
+				.spanId(2L).build();
+
+		then(span.parentId()).isEqualTo(3L);
+		then(span.getParents()).containsExactly(3L, 4L);
+		then(span.toBuilder().build().getParents()).containsExactly(3L, 4L);
+	}
+
+	@Test
+	public void parentsViewDoesntAffectEquality() {
+		MilliSpan span = new MilliSpan(1, 2, "name", 1L, Collections.singletonList(3L), 2L, true, true, "process");
+		MilliSpan other = new MilliSpan(1, 2, "name", 1L, Collections.singletonList(3L), 2L, true, true, "process");
+
+		span.getParents();
+
+		then(span).isEqualTo(other);
+		then(span.hashCode()).isEqualTo(other.hashCode());
+		then(span.toString()).isEqualTo(other.toString());
+	}
+
+	@Test
+	public void keepsTagsAndLogsAddedConcurrently() throws Exception {
+		MilliSpan span = MilliSpan.builder().traceId(1L).spanId(1L).build();
+
+		runConcurrently(8, () -> {
+			String thread = Thread.currentThread().getName();
+			for (int i = 0; i < 200; i++) {
+				span.tag(thread + "/" + i, "value");
+				span.log(thread + "/" + i);
+			}
+			return 0L;
+		});
+
+		then(span.tags()).hasSize(8 * 200);
+		then(span.logs()).hasSize(8 * 200);
+	}
+
+	@Test
+	public void everyThreadSeesTheSameEndWhenStoppingConcurrently() throws Exception {
+		MilliSpan span = MilliSpan.builder().traceId(1L).spanId(1L).build();
+
+		List<Long> ends = runConcurrently(8, () -> {
+			span.stop();
+			return span.getEnd();
+		});
+
+		then(new HashSet<>(ends)).containsExactly(span.getEnd());
+		then(span.isRunning()).isFalse();
+		then(span.getAccumulatedMillis()).isEqualTo(span.getEnd() - span.getBegin());
+	}
+
+	@Test
+	public void truncatesLongKeysAndValues() {
+		SpanLimits limits = new SpanLimits();
+		limits.setMaxKeyLength(3);
+		limits.setMaxValueLength(4);
+		MilliSpan span = MilliSpan.builder().traceId(1L).spanId(1L).limits(limits)
+				.build();
+
+		span.tag("abcdef", "123456");
+		span.tag("xyz", "1234");
+		span.log("message");
+
+		then(span.tags()).containsExactly(entry("abc", "1234"), entry("xyz", "1234"));
+		then(span.logs().get(0).getMsg()).isEqualTo("mess");
+		then(limits.getTruncatedValues()).isEqualTo(3);
+	}
+
+	@Test
+	public void dropsTagsAndLogsOverTheLimit() {
+		SpanLimits limits = new SpanLimits();
+		limits.setMaxTags(2);
+		limits.setMaxLogs(1);
+		MilliSpan span = MilliSpan.builder().traceId(1L).spanId(1L).limits(limits)
+				.build();
+
+		span.tag("a", "1");
+		span.tag("b", "2");
+		span.tag("c", "3");
+		span.tag("a", "4");
+		span.log("cs");
+		span.log("cr");
+
+		then(span.tags()).containsExactly(entry("a", "4"), entry("b", "2"));
+		then(span.logs()).hasSize(1);
+		then(limits.getDroppedTags()).isEqualTo(1);
+		then(limits.getDroppedLogs()).isEqualTo(1);
+	}
+
+	@Test
+	public void dropsTagsAndLogsOverTheMaxSize() {
+		SpanLimits limits = new SpanLimits();
+		limits.setMaxSize(10);
+		MilliSpan span = MilliSpan.builder().traceId(1L).spanId(1L).limits(limits)
+				.build();
+
+		span.tag("key", "value");
+		span.tag("other", "value");
+		span.log("cs");
+		span.log("too long");
+		span.tag("key", "v");
+
+		then(span.tags()).containsExactly(entry("key", "v"));
+		then(span.logs()).extracting("msg").containsExactly("cs");
+		then(limits.getDroppedTags()).isEqualTo(1);
+		then(limits.getDroppedLogs()).isEqualTo(1);
+	}
+
+	@Test
+	public void copiesKeepTheLimits() {
+		SpanLimits limits = new SpanLimits();
+		limits.setMaxTags(1);
+		MilliSpan span = MilliSpan.builder().traceId(1L).spanId(1L).limits(limits)
+				.build().toBuilder().build();
+
+		span.tag("a", "1");
+		span.tag("b", "2");
+
+		then(span.tags()).containsExactly(entry("a", "1"));
+		then(limits.getDroppedTags()).isEqualTo(1);
+	}
+
+	private List<Long> runConcurrently(int threads, Callable<Long> task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Long>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return task.call();
+				}));
+			}
+			start.countDown();
+			List<Long> results = new ArrayList<>();
+			for (Future<Long> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+}
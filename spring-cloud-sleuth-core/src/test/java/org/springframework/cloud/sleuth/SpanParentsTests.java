@@ -0,0 +1,40 @@
+package org.springframework.cloud.sleuth;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class SpanParentsTests {
+
+	@Test
+	public void should_read_the_parent_kept_on_the_span() throws Exception {
+		MilliSpan span = MilliSpan.builder().traceId(1L).spanId(2L).parent(3L).build();
+
+		then(SpanParents.hasParent(span)).isTrue();
+		then(SpanParents.parentId(span)).isEqualTo(3L);
+	}
+
+	@Test
+	public void should_read_the_parents_of_other_span_implementations() throws Exception {
+		Span span = mock(Span.class);
+		given(span.getParents()).willReturn(Arrays.asList(3L, 4L));
+
+		then(SpanParents.hasParent(span)).isTrue();
+		then(SpanParents.parentId(span)).isEqualTo(3L);
+	}
+
+	@Test
+	public void should_return_no_parent_for_other_span_implementations_without_one()
+			throws Exception {
+		Span span = mock(Span.class);
+		given(span.getParents()).willReturn(Collections.<Long>emptyList());
+
+		then(SpanParents.hasParent(span)).isFalse();
+		then(SpanParents.parentId(span)).isEqualTo(0L);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.BDDAssertions.then;
+
+public class SpanTagsTests {
+
+	@Test
+	public void keepsInsertionOrder() {
+		SpanTags tags = SpanTags.EMPTY.with("c", "1").with("a", "2").with("b", "3");
+
+		then(tags.keySet()).containsExactly("c", "a", "b");
+		then(tags.values()).containsExactly("1", "2", "3");
+	}
+
+	@Test
+	public void replacesValueInPlace() {
+		SpanTags tags = SpanTags.EMPTY.with("a", "1").with("b", "2").with("a", "3");
+
+		then(tags.keySet()).containsExactly("a", "b");
+		then(tags.get("a")).isEqualTo("3");
+	}
+
+	@Test
+	public void doesntCopyWhenValueIsUnchanged() {
+		SpanTags tags = SpanTags.EMPTY.with("a", "1");
+
+		then(tags.with("a", "1")).isSameAs(tags);
+	}
+
+	@Test
+	public void isNotChangedByCopies() {
+		SpanTags tags = SpanTags.EMPTY.with("a", "1");
+
+		tags.with("a", "2");
+		tags.with("b", "3");
+
+		then(tags).containsOnly(entry("a", "1"));
+	}
+
+	@Test
+	public void copiesAddingToTheSameTagsDontSeeEachOther() {
+		SpanTags tags = SpanTags.EMPTY.with("a", "1");
+
+		SpanTags first = tags.with("b", "2");
+		SpanTags second = tags.with("c", "3");
+
+		then(first).containsExactly(entry("a", "1"), entry("b", "2"));
+		then(second).containsExactly(entry("a", "1"), entry("c", "3"));
+		then(first.with("d", "4")).containsExactly(entry("a", "1"), entry("b", "2"),
+				entry("d", "4"));
+	}
+
+	@Test
+	public void refusesTagsOverTheLimits() {
+		SpanTags tags = SpanTags.EMPTY.with("a", "1");
+
+		then(tags.with("b", "2", 1, 100)).isNull();
+		then(tags.with("a", "123", 1, 3)).isNull();
+		then(tags.with("a", "", 1, 0)).containsExactly(entry("a", ""));
+	}
+
+	@Test
+	public void equalsLinkedHashMap() {
+		Map<String, String> expected = new LinkedHashMap<>();
+		expected.put("a", "1");
+		expected.put("b", null);
+
+		SpanTags tags = SpanTags.copyOf(expected);
+
+		then(tags).isEqualTo(expected);
+		then(expected).isEqualTo(tags);
+		then(tags.hashCode()).isEqualTo(expected.hashCode());
+		then(tags.toString()).isEqualTo(expected.toString());
+		then(tags.containsKey("b")).isTrue();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void isReadOnly() {
+		SpanTags.EMPTY.with("a", "1").put("b", "2");
+	}
+
+}
@@ -1,8 +1,14 @@
 package org.springframework.cloud.sleuth;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
 import org.junit.Test;
 
 import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
 
 /**
  * @author Marcin Grzejszczak
@@ -31,4 +37,89 @@ public class SpanTest {
 	public void should_throw_exception_when_null_string_is_to_be_converted_to_long() throws Exception {
 		Span.IdConverter.fromHex(null);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void should_convert_negative_long_to_hex_string_and_back() throws Exception {
+		long someLong = 0xa3ac35c9f6413ad4L;
+
+		String hexString = Span.IdConverter.toHex(someLong);
+
+		then(hexString).isEqualTo("a3ac35c9f6413ad4");
+		then(Span.IdConverter.fromHex(hexString)).isEqualTo(someLong);
+	}
+
+	@Test
+	public void should_convert_zero_to_hex_string() throws Exception {
+		then(Span.IdConverter.toHex(0L)).isEqualTo("0");
+		then(Span.IdConverter.fromHex("0")).isEqualTo(0L);
+	}
+
+	@Test
+	public void should_convert_upper_case_hex_string_to_long() throws Exception {
+		then(Span.IdConverter.fromHex("1E0F3")).isEqualTo(123123L);
+	}
+
+	@Test
+	public void should_convert_hex_chars_and_bytes_to_long() throws Exception {
+		char[] chars = "id=1e0f3;".toCharArray();
+		byte[] bytes = "id=1e0f3;".getBytes(StandardCharsets.US_ASCII);
+
+		then(Span.IdConverter.fromHex(chars, 3, 5)).isEqualTo(123123L);
+		then(Span.IdConverter.fromHex(bytes, 3, 5)).isEqualTo(123123L);
+	}
+
+	@Test
+	public void should_write_hex_string_to_chars_and_bytes() throws Exception {
+		char[] chars = new char[8];
+		byte[] bytes = new byte[8];
+
+		then(Span.IdConverter.toHex(123123L, chars, 1)).isEqualTo(6);
+		then(Span.IdConverter.toHex(123123L, bytes, 1)).isEqualTo(6);
+		then(new String(chars, 1, 5)).isEqualTo("1e0f3");
+		then(new String(bytes, 1, 5, StandardCharsets.US_ASCII)).isEqualTo("1e0f3");
+	}
+
+	@Test
+	public void should_convert_like_big_integer() throws Exception {
+		Random random = new Random();
+		for (int i = 0; i < 10000; i++) {
+			long id = random.nextLong() >>> random.nextInt(64);
+			// 128-bit ids and signs are accepted, keeping the lowest 64 bits
+			String hexString = (i % 2 == 0 ? "-" : "") + Long.toHexString(random.nextLong())
+					+ Long.toHexString(id);
+
+			then(Span.IdConverter.toHex(id)).isEqualTo(Long.toHexString(id));
+			then(Span.IdConverter.fromHex(hexString))
+					.isEqualTo(new BigInteger(hexString, 16).longValue());
+		}
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void should_throw_exception_when_string_is_not_hex() throws Exception {
+		Span.IdConverter.fromHex("1e0g3");
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void should_throw_exception_when_string_is_only_a_sign() throws Exception {
+		Span.IdConverter.fromHex("-");
+	}
+
+	@Test
+	public void should_use_the_hex_ids_cached_on_the_span() throws Exception {
+		MilliSpan span = MilliSpan.builder().traceId(0xa3ac35c9f6413ad4L).spanId(123123L)
+				.build();
+
+		then(Span.IdConverter.traceIdHex(span)).isSameAs(span.traceIdHex());
+		then(Span.IdConverter.spanIdHex(span)).isSameAs(span.spanIdHex());
+	}
+
+	@Test
+	public void should_convert_the_ids_of_other_span_implementations() throws Exception {
+		Span span = mock(Span.class);
+		given(span.getTraceId()).willReturn(0xa3ac35c9f6413ad4L);
+		given(span.getSpanId()).willReturn(123123L);
+
+		then(Span.IdConverter.traceIdHex(span)).isEqualTo("a3ac35c9f6413ad4");
+		then(Span.IdConverter.spanIdHex(span)).isEqualTo("1e0f3");
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.autoconfig;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanLimits;
+import org.springframework.cloud.sleuth.Trace;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.cloud.sleuth.sampler.AlwaysSampler;
+import org.springframework.cloud.sleuth.trace.TraceContextHolder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+public class TraceAutoConfigurationTests {
+
+	private ConfigurableApplicationContext first;
+
+	private ConfigurableApplicationContext second;
+
+	@After
+	public void close() {
+		TraceContextHolder.removeCurrentTrace();
+		if (this.first != null) {
+			this.first.close();
+		}
+		if (this.second != null) {
+			this.second.close();
+		}
+	}
+
+	@Test
+	public void should_apply_the_span_limits_of_each_context_to_its_own_spans() {
+		this.first = context("spring.sleuth.span.maxTags=1");
+		this.second = context("spring.sleuth.span.maxTags=2");
+
+		Span firstSpan = tagThreeTimes(this.first.getBean(Tracer.class));
+		Span secondSpan = tagThreeTimes(this.second.getBean(Tracer.class));
+
+		then(firstSpan.tags()).hasSize(1);
+		then(secondSpan.tags()).hasSize(2);
+		then(this.first.getBean(SpanLimits.class).getDroppedTags()).isEqualTo(2);
+		then(this.second.getBean(SpanLimits.class).getDroppedTags()).isEqualTo(1);
+	}
+
+	private ConfigurableApplicationContext context(String limit) {
+		return new SpringApplicationBuilder(Config.class).web(false).properties(limit)
+				.run();
+	}
+
+	private Span tagThreeTimes(Tracer tracer) {
+		Trace trace = tracer.startTrace("span", new AlwaysSampler());
+		Span span = trace.getSpan();
+		span.tag("a", "1");
+		span.tag("b", "2");
+		span.tag("c", "3");
+		tracer.close(trace);
+		return span;
+	}
+
+	@Configuration
+	@Import(TraceAutoConfiguration.class)
+	static class Config {
+	}
+
+}
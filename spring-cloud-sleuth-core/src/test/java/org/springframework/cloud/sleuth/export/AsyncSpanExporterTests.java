@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.export;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.Span;
+
+public class AsyncSpanExporterTests {
+
+	List<Span> handled = new CopyOnWriteArrayList<>();
+
+	AsyncSpanExporter exporter = new AsyncSpanExporter(
+			new SpanRingBuffer(16, OverflowPolicy.DROP_NEWEST), 2,
+			new AsyncSpanExporter.Handler() {
+				@Override
+				public void handle(List<Span> spans) {
+					then(spans.size()).isLessThanOrEqualTo(2);
+					AsyncSpanExporterTests.this.handled.addAll(spans);
+				}
+			});
+
+	@Before
+	public void start() {
+		this.exporter.start();
+	}
+
+	@After
+	public void close() {
+		this.exporter.close();
+	}
+
+	@Test
+	public void should_hand_every_exported_span_to_the_handler_by_the_time_flush_returns() {
+		for (int i = 0; i < 5; i++) {
+			this.exporter.export(MilliSpan.builder().name("span" + i).build());
+		}
+
+		this.exporter.flush();
+
+		then(this.handled).hasSize(5);
+		then(this.exporter.getBuffer().isEmpty()).isTrue();
+	}
+
+	@Test
+	public void should_export_spans_in_the_background() throws Exception {
+		this.exporter.export(MilliSpan.builder().name("foo").build());
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (this.handled.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		then(this.handled).hasSize(1);
+	}
+
+	@Test
+	public void should_keep_exporting_after_the_handler_fails() {
+		AsyncSpanExporter failing = new AsyncSpanExporter(
+				new SpanRingBuffer(16, OverflowPolicy.DROP_NEWEST),
+				new AsyncSpanExporter.Handler() {
+					boolean failed;
+
+					@Override
+					public void handle(List<Span> spans) {
+						if (!this.failed) {
+							this.failed = true;
+							throw new IllegalStateException("boom");
+						}
+						AsyncSpanExporterTests.this.handled.addAll(spans);
+					}
+				});
+		try {
+			failing.export(MilliSpan.builder().name("lost").build());
+			failing.flush();
+			failing.export(MilliSpan.builder().name("foo").build());
+			failing.flush();
+		}
+		finally {
+			failing.close();
+		}
+
+		then(this.handled).extracting("name").containsExactly("foo");
+	}
+
+	@Test
+	public void should_survive_errors_thrown_by_the_handler() throws Exception {
+		AsyncSpanExporter failing = new AsyncSpanExporter(
+				new SpanRingBuffer(16, OverflowPolicy.DROP_NEWEST), 1,
+				new AsyncSpanExporter.Handler() {
+					boolean failed;
+
+					@Override
+					public void handle(List<Span> spans) {
+						if (!this.failed) {
+							this.failed = true;
+							throw new AssertionError("boom");
+						}
+						AsyncSpanExporterTests.this.handled.addAll(spans);
+					}
+				});
+		failing.start();
+		try {
+			failing.export(MilliSpan.builder().name("lost").build());
+			failing.export(MilliSpan.builder().name("foo").build());
+			// exported by the background thread, which outlived the error
+			waitUntilHandled(1);
+		}
+		finally {
+			failing.close();
+		}
+
+		then(this.handled).extracting("name").containsExactly("foo");
+	}
+
+	@Test
+	public void should_only_export_in_the_background_once_started() throws Exception {
+		AsyncSpanExporter exporter = new AsyncSpanExporter(
+				new SpanRingBuffer(16, OverflowPolicy.DROP_NEWEST),
+				new AsyncSpanExporter.Handler() {
+					@Override
+					public void handle(List<Span> spans) {
+						AsyncSpanExporterTests.this.handled.addAll(spans);
+					}
+				});
+		try {
+			exporter.export(MilliSpan.builder().name("foo").build());
+			Thread.sleep(50);
+			then(this.handled).isEmpty();
+
+			exporter.start();
+			waitUntilHandled(1);
+		}
+		finally {
+			exporter.close();
+		}
+
+		then(this.handled).hasSize(1);
+	}
+
+	@Test
+	public void should_not_start_a_second_thread_while_the_stopped_one_is_still_exporting()
+			throws Exception {
+		final CountDownLatch handling = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AsyncSpanExporter exporter = new AsyncSpanExporter(
+				new SpanRingBuffer(16, OverflowPolicy.DROP_NEWEST),
+				new AsyncSpanExporter.Handler() {
+					@Override
+					public void handle(List<Span> spans) {
+						handling.countDown();
+						try {
+							release.await();
+						}
+						catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						AsyncSpanExporterTests.this.handled.addAll(spans);
+					}
+				});
+		Thread restart = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				exporter.start();
+			}
+		});
+		try {
+			exporter.start();
+			exporter.export(MilliSpan.builder().name("slow").build());
+			then(handling.await(5, TimeUnit.SECONDS)).isTrue();
+			// gives up waiting after a second, the thread is still in the handler
+			exporter.stop();
+
+			restart.start();
+			restart.join(100);
+			then(restart.isAlive()).isTrue();
+
+			release.countDown();
+			restart.join(5000);
+			then(restart.isAlive()).isFalse();
+			then(exporter.isRunning()).isTrue();
+
+			exporter.export(MilliSpan.builder().name("foo").build());
+			waitUntilHandled(2);
+		}
+		finally {
+			release.countDown();
+			exporter.close();
+		}
+
+		then(this.handled).extracting("name").containsExactly("slow", "foo");
+	}
+
+	private void waitUntilHandled(int spans) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (this.handled.size() < spans && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+}
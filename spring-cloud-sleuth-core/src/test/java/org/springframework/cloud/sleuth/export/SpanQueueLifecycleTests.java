@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.export;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class SpanQueueLifecycleTests {
+
+	DrainableSpanQueue queue = mock(DrainableSpanQueue.class);
+
+	SpanQueueLifecycle lifecycle = new SpanQueueLifecycle(this.queue, 500);
+
+	@Test
+	public void should_stop_accepting_spans_then_drain_the_queue_and_abandon_the_rest() {
+		given(this.queue.drain(500, TimeUnit.MILLISECONDS)).willReturn(10);
+		given(this.queue.abandon()).willReturn(2);
+		this.lifecycle.start();
+
+		this.lifecycle.stop();
+
+		InOrder order = inOrder(this.queue);
+		order.verify(this.queue).stopAccepting();
+		order.verify(this.queue).drain(500, TimeUnit.MILLISECONDS);
+		order.verify(this.queue).abandon();
+		then(this.lifecycle.isRunning()).isFalse();
+	}
+
+	@Test
+	public void should_not_touch_the_queue_when_never_started() {
+		this.lifecycle.stop();
+
+		verifyZeroInteractions(this.queue);
+	}
+
+	@Test
+	public void should_run_the_callback_once_stopped() {
+		final boolean[] called = new boolean[1];
+		this.lifecycle.start();
+
+		this.lifecycle.stop(new Runnable() {
+			@Override
+			public void run() {
+				called[0] = true;
+			}
+		});
+
+		then(called[0]).isTrue();
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.export;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.Span;
+
+public class SpanRingBufferTests {
+
+	@Test
+	public void should_round_capacity_up_to_a_power_of_two() {
+		then(new SpanRingBuffer(1000, OverflowPolicy.DROP_NEWEST).getCapacity())
+				.isEqualTo(1024);
+		then(new SpanRingBuffer(1, OverflowPolicy.DROP_NEWEST).getCapacity())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void should_drain_spans_in_the_order_they_were_offered() {
+		SpanRingBuffer buffer = new SpanRingBuffer(4, OverflowPolicy.DROP_NEWEST);
+		List<Span> spans = spans(3);
+		for (Span span : spans) {
+			buffer.offer(span);
+		}
+
+		List<Span> drained = new ArrayList<>();
+		then(buffer.drainTo(drained, 10)).isEqualTo(3);
+
+		then(drained).containsExactlyElementsOf(spans);
+		then(buffer.isEmpty()).isTrue();
+	}
+
+	@Test
+	public void should_drop_newest_spans_when_full() {
+		SpanRingBuffer buffer = new SpanRingBuffer(2, OverflowPolicy.DROP_NEWEST);
+		List<Span> spans = spans(3);
+
+		then(buffer.offer(spans.get(0))).isTrue();
+		then(buffer.offer(spans.get(1))).isTrue();
+		then(buffer.offer(spans.get(2))).isFalse();
+
+		then(buffer.getDroppedSpans()).isEqualTo(1);
+		then(buffer.poll()).isSameAs(spans.get(0));
+	}
+
+	@Test
+	public void should_drop_oldest_spans_when_full() {
+		SpanRingBuffer buffer = new SpanRingBuffer(2, OverflowPolicy.DROP_OLDEST);
+		List<Span> spans = spans(3);
+		for (Span span : spans) {
+			then(buffer.offer(span)).isTrue();
+		}
+
+		then(buffer.getDroppedSpans()).isEqualTo(1);
+		then(buffer.poll()).isSameAs(spans.get(1));
+		then(buffer.poll()).isSameAs(spans.get(2));
+	}
+
+	@Test
+	public void should_block_until_there_is_room() throws Exception {
+		final SpanRingBuffer buffer = new SpanRingBuffer(1, OverflowPolicy.BLOCK);
+		final List<Span> spans = spans(2);
+		buffer.offer(spans.get(0));
+		final CountDownLatch offered = new CountDownLatch(1);
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				buffer.offer(spans.get(1));
+				offered.countDown();
+			}
+		}).start();
+
+		then(offered.await(100, TimeUnit.MILLISECONDS)).isFalse();
+		then(buffer.poll()).isSameAs(spans.get(0));
+		then(offered.await(1, TimeUnit.SECONDS)).isTrue();
+		then(buffer.poll()).isSameAs(spans.get(1));
+		then(buffer.getDroppedSpans()).isZero();
+	}
+
+	@Test
+	public void should_drop_the_span_once_the_max_block_time_has_elapsed() {
+		SpanRingBuffer buffer = new SpanRingBuffer(1, OverflowPolicy.BLOCK, 50,
+				TimeUnit.MILLISECONDS);
+		List<Span> spans = spans(2);
+		buffer.offer(spans.get(0));
+
+		long start = System.nanoTime();
+		then(buffer.offer(spans.get(1))).isFalse();
+
+		then(System.nanoTime() - start).isGreaterThanOrEqualTo(
+				TimeUnit.MILLISECONDS.toNanos(50));
+		then(buffer.getDroppedSpans()).isEqualTo(1);
+		then(buffer.poll()).isSameAs(spans.get(0));
+	}
+
+	@Test
+	public void should_not_lose_spans_offered_concurrently() throws Exception {
+		final SpanRingBuffer buffer = new SpanRingBuffer(64, OverflowPolicy.BLOCK);
+		final int producers = 4;
+		final int spansPerProducer = 10000;
+		final Span span = spans(1).get(0);
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+		for (int i = 0; i < producers; i++) {
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < spansPerProducer; j++) {
+						buffer.offer(span);
+					}
+				}
+			});
+		}
+
+		List<Span> drained = new ArrayList<>();
+		long deadline = System.currentTimeMillis() + 10000;
+		while (drained.size() < producers * spansPerProducer
+				&& System.currentTimeMillis() < deadline) {
+			buffer.drainTo(drained, 100);
+		}
+		executor.shutdown();
+
+		then(drained).hasSize(producers * spansPerProducer);
+		then(buffer.getAcceptedSpans()).isEqualTo(producers * spansPerProducer);
+	}
+
+	private List<Span> spans(int count) {
+		List<Span> spans = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			spans.add(MilliSpan.builder().name("span" + i).traceId(i).spanId(i).build());
+		}
+		return spans;
+	}
+
+}
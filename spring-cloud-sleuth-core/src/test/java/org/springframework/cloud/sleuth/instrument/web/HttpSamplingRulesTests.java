@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.cloud.sleuth.sampler.AlwaysSampler;
+import org.springframework.cloud.sleuth.sampler.CountingSampler;
+
+public class HttpSamplingRulesTests {
+
+	@Test
+	public void should_match_exact_paths() {
+		HttpSamplingRules rules = new HttpSamplingRules(rules(rule("/health", null, 0f)),
+				null);
+
+		then(rules.samplerFor("GET", "/health").next()).isFalse();
+		then(rules.samplerFor("GET", "/healthz")).isNull();
+	}
+
+	@Test
+	public void should_match_paths_under_a_prefix() {
+		HttpSamplingRules rules = new HttpSamplingRules(
+				rules(rule("/checkout/**", null, 1f)), null);
+
+		then(rules.samplerFor("GET", "/checkout")).isInstanceOf(AlwaysSampler.class);
+		then(rules.samplerFor("GET", "/checkout/cart/1")).isInstanceOf(AlwaysSampler.class);
+		then(rules.samplerFor("GET", "/checkoutz")).isNull();
+	}
+
+	@Test
+	public void should_match_other_ant_patterns() {
+		HttpSamplingRules rules = new HttpSamplingRules(
+				rules(rule("/users/*/orders", null, 1f)), null);
+
+		then(rules.samplerFor("GET", "/users/42/orders")).isInstanceOf(AlwaysSampler.class);
+		// the second lookup comes from the cache
+		then(rules.samplerFor("GET", "/users/42/orders")).isInstanceOf(AlwaysSampler.class);
+		then(rules.samplerFor("GET", "/users/42/invoices")).isNull();
+	}
+
+	@Test
+	public void should_apply_the_first_matching_rule() {
+		HttpSamplingRules rules = new HttpSamplingRules(rules(
+				rule("/checkout/pay", null, 1f), rule("/checkout/**", null, 0f)), null);
+
+		then(rules.samplerFor("GET", "/checkout/pay").next()).isTrue();
+		then(rules.samplerFor("GET", "/checkout/cart").next()).isFalse();
+	}
+
+	@Test
+	public void should_skip_rules_for_other_methods() {
+		HttpSamplingRules rules = new HttpSamplingRules(rules(
+				rule("/checkout/**", "POST", 1f), rule("/**", null, 0f)), null);
+
+		then(rules.samplerFor("post", "/checkout/pay").next()).isTrue();
+		then(rules.samplerFor("GET", "/checkout/pay").next()).isFalse();
+	}
+
+	@Test
+	public void should_fall_back_to_the_default_percentage() {
+		HttpSamplingRules rules = new HttpSamplingRules(
+				Collections.<HttpSamplingProperties.Rule>emptyList(), 0.01f);
+
+		then(rules.samplerFor("GET", "/anything")).isInstanceOf(CountingSampler.class);
+	}
+
+	@Test
+	public void should_recompile_rules_when_the_properties_are_rebound() {
+		HttpSamplingProperties properties = new HttpSamplingProperties();
+		properties.getRules().add(rule("/health", null, 0f));
+		properties.afterPropertiesSet();
+		then(properties.getCompiledRules().samplerFor("GET", "/health").next()).isFalse();
+
+		properties.getRules().get(0).setPercentage(1f);
+		properties.afterPropertiesSet();
+
+		then(properties.getCompiledRules().samplerFor("GET", "/health").next()).isTrue();
+	}
+
+	private static List<HttpSamplingProperties.Rule> rules(
+			HttpSamplingProperties.Rule... rules) {
+		return Arrays.asList(rules);
+	}
+
+	private static HttpSamplingProperties.Rule rule(String path, String method,
+			float percentage) {
+		HttpSamplingProperties.Rule rule = new HttpSamplingProperties.Rule();
+		rule.setPath(path);
+		rule.setMethod(method);
+		rule.setPercentage(percentage);
+		return rule;
+	}
+
+}
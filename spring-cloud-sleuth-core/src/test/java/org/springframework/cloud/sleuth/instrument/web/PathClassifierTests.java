@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class PathClassifierTests {
+
+	List<String> paths = Arrays.asList("/", "/info", "/infos", "/metrics",
+			"/metrics/heap", "/api-docs/v2", "/swagger-ui.html", "/img/logo.png",
+			"/css/site.css", "/js/app.js", "/favicon.ico", "/faviconXico",
+			"/hystrix.stream", "/api/customers", "/api/customers?page=2", "/png", "");
+
+	@Test
+	public void should_classify_paths_like_the_default_skip_pattern() {
+		thenClassifiesLikeTheExpression(TraceFilter.DEFAULT_SKIP_PATTERN);
+	}
+
+	@Test
+	public void should_match_literal_paths_prefixes_and_suffixes() {
+		PathClassifier classifier = new PathClassifier(
+				Pattern.compile("/info|/metrics.*|.*\\.png"));
+
+		then(classifier.matches("/info")).isTrue();
+		then(classifier.matches("/metrics")).isTrue();
+		then(classifier.matches("/metrics/heap")).isTrue();
+		then(classifier.matches("/img/logo.png")).isTrue();
+		then(classifier.matches("/infos")).isFalse();
+		then(classifier.matches("/img/logo.pngs")).isFalse();
+	}
+
+	@Test
+	public void should_keep_other_alternatives_as_an_expression() {
+		thenClassifiesLikeTheExpression(Pattern.compile("/api/.*/customers|/info"));
+		thenClassifiesLikeTheExpression(Pattern.compile("/inf.|/metrics\\.*"));
+	}
+
+	@Test
+	public void should_keep_expressions_with_groups_or_flags_whole() {
+		thenClassifiesLikeTheExpression(Pattern.compile("/(info|metrics).*"));
+		thenClassifiesLikeTheExpression(Pattern.compile("/INFO|/metrics.*",
+				Pattern.CASE_INSENSITIVE));
+		thenClassifiesLikeTheExpression(Pattern.compile("/info\\|/metrics"));
+	}
+
+	@Test
+	public void should_give_the_same_answer_once_cached() {
+		PathClassifier classifier = new PathClassifier(Pattern.compile("/inf."), 1);
+
+		then(classifier.matches("/info")).isTrue();
+		then(classifier.matches("/info")).isTrue();
+		then(classifier.matches("/api")).isFalse();
+		then(classifier.matches("/info")).isTrue();
+	}
+
+	private void thenClassifiesLikeTheExpression(Pattern pattern) {
+		PathClassifier classifier = new PathClassifier(pattern);
+		for (String path : this.paths) {
+			then(classifier.matches(path)).as(path)
+					.isEqualTo(pattern.matcher(path).matches());
+		}
+	}
+
+}
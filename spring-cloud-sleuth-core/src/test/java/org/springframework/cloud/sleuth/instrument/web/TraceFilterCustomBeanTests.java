@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.instrument.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.Trace;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.cloud.sleuth.autoconfig.TraceAutoConfiguration;
+import org.springframework.cloud.sleuth.event.SpanListenerAdapter;
+import org.springframework.cloud.sleuth.instrument.TraceKeys;
+import org.springframework.cloud.sleuth.trace.TraceContextHolder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+public class TraceFilterCustomBeanTests {
+
+	private ConfigurableApplicationContext context;
+
+	@After
+	public void close() {
+		TraceContextHolder.removeCurrentTrace();
+		if (this.context != null) {
+			this.context.close();
+		}
+	}
+
+	@Test
+	public void should_report_the_server_side_from_a_filter_declared_by_the_user()
+			throws Exception {
+		this.context = new SpringApplicationBuilder(Config.class).web(false).run();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
+		request.addHeader(Trace.TRACE_ID_NAME, Span.IdConverter.toHex(1L));
+		request.addHeader(Trace.SPAN_ID_NAME, Span.IdConverter.toHex(2L));
+
+		this.context.getBean(TraceFilter.class).doFilter(request,
+				new MockHttpServletResponse(), new MockFilterChain());
+
+		then(this.context.getBean(RecordingSpanListener.class).events)
+				.containsExactly("sr", "ss");
+	}
+
+	@Configuration
+	@Import(TraceAutoConfiguration.class)
+	static class Config {
+
+		@Bean
+		public TraceFilter customTraceFilter(Tracer tracer) {
+			return new TraceFilter(tracer, new TraceKeys()) {
+				@Override
+				protected void addRequestTags(HttpServletRequest request) {
+					super.addRequestTags(request);
+				}
+			};
+		}
+
+		@Bean
+		public RecordingSpanListener recordingSpanListener() {
+			return new RecordingSpanListener();
+		}
+
+	}
+
+	static class RecordingSpanListener extends SpanListenerAdapter {
+
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void serverReceived(Span parent, Span span) {
+			this.events.add("sr");
+		}
+
+		@Override
+		public void serverSent(Span parent, Span span) {
+			this.events.add("ss");
+		}
+
+	}
+
+}
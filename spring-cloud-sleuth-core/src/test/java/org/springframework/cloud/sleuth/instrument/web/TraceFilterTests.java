@@ -25,6 +25,9 @@ import static org.mockito.MockitoAnnotations.initMocks;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -104,6 +107,25 @@ public class TraceFilterTests {
 		assertNull(TraceContextHolder.getCurrentTrace());
 	}
 
+	@Test
+	public void doesntAddRequestTagsToSpansNotExported() throws Exception {
+		this.sampler = new IsTracingSampler();
+		final AtomicInteger requestTagCalls = new AtomicInteger();
+		TraceFilter filter = new TraceFilter(this.tracer, this.traceKeys) {
+			@Override
+			protected void addRequestTags(HttpServletRequest request) {
+				requestTagCalls.incrementAndGet();
+				super.addRequestTags(request);
+			}
+		};
+
+		filter.doFilter(this.request, this.response, this.filterChain);
+
+		assertFalse(this.span.isExportable());
+		assertThat(requestTagCalls.get()).isZero();
+		assertNull(TraceContextHolder.getCurrentTrace());
+	}
+
 	@Test
 	public void startsNewTrace() throws Exception {
 		TraceFilter filter = new TraceFilter(this.tracer, this.traceKeys);
@@ -170,6 +192,41 @@ public class TraceFilterTests {
 		assertNull(TraceContextHolder.getCurrentTrace());
 	}
 
+	@Test
+	public void samplesNewTracesByRule() throws Exception {
+		HttpSamplingProperties.Rule rule = new HttpSamplingProperties.Rule();
+		rule.setPath("/health/**");
+		rule.setPercentage(0f);
+		HttpSamplingProperties properties = new HttpSamplingProperties();
+		properties.getRules().add(rule);
+		properties.afterPropertiesSet();
+		TraceFilter filter = new TraceFilter(this.tracer, this.traceKeys);
+		filter.setSamplingProperties(properties);
+
+		this.request = get("/health/db").buildRequest(new MockServletContext());
+		filter.doFilter(this.request, this.response, this.filterChain);
+
+		assertFalse(this.span.isExportable());
+		assertNull(TraceContextHolder.getCurrentTrace());
+	}
+
+	@Test
+	public void usesDefaultSamplerWhenNoRuleMatches() throws Exception {
+		HttpSamplingProperties.Rule rule = new HttpSamplingProperties.Rule();
+		rule.setPath("/health/**");
+		rule.setPercentage(0f);
+		HttpSamplingProperties properties = new HttpSamplingProperties();
+		properties.getRules().add(rule);
+		properties.afterPropertiesSet();
+		TraceFilter filter = new TraceFilter(this.tracer, this.traceKeys);
+		filter.setSamplingProperties(properties);
+
+		filter.doFilter(this.request, this.response, this.filterChain);
+
+		verifyHttpTags();
+		assertNull(TraceContextHolder.getCurrentTrace());
+	}
+
 	@Test
 	public void catchesException() throws Exception {
 		TraceFilter filter = new TraceFilter(this.tracer, this.traceKeys);
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.sampler;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.export.OverflowPolicy;
+import org.springframework.cloud.sleuth.export.SpanQueueStatus;
+import org.springframework.cloud.sleuth.export.SpanRingBuffer;
+
+public class AdaptiveSamplerTests {
+
+	AtomicLong nanoTime = new AtomicLong();
+
+	TestQueue queue = new TestQueue();
+
+	// 1000 spans per second, starting at 100 traces per second
+	AdaptiveSampler sampler = sampler(1000);
+
+	@Test
+	public void should_start_at_a_tenth_of_the_budget() {
+		then(sampleForASecond()).isEqualTo(100);
+	}
+
+	@Test
+	public void should_raise_the_rate_while_the_queue_keeps_up() {
+		this.queue.accepted += sampleForASecond();
+
+		then(sampleForASecond()).isEqualTo(200);
+	}
+
+	@Test
+	public void should_halve_the_rate_when_the_queue_fills_up() {
+		this.queue.accepted += sampleForASecond();
+		this.queue.queued = 900;
+
+		then(sampleForASecond()).isEqualTo(50);
+	}
+
+	@Test
+	public void should_halve_the_rate_when_spans_are_dropped() {
+		sampleForASecond();
+		this.queue.dropped = 1;
+
+		then(sampleForASecond()).isEqualTo(50);
+	}
+
+	@Test
+	public void should_halve_the_rate_when_the_export_buffer_drops_spans() {
+		SpanRingBuffer buffer = new SpanRingBuffer(16, OverflowPolicy.DROP_NEWEST);
+		this.sampler = sampler(1000, buffer);
+		sampleForASecond();
+
+		Span span = MilliSpan.builder().name("span").build();
+		for (int i = 0; i <= buffer.getCapacity(); i++) {
+			buffer.offer(span);
+		}
+		buffer.clear(); // exported, apart from the span that didn't fit
+
+		then(sampleForASecond()).isEqualTo(50);
+	}
+
+	@Test
+	public void should_hold_the_rate_between_the_watermarks() {
+		this.queue.accepted += sampleForASecond();
+		this.queue.queued = 600;
+
+		then(sampleForASecond()).isEqualTo(100);
+	}
+
+	@Test
+	public void should_keep_sampling_one_trace_per_second_under_pressure() {
+		this.queue.queued = 1000;
+		for (int i = 0; i < 20; i++) {
+			this.queue.accepted += sampleForASecond();
+		}
+
+		then(sampleForASecond()).isEqualTo(1);
+		then(this.sampler.getCurrentTracesPerSecond()).isEqualTo(1);
+	}
+
+	@Test
+	public void should_fit_the_span_budget_when_traces_have_many_spans() {
+		for (int i = 0; i < 20; i++) {
+			// 10 spans per trace
+			this.queue.accepted += 10 * sampleForASecond();
+		}
+
+		then(sampleForASecond()).isEqualTo(100);
+	}
+
+	@Test
+	public void should_reject_all_samples_when_budget_is_0() {
+		this.sampler = sampler(0);
+
+		then(sampleForASecond()).isZero();
+		then(sampleForASecond()).isZero();
+	}
+
+	@Test
+	public void should_read_the_budget_from_the_configuration() {
+		SamplerConfiguration configuration = new SamplerConfiguration();
+		configuration.setSpansPerSecond(50);
+
+		then(new AdaptiveSampler(configuration, Collections.singletonList(this.queue))
+				.getCurrentTracesPerSecond()).isEqualTo(5);
+	}
+
+	/**
+	 * Makes many decisions in the current second, then moves the clock to the next one.
+	 * The rate is adjusted by the first decision of the next second.
+	 */
+	private int sampleForASecond() {
+		int sampled = countSampled(100000);
+		this.nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		return sampled;
+	}
+
+	private int countSampled(int decisions) {
+		int sampled = 0;
+		for (int i = 0; i < decisions; i++) {
+			if (this.sampler.next()) {
+				sampled++;
+			}
+		}
+		return sampled;
+	}
+
+	private AdaptiveSampler sampler(int spansPerSecond) {
+		return sampler(spansPerSecond, this.queue);
+	}
+
+	private AdaptiveSampler sampler(int spansPerSecond, SpanQueueStatus queue) {
+		return new AdaptiveSampler(spansPerSecond, queue) {
+			@Override
+			long nanoTime() {
+				return AdaptiveSamplerTests.this.nanoTime.get();
+			}
+		};
+	}
+
+	static class TestQueue implements SpanQueueStatus {
+		int queued;
+		long accepted;
+		long dropped;
+
+		@Override
+		public int getQueuedSpans() {
+			return this.queued;
+		}
+
+		@Override
+		public int getQueueCapacity() {
+			return 1000;
+		}
+
+		@Override
+		public long getAcceptedSpans() {
+			return this.accepted;
+		}
+
+		@Override
+		public long getDroppedSpans() {
+			return this.dropped;
+		}
+	}
+
+}
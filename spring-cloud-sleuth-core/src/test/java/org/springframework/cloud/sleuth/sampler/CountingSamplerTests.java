@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.sampler;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class CountingSamplerTests {
+
+	@Test
+	public void should_sample_exactly_the_percentage_of_every_100_decisions() {
+		CountingSampler sampler = new CountingSampler(0.2f);
+
+		for (int window = 0; window < 3; window++) {
+			then(countSampled(sampler, 100)).isEqualTo(20);
+		}
+	}
+
+	@Test
+	public void should_sample_exactly_the_percentage_of_every_10000_decisions() {
+		CountingSampler sampler = new CountingSampler(0.0001f);
+
+		for (int window = 0; window < 3; window++) {
+			then(countSampled(sampler, 10000)).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void should_pass_all_samples_when_percentage_is_1() {
+		then(countSampled(new CountingSampler(1f), 1000)).isEqualTo(1000);
+	}
+
+	@Test
+	public void should_reject_all_samples_when_percentage_is_0() {
+		then(countSampled(new CountingSampler(0f), 1000)).isZero();
+	}
+
+	@Test
+	public void should_read_the_percentage_from_the_configuration() {
+		SamplerConfiguration configuration = new SamplerConfiguration();
+		configuration.setPercentage(0.5f);
+
+		then(countSampled(new CountingSampler(configuration), 100)).isEqualTo(50);
+	}
+
+	@Test
+	public void should_spread_the_sampled_decisions_across_the_window() {
+		CountingSampler sampler = new CountingSampler(0.5f, new Random(1L));
+
+		// 50 sampled decisions in a row would mean they were not shuffled
+		then(countSampled(sampler, 50)).isBetween(1, 49);
+	}
+
+	@Test
+	public void should_keep_the_rate_exact_across_threads() throws Exception {
+		final CountingSampler sampler = new CountingSampler(0.1f);
+		final AtomicInteger sampled = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 8; i++) {
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					sampled.addAndGet(countSampled(sampler, 10000));
+				}
+			});
+		}
+		executor.shutdown();
+		then(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		then(sampled.get()).isEqualTo(8000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void should_reject_percentages_over_1() {
+		new CountingSampler(1.5f);
+	}
+
+	private static int countSampled(CountingSampler sampler, int decisions) {
+		int sampled = 0;
+		for (int i = 0; i < decisions; i++) {
+			if (sampler.next()) {
+				sampled++;
+			}
+		}
+		return sampled;
+	}
+
+}
@@ -46,6 +46,64 @@ public class PercentageBasedSamplerTests {
 		then(numberOfSampledElements).isCloseTo((int) (numberOfIterations * percentage), withPercentage(3));
 	}
 
+	@Test
+	public void should_pass_fractions_of_a_percent_of_samples() throws Exception {
+		int numberOfIterations = 100000;
+		float percentage = 0.01f;
+		this.samplerConfiguration.setPercentage(percentage);
+
+		int numberOfSampledElements = countNumberOfSampledElements(numberOfIterations);
+
+		then(numberOfSampledElements).isCloseTo((int) (numberOfIterations * percentage), withPercentage(20));
+	}
+
+	@Test
+	public void should_sample_new_traces_when_there_is_no_current_span() throws Exception {
+		int numberOfIterations = 10000;
+		this.samplerConfiguration.setPercentage(0.5f);
+		PercentageBasedSampler sampler = new PercentageBasedSampler(this.samplerConfiguration, new TraceAccessor() {
+			@Override
+			public Span getCurrentSpan() {
+				return null;
+			}
+
+			@Override
+			public boolean isTracing() {
+				return false;
+			}
+		});
+
+		int passedCounter = 0;
+		for (int i = 0; i < numberOfIterations; i++) {
+			passedCounter = passedCounter + (sampler.next() ? 1 : 0);
+		}
+
+		then(passedCounter).isCloseTo(numberOfIterations / 2, withPercentage(5));
+	}
+
+	@Test
+	public void should_make_the_same_decision_for_the_same_trace() throws Exception {
+		this.samplerConfiguration.setPercentage(0.5f);
+		final Span span = this.traceAccessor.getCurrentSpan();
+		TraceAccessor sameTrace = new TraceAccessor() {
+			@Override
+			public Span getCurrentSpan() {
+				return span;
+			}
+
+			@Override
+			public boolean isTracing() {
+				return true;
+			}
+		};
+
+		boolean decision = new PercentageBasedSampler(this.samplerConfiguration, sameTrace).next();
+
+		for (int i = 0; i < 10; i++) {
+			then(new PercentageBasedSampler(this.samplerConfiguration, sameTrace).next()).isEqualTo(decision);
+		}
+	}
+
 	private int countNumberOfSampledElements(int numberOfIterations) {
 		int passedCounter = 0;
 		for (int i = 0; i < numberOfIterations; i++) {
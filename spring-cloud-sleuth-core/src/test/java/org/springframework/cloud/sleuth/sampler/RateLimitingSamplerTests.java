@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.sampler;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class RateLimitingSamplerTests {
+
+	AtomicLong nanoTime = new AtomicLong();
+
+	RateLimitingSampler sampler = sampler(10);
+
+	@Test
+	public void should_sample_up_to_the_rate_within_a_second() {
+		then(countSampled(this.sampler, 100)).isEqualTo(10);
+	}
+
+	@Test
+	public void should_sample_again_in_the_next_second() {
+		countSampled(this.sampler, 100);
+		this.nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+
+		then(this.sampler.next()).isFalse();
+
+		this.nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+
+		then(countSampled(this.sampler, 100)).isEqualTo(10);
+	}
+
+	@Test
+	public void should_not_carry_the_unused_budget_over() {
+		this.nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+		then(countSampled(this.sampler, 100)).isEqualTo(10);
+	}
+
+	@Test
+	public void should_reject_all_samples_when_rate_is_0() {
+		then(countSampled(sampler(0), 100)).isZero();
+	}
+
+	@Test
+	public void should_read_the_rate_from_the_configuration() {
+		SamplerConfiguration configuration = new SamplerConfiguration();
+		configuration.setTracesPerSecond(3);
+
+		then(new RateLimitingSampler(configuration).getTracesPerSecond()).isEqualTo(3);
+	}
+
+	@Test
+	public void should_not_exceed_the_rate_across_threads() throws Exception {
+		final RateLimitingSampler sampler = sampler(1000);
+		final AtomicInteger sampled = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		for (int i = 0; i < 16; i++) {
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+					sampled.addAndGet(countSampled(sampler, 1000));
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		then(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		then(sampled.get()).isEqualTo(1000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void should_reject_negative_rates() {
+		new RateLimitingSampler(-1);
+	}
+
+	private RateLimitingSampler sampler(int tracesPerSecond) {
+		return new RateLimitingSampler(tracesPerSecond) {
+			@Override
+			long nanoTime() {
+				return RateLimitingSamplerTests.this.nanoTime.get();
+			}
+		};
+	}
+
+	private static int countSampled(RateLimitingSampler sampler, int decisions) {
+		int sampled = 0;
+		for (int i = 0; i < decisions; i++) {
+			if (sampler.next()) {
+				sampled++;
+			}
+		}
+		return sampled;
+	}
+
+}
@@ -24,6 +24,7 @@ import org.junit.runner.RunWith;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.boot.test.WebIntegrationTest;
 import org.springframework.cloud.sleuth.zipkin.HttpZipkinSpanReporter;
+import org.springframework.cloud.sleuth.zipkin.SpanReporterMetrics;
 import org.springframework.cloud.sleuth.zipkin.ZipkinProperties;
 import org.springframework.cloud.sleuth.zipkin.ZipkinSpanReporter;
 import org.springframework.context.annotation.Bean;
@@ -91,7 +92,7 @@ public class ZipkinTests extends AbstractIntegrationTest {
 		}
 
 		private ZipkinSpanReporter getSpanCollector(ZipkinProperties zipkin) {
-			return new HttpZipkinSpanReporter(zipkin.getBaseUrl(), zipkin.getFlushInterval());
+			return new HttpZipkinSpanReporter(zipkin, SpanReporterMetrics.NOOP);
 		}
 	}
 }
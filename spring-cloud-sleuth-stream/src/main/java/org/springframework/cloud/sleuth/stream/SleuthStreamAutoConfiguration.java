@@ -17,7 +17,9 @@
 package org.springframework.cloud.sleuth.stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
@@ -26,6 +28,10 @@ import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.sleuth.Trace;
+import org.springframework.cloud.sleuth.export.OverflowPolicy;
+import org.springframework.cloud.sleuth.export.SpanQueueLifecycle;
+import org.springframework.cloud.sleuth.export.SpanQueueStatus;
+import org.springframework.cloud.sleuth.export.SpanRingBuffer;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.config.ChannelBindingAutoConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -67,8 +73,38 @@ public class SleuthStreamAutoConfiguration {
 	}
 
 	@Bean
-	public StreamSpanListener sleuthTracer(HostLocator endpointLocator) {
-		return new StreamSpanListener(endpointLocator);
+	public StreamSpanListener sleuthTracer(HostLocator endpointLocator,
+			SleuthStreamProperties properties, SleuthSource source) {
+		StreamSpanListener listener = new StreamSpanListener(endpointLocator);
+		listener.setOutput(source.output());
+		listener.setQueue(new SpanRingBuffer(properties.getQueueCapacity(),
+				OverflowPolicy.DROP_NEWEST));
+		listener.setMaxBatchSize(properties.getMaxBatchSize());
+		listener.setMaxWait(properties.getMaxWait());
+		return listener;
+	}
+
+	@Bean
+	public SpanQueueLifecycle sleuthStreamSpanQueueLifecycle(StreamSpanListener listener,
+			SleuthStreamProperties properties) {
+		return new SpanQueueLifecycle(listener, properties.getShutdownTimeout());
+	}
+
+	@Bean
+	@Qualifier(SpanQueueStatus.EXPORT_QUEUE)
+	public SpanQueueStatus sleuthStreamSpanQueueStatus(StreamSpanListener listener) {
+		return listener.getQueue();
+	}
+
+	@Configuration
+	@ConditionalOnClass(PublicMetrics.class)
+	protected static class SleuthStreamMetricsConfiguration {
+
+		@Bean
+		public SleuthStreamMetrics sleuthStreamMetrics(StreamSpanListener listener) {
+			return new SleuthStreamMetrics(listener);
+		}
+
 	}
 
 	@Configuration
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.stream;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.cloud.sleuth.export.SpanRingBuffer;
+
+/**
+ * Exposes the state of the {@link StreamSpanListener} queue: how many spans are waiting
+ * to be sent and how many have been accepted or dropped so far.
+ */
+public class SleuthStreamMetrics implements PublicMetrics {
+
+	private final StreamSpanListener listener;
+
+	public SleuthStreamMetrics(StreamSpanListener listener) {
+		this.listener = listener;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		SpanRingBuffer queue = this.listener.getQueue();
+		List<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Number>("gauge.sleuth.stream.queue.depth", queue.size()));
+		metrics.add(new Metric<Number>("gauge.sleuth.stream.queue.capacity",
+				queue.getCapacity()));
+		metrics.add(new Metric<Number>("counter.sleuth.stream.spans.accepted",
+				queue.getAcceptedSpans()));
+		metrics.add(new Metric<Number>("counter.sleuth.stream.spans.dropped",
+				queue.getDroppedSpans()));
+		return metrics;
+	}
+
+}
@@ -27,4 +27,18 @@ import lombok.Data;
 @Data
 public class SleuthStreamProperties {
 	private boolean enabled = true;
+	/** Maximum number of spans waiting to be sent. Spans are dropped when it is reached. */
+	private int queueCapacity = StreamSpanListener.DEFAULT_QUEUE_CAPACITY;
+	/** Maximum number of spans sent in one message. */
+	private int maxBatchSize = 100;
+	/**
+	 * Maximum time in milliseconds spans wait for a full batch before a smaller one is
+	 * sent.
+	 */
+	private long maxWait = 1000;
+	/**
+	 * Time in milliseconds allowed on shutdown to send the spans still queued. Whatever
+	 * is left after that is dropped.
+	 */
+	private long shutdownTimeout = 5000;
 }
@@ -19,99 +19,199 @@ package org.springframework.cloud.sleuth.stream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.cloud.sleuth.Span;
-import org.springframework.cloud.sleuth.event.ClientReceivedEvent;
-import org.springframework.cloud.sleuth.event.ClientSentEvent;
-import org.springframework.cloud.sleuth.event.ServerReceivedEvent;
-import org.springframework.cloud.sleuth.event.ServerSentEvent;
-import org.springframework.cloud.sleuth.event.SpanAcquiredEvent;
-import org.springframework.cloud.sleuth.event.SpanReleasedEvent;
-import org.springframework.context.event.EventListener;
+import org.springframework.cloud.sleuth.event.SpanListenerAdapter;
+import org.springframework.cloud.sleuth.export.DrainableSpanQueue;
+import org.springframework.cloud.sleuth.export.OverflowPolicy;
+import org.springframework.cloud.sleuth.export.SpanRingBuffer;
 import org.springframework.core.annotation.Order;
 import org.springframework.integration.annotation.InboundChannelAdapter;
 import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import lombok.extern.apachecommons.CommonsLog;
 
 /**
  * A message source for spans. Also handles RPC flavoured annotations.
  *
+ * <p>Completed spans are queued in a bounded, thread-safe buffer (spans are dropped
+ * when it is full) and sent in messages of at most {@link #setMaxBatchSize(int)
+ * maxBatchSize} spans. A smaller batch is only sent once its oldest span has waited
+ * {@link #setMaxWait(long) maxWait} milliseconds, so the size of the messages does not
+ * depend on how often the poller runs.
+ *
+ * <p>On shutdown, {@link #drain(long, TimeUnit) draining} the listener sends the queued
+ * spans straight to the {@link #setOutput(MessageChannel) output channel}, without
+ * waiting for the poller.
+ *
  * @author Dave Syer
  */
 @MessageEndpoint
-public class StreamSpanListener {
+@Order(0)
+@CommonsLog
+public class StreamSpanListener extends SpanListenerAdapter implements DrainableSpanQueue {
 
 	public static final String CLIENT_RECV = "cr";
 	public static final String CLIENT_SEND = "cs";
 	public static final String SERVER_RECV = "sr";
 	public static final String SERVER_SEND = "ss";
 
-	private List<Span> queue = new ArrayList<>();
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+	private SpanRingBuffer queue = new SpanRingBuffer(DEFAULT_QUEUE_CAPACITY,
+			OverflowPolicy.DROP_NEWEST);
 	private HostLocator endpointLocator;
+	private MessageChannel output;
+	private volatile boolean accepting = true;
+	private int maxBatchSize = 100;
+	private long maxWait = 1000;
+	// When the spans waiting for the next batch were first seen by the poller
+	private long batchStart;
 
 	public StreamSpanListener(HostLocator endpointLocator) {
 		this.endpointLocator = endpointLocator;
 	}
 
-	public void setQueue(List<Span> queue) {
+	public void setQueue(SpanRingBuffer queue) {
 		this.queue = queue;
 	}
 
-	@EventListener
-	@Order(0)
-	public void start(SpanAcquiredEvent event) {
-		event.getSpan().log("acquire");
+	public SpanRingBuffer getQueue() {
+		return this.queue;
+	}
+
+	/**
+	 * @param output where {@link #drain(long, TimeUnit)} sends the queued spans, normally
+	 * the {@link SleuthSource#OUTPUT} channel the poller sends them to
+	 */
+	public void setOutput(MessageChannel output) {
+		this.output = output;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	@Override
+	public void spanAcquired(Span parent, Span span) {
+		span.log("acquire");
 	}
 
-	@EventListener
-	@Order(0)
-	public void serverReceived(ServerReceivedEvent event) {
-		if (event.getParent() != null && event.getParent().isRemote()) {
-			event.getParent().log(SERVER_RECV);
+	@Override
+	public void serverReceived(Span parent, Span span) {
+		if (parent != null && parent.isRemote()) {
+			parent.log(SERVER_RECV);
 		}
 	}
 
-	@EventListener
-	@Order(0)
-	public void clientSend(ClientSentEvent event) {
-		event.getSpan().log(CLIENT_SEND);
+	@Override
+	public void clientSent(Span span) {
+		span.log(CLIENT_SEND);
 	}
 
-	@EventListener
-	@Order(0)
-	public void clientReceive(ClientReceivedEvent event) {
-		event.getSpan().log(CLIENT_RECV);
+	@Override
+	public void clientReceived(Span span) {
+		span.log(CLIENT_RECV);
 	}
 
-	@EventListener
-	@Order(0)
-	public void serverSend(ServerSentEvent event) {
-		if (event.getParent() != null && event.getParent().isRemote()) {
-			event.getParent().log(SERVER_SEND);
-			this.queue.add(event.getParent());
+	@Override
+	public void serverSent(Span parent, Span span) {
+		if (parent != null && parent.isRemote()) {
+			parent.log(SERVER_SEND);
+			enqueue(parent);
 		}
 	}
 
-	@EventListener
-	@Order(0)
-	public void release(SpanReleasedEvent event) {
-		event.getSpan().log("release");
-		if (event.getSpan().isExportable()) {
-			this.queue.add(event.getSpan());
+	@Override
+	public void spanReleased(Span parent, Span span) {
+		span.log("release");
+		if (span.isExportable()) {
+			enqueue(span);
+		}
+	}
+
+	private void enqueue(Span span) {
+		if (this.accepting) {
+			this.queue.offer(span);
 		}
 	}
 
 	@InboundChannelAdapter(value = SleuthSource.OUTPUT)
 	public Spans poll() {
-		List<Span> result = new ArrayList<>(this.queue);
-		this.queue.clear();
+		int pending = this.queue.size();
+		if (pending == 0) {
+			this.batchStart = 0;
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		if (this.batchStart == 0) {
+			this.batchStart = now;
+		}
+		if (pending < this.maxBatchSize && now - this.batchStart < this.maxWait) {
+			return null;
+		}
+		List<Span> result = takeBatch(pending);
+		this.batchStart = this.queue.isEmpty() ? 0 : now;
+		return result.isEmpty() ? null
+				: new Spans(this.endpointLocator.locate(result.get(0)), result);
+	}
+
+	private List<Span> takeBatch(int pending) {
+		List<Span> result = new ArrayList<>(Math.min(pending, this.maxBatchSize));
+		this.queue.drainTo(result, this.maxBatchSize);
 		for (Iterator<Span> iterator = result.iterator(); iterator.hasNext();) {
 			Span span = iterator.next();
 			if (span.getName() != null && span.getName().equals("message/zipkin")) {
 				iterator.remove();
 			}
 		}
-		return result.isEmpty() ? null
-				: new Spans(this.endpointLocator.locate(result.get(0)), result);
+		return result;
+	}
+
+	@Override
+	public void stopAccepting() {
+		this.accepting = false;
+	}
+
+	@Override
+	public int drain(long timeout, TimeUnit unit) {
+		if (this.output == null) {
+			return 0;
+		}
+		long start = System.nanoTime();
+		long timeoutNanos = unit.toNanos(timeout);
+		int sent = 0;
+		int pending;
+		while ((pending = this.queue.size()) > 0
+				&& System.nanoTime() - start < timeoutNanos) {
+			List<Span> batch = takeBatch(pending);
+			if (batch.isEmpty()) {
+				continue;
+			}
+			try {
+				this.output.send(MessageBuilder.withPayload(
+						new Spans(this.endpointLocator.locate(batch.get(0)), batch))
+						.build());
+			}
+			catch (RuntimeException e) {
+				log.warn("Failed to send " + batch.size() + " spans on shutdown", e);
+				break;
+			}
+			sent += batch.size();
+		}
+		return sent;
+	}
+
+	@Override
+	public int abandon() {
+		return this.queue.clear();
 	}
 
 }
@@ -16,10 +16,10 @@
 
 package org.springframework.cloud.sleuth.stream;
 
+import static org.assertj.core.api.BDDAssertions.then;
 import static org.junit.Assert.assertEquals;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 
@@ -34,20 +34,18 @@ import org.springframework.cloud.sleuth.Span;
 import org.springframework.cloud.sleuth.Trace;
 import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.cloud.sleuth.autoconfig.TraceAutoConfiguration;
-import org.springframework.cloud.sleuth.event.ClientReceivedEvent;
-import org.springframework.cloud.sleuth.event.ClientSentEvent;
-import org.springframework.cloud.sleuth.event.ServerReceivedEvent;
-import org.springframework.cloud.sleuth.event.ServerSentEvent;
+import org.springframework.cloud.sleuth.export.OverflowPolicy;
+import org.springframework.cloud.sleuth.export.SpanRingBuffer;
 import org.springframework.cloud.sleuth.sampler.AlwaysSampler;
 import org.springframework.cloud.sleuth.stream.StreamSpanListenerTests.TestConfiguration;
 import org.springframework.cloud.stream.config.ChannelBindingAutoConfiguration;
 import org.springframework.cloud.stream.test.binder.TestSupportBinderAutoConfiguration;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.integration.annotation.MessageEndpoint;
 import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.integration.channel.QueueChannel;
 import org.springframework.messaging.Message;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -62,9 +60,6 @@ public class StreamSpanListenerTests {
 	@Autowired
 	private Tracer tracer;
 
-	@Autowired
-	private ApplicationContext application;
-
 	@Autowired
 	private ZipkinTestConfiguration test;
 
@@ -88,12 +83,10 @@ public class StreamSpanListenerTests {
 		Span parent = MilliSpan.builder().traceId(1L).name("parent").remote(true)
 				.build();
 		Trace context = this.tracer.joinTrace("child", parent);
-		this.application.publishEvent(new ClientSentEvent(this, context.getSpan()));
-		this.application
-				.publishEvent(new ServerReceivedEvent(this, parent, context.getSpan()));
-		this.application
-				.publishEvent(new ServerSentEvent(this, parent, context.getSpan()));
-		this.application.publishEvent(new ClientReceivedEvent(this, context.getSpan()));
+		this.listener.clientSent(context.getSpan());
+		this.listener.serverReceived(parent, context.getSpan());
+		this.listener.serverSent(parent, context.getSpan());
+		this.listener.clientReceived(context.getSpan());
 		this.tracer.close(context);
 		assertEquals(2, this.test.spans.size());
 	}
@@ -101,13 +94,80 @@ public class StreamSpanListenerTests {
 	@Test
 	public void nullSpanName() {
 		Trace context = this.tracer.startTrace(null, (Sampler) null);
-		this.application.publishEvent(new ClientSentEvent(this, context.getSpan()));
+		this.listener.clientSent(context.getSpan());
 		this.tracer.close(context);
 		assertEquals(1, this.test.spans.size());
 		this.listener.poll();
 		assertEquals(0, this.test.spans.size());
 	}
 
+	@Test
+	public void pollSendsAtMostMaxBatchSizeSpans() {
+		StreamSpanListener listener = listener(2, 0);
+		for (int i = 0; i < 5; i++) {
+			listener.spanReleased(null, MilliSpan.builder().name("span" + i).build());
+		}
+
+		then(listener.poll().getSpans()).hasSize(2);
+		then(listener.poll().getSpans()).hasSize(2);
+		then(listener.poll().getSpans()).hasSize(1);
+		then(listener.poll()).isNull();
+	}
+
+	@Test
+	public void pollWaitsForAFullBatch() throws Exception {
+		StreamSpanListener listener = listener(2, 50);
+		listener.spanReleased(null, MilliSpan.builder().name("foo").build());
+
+		then(listener.poll()).isNull();
+		listener.spanReleased(null, MilliSpan.builder().name("bar").build());
+		then(listener.poll().getSpans()).hasSize(2);
+
+		listener.spanReleased(null, MilliSpan.builder().name("baz").build());
+		then(listener.poll()).isNull();
+		Thread.sleep(60);
+		then(listener.poll().getSpans()).hasSize(1);
+	}
+
+	@Test
+	public void dropsSpansWhenTheQueueIsFull() {
+		StreamSpanListener listener = listener(10, 0);
+		listener.setQueue(new SpanRingBuffer(2, OverflowPolicy.DROP_NEWEST));
+		for (int i = 0; i < 3; i++) {
+			listener.spanReleased(null, MilliSpan.builder().name("span" + i).build());
+		}
+
+		then(listener.getQueue().getDroppedSpans()).isEqualTo(1);
+		then(listener.poll().getSpans()).hasSize(2);
+	}
+
+	@Test
+	public void drainSendsTheQueuedSpansWithoutWaitingForThePoller() {
+		StreamSpanListener listener = listener(2, 60000);
+		QueueChannel output = new QueueChannel();
+		listener.setOutput(output);
+		for (int i = 0; i < 3; i++) {
+			listener.spanReleased(null, MilliSpan.builder().name("span" + i).build());
+		}
+
+		listener.stopAccepting();
+		listener.spanReleased(null, MilliSpan.builder().name("late").build());
+
+		then(listener.drain(1, TimeUnit.SECONDS)).isEqualTo(3);
+		then(((Spans) output.receive(0).getPayload()).getSpans()).hasSize(2);
+		then(((Spans) output.receive(0).getPayload()).getSpans()).hasSize(1);
+		then(output.receive(0)).isNull();
+		then(listener.abandon()).isZero();
+	}
+
+	private StreamSpanListener listener(int maxBatchSize, long maxWait) {
+		StreamSpanListener listener = new StreamSpanListener(
+				new ServerPropertiesHostLocator(null, "foo"));
+		listener.setMaxBatchSize(maxBatchSize);
+		listener.setMaxWait(maxWait);
+		return listener;
+	}
+
 	@Configuration
 	@Import({ ZipkinTestConfiguration.class, SleuthStreamAutoConfiguration.class,
 			TestSupportBinderAutoConfiguration.class, ChannelBindingAutoConfiguration.class,
@@ -119,7 +179,7 @@ public class StreamSpanListenerTests {
 	@MessageEndpoint
 	protected static class ZipkinTestConfiguration {
 
-		private List<Span> spans = new ArrayList<>();
+		private SpanRingBuffer spans = new SpanRingBuffer(1000, OverflowPolicy.DROP_NEWEST);
 
 		@Autowired
 		StreamSpanListener listener;
@@ -136,6 +196,7 @@ public class StreamSpanListenerTests {
 		@PostConstruct
 		public void init() {
 			this.listener.setQueue(this.spans);
+			this.listener.setMaxWait(0);
 		}
 
 	}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import zipkin.BinaryAnnotation;
+import zipkin.Endpoint;
+
+/**
+ * Reuses the binary annotations of tags that keep the same value from one span to the
+ * next, like {@code http.method} or the local component, instead of building and UTF-8
+ * encoding them again for every span. Binary annotations are immutable, so one instance
+ * can be shared by any number of spans.
+ *
+ * <p>The cache is bounded: it holds at most {@code maxKeys} keys, and stops adding values
+ * for a key once it has {@code maxValuesPerKey} of them, so tags that take a different
+ * value for every span (urls, ids) don't fill it up.
+ */
+class BinaryAnnotationCache {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final Endpoint endpoint;
+	private final int maxKeys;
+	private final int maxValuesPerKey;
+	private final ConcurrentMap<String, ConcurrentMap<String, BinaryAnnotation>> annotations =
+			new ConcurrentHashMap<>();
+
+	BinaryAnnotationCache(Endpoint endpoint, int maxKeys, int maxValuesPerKey) {
+		this.endpoint = endpoint;
+		this.maxKeys = maxKeys;
+		this.maxValuesPerKey = maxValuesPerKey;
+	}
+
+	/**
+	 * @return a string binary annotation of the endpoint, cached if possible
+	 */
+	BinaryAnnotation get(String key, String value) {
+		ConcurrentMap<String, BinaryAnnotation> values = this.annotations.get(key);
+		if (values == null) {
+			if (this.annotations.size() >= this.maxKeys) {
+				return create(key, value);
+			}
+			values = new ConcurrentHashMap<>();
+			ConcurrentMap<String, BinaryAnnotation> existing = this.annotations
+					.putIfAbsent(key, values);
+			if (existing != null) {
+				values = existing;
+			}
+		}
+		BinaryAnnotation annotation = values.get(value);
+		if (annotation == null) {
+			annotation = create(key, value);
+			// the size check is racy, so the limit can be overshot by a few entries
+			if (values.size() < this.maxValuesPerKey) {
+				values.putIfAbsent(value, annotation);
+			}
+		}
+		return annotation;
+	}
+
+	private BinaryAnnotation create(String key, String value) {
+		return new BinaryAnnotation.Builder().type(BinaryAnnotation.Type.STRING).key(key)
+				.value(value.getBytes(UTF_8)).endpoint(this.endpoint).build();
+	}
+
+}
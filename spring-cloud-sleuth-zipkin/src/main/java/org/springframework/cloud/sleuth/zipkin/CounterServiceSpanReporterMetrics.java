@@ -0,0 +1,95 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+
+/**
+ * {@link SpanReporterMetrics} backed by the Spring Boot Actuator metric services. Message
+ * sizes and latencies are submitted as histograms, so they show up as distributions when
+ * Dropwizard metrics is on the classpath.
+ */
+public final class CounterServiceSpanReporterMetrics implements SpanReporterMetrics {
+  static final String ACCEPTED_SPANS = "zipkin.spans.accepted";
+  static final String DROPPED_SPANS = "zipkin.spans.dropped";
+  static final String QUEUED_SPANS = "zipkin.spans.queued";
+  static final String MESSAGES = "zipkin.messages";
+  static final String MESSAGE_BYTES = "histogram.zipkin.messages.bytes";
+  static final String MESSAGE_LATENCY = "histogram.zipkin.messages.latency";
+  static final String SPILLED_BYTES = "zipkin.spill.bytes.spilled";
+  static final String REPLAYED_BYTES = "zipkin.spill.bytes.replayed";
+  static final String EXPIRED_BYTES = "zipkin.spill.bytes.expired";
+
+  private final CounterService counterService;
+  private final GaugeService gaugeService;
+  private final Map<DropReason, String> droppedSpansByReason = new EnumMap<>(DropReason.class);
+  // Byte counts are too large to count one at a time, so totals are submitted as gauges
+  private final AtomicLong spilledBytes = new AtomicLong();
+  private final AtomicLong replayedBytes = new AtomicLong();
+  private final AtomicLong expiredBytes = new AtomicLong();
+
+  public CounterServiceSpanReporterMetrics(CounterService counterService,
+      GaugeService gaugeService) {
+    this.counterService = counterService;
+    this.gaugeService = gaugeService;
+    for (DropReason reason : DropReason.values()) {
+      droppedSpansByReason.put(reason,
+          DROPPED_SPANS + "." + reason.name().toLowerCase().replace('_', '-'));
+    }
+  }
+
+  @Override
+  public void incrementAcceptedSpans(int quantity) {
+    increment(ACCEPTED_SPANS, quantity);
+  }
+
+  @Override
+  public void incrementDroppedSpans(int quantity, DropReason reason) {
+    increment(DROPPED_SPANS, quantity);
+    increment(droppedSpansByReason.get(reason), quantity);
+  }
+
+  @Override
+  public void updateQueuedSpans(int quantity) {
+    gaugeService.submit(QUEUED_SPANS, quantity);
+  }
+
+  @Override
+  public void incrementMessages() {
+    counterService.increment(MESSAGES);
+  }
+
+  @Override
+  public void recordMessageBytes(int bytes) {
+    gaugeService.submit(MESSAGE_BYTES, bytes);
+  }
+
+  @Override
+  public void recordMessageLatency(long millis) {
+    gaugeService.submit(MESSAGE_LATENCY, millis);
+  }
+
+  @Override
+  public void incrementSpilledBytes(int bytes) {
+    gaugeService.submit(SPILLED_BYTES, spilledBytes.addAndGet(bytes));
+  }
+
+  @Override
+  public void incrementReplayedBytes(int bytes) {
+    gaugeService.submit(REPLAYED_BYTES, replayedBytes.addAndGet(bytes));
+  }
+
+  @Override
+  public void incrementExpiredBytes(int bytes) {
+    gaugeService.submit(EXPIRED_BYTES, expiredBytes.addAndGet(bytes));
+  }
+
+  // CounterService only counts one at a time
+  private void increment(String name, int quantity) {
+    for (int i = 0; i < quantity; i++) {
+      counterService.increment(name);
+    }
+  }
+}
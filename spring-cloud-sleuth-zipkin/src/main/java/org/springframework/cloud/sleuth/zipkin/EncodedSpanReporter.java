@@ -0,0 +1,15 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+/**
+ * A {@link ZipkinSpanReporter} that also takes spans already encoded for transport, so
+ * that callers able to write the wire format directly can skip building {@link
+ * zipkin.Span} objects.
+ */
+public interface EncodedSpanReporter extends ZipkinSpanReporter {
+
+  /** How spans passed to {@link #reportEncoded(byte[])} must be encoded. */
+  SpanEncoder encoder();
+
+  /** Receives a completed span, encoded with the {@link #encoder()}. */
+  void reportEncoded(byte[] span);
+}
@@ -0,0 +1,79 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzips message bodies with a {@link Deflater} and an output buffer that are reused from
+ * one message to the next, so compressing doesn't allocate once the buffer has grown to
+ * the usual message size. Not thread-safe: each sender thread uses its own instance.
+ */
+public final class GzipCompressor {
+  // magic number, deflate, no flags, no modification time, no extra flags, unknown OS
+  static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+  static final int TRAILER_LENGTH = 8;
+
+  private final Deflater deflater;
+  private final CRC32 crc = new CRC32();
+  private byte[] buffer = new byte[4096];
+  private int length;
+
+  public GzipCompressor() {
+    this(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /** @param level from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION} */
+  public GzipCompressor(int level) {
+    this.deflater = new Deflater(level, true); // raw deflate: the gzip framing is ours
+  }
+
+  /**
+   * Compresses the input into the {@link #buffer() buffer}, replacing what a previous call
+   * left there.
+   *
+   * @return the number of compressed bytes, also available as {@link #length()}
+   */
+  public int compress(byte[] input) {
+    deflater.reset();
+    deflater.setInput(input);
+    deflater.finish();
+    crc.reset();
+    crc.update(input, 0, input.length);
+
+    System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+    int position = HEADER.length;
+    while (!deflater.finished()) {
+      if (position == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      position += deflater.deflate(buffer, position, buffer.length - position);
+    }
+    if (position + TRAILER_LENGTH > buffer.length) {
+      buffer = Arrays.copyOf(buffer, position + TRAILER_LENGTH);
+    }
+    position = writeIntLe(position, (int) crc.getValue());
+    length = writeIntLe(position, input.length);
+    return length;
+  }
+
+  private int writeIntLe(int position, int value) {
+    buffer[position++] = (byte) value;
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) (value >>> 16);
+    buffer[position++] = (byte) (value >>> 24);
+    return position;
+  }
+
+  /** The last compressed message, from index 0 up to {@link #length()}. */
+  public byte[] buffer() {
+    return buffer;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /** Releases the native memory held by the deflater. */
+  public void end() {
+    deflater.end();
+  }
+}
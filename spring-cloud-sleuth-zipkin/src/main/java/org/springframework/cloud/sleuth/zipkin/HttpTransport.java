@@ -0,0 +1,24 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Sends messages of encoded spans for a {@link HttpZipkinSpanReporter}. Implementations are
+ * called from several sender threads at once, and should pool connections and honour
+ * timeouts so that a slow collector can't block the senders indefinitely.
+ */
+public interface HttpTransport {
+
+  /**
+   * POSTs the first {@code length} bytes of the body to the url.
+   *
+   * @param contentEncoding null unless the body is compressed, like "gzip"
+   * @param timeout upper bound in milliseconds for the connect and read timeouts of this
+   * request, as when the reporter is draining before shutdown. 0 leaves them as configured.
+   * @throws IOException if the message could not be delivered, including when the
+   * collector responds with an error status
+   */
+  void post(URL url, String contentType, String contentEncoding, byte[] body, int length,
+      int timeout) throws IOException;
+}
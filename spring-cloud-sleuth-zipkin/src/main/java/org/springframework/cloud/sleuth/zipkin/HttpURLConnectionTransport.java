@@ -0,0 +1,72 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * {@link HttpTransport} built on the JDK's {@link HttpURLConnection}.
+ *
+ * <p>The JDK keeps idle connections alive and reuses them for later requests to the same
+ * host, up to {@code http.maxConnections} (5 by default) per host. A connection is only
+ * returned to that pool once its response has been read completely, so responses are
+ * always drained, in bulk into a buffer each sender thread reuses.
+ */
+public final class HttpURLConnectionTransport implements HttpTransport {
+
+  private final int connectTimeout;
+  private final int readTimeout;
+  private final ThreadLocal<byte[]> drainBuffers = new ThreadLocal<byte[]>() {
+    @Override protected byte[] initialValue() {
+      return new byte[1024];
+    }
+  };
+
+  /**
+   * @param connectTimeout in milliseconds. 0 waits forever.
+   * @param readTimeout in milliseconds, while waiting for the collector to respond. 0 waits
+   * forever.
+   */
+  public HttpURLConnectionTransport(int connectTimeout, int readTimeout) {
+    this.connectTimeout = connectTimeout;
+    this.readTimeout = readTimeout;
+  }
+
+  @Override
+  public void post(URL url, String contentType, String contentEncoding, byte[] body, int length,
+      int timeout) throws IOException {
+    // intentionally not disconnecting, so as to use keep-alives
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setConnectTimeout(cap(connectTimeout, timeout));
+    connection.setReadTimeout(cap(readTimeout, timeout));
+    connection.setRequestMethod("POST");
+    connection.addRequestProperty("Content-Type", contentType);
+    if (contentEncoding != null) connection.addRequestProperty("Content-Encoding", contentEncoding);
+    connection.setDoOutput(true);
+    connection.setFixedLengthStreamingMode(length);
+    connection.getOutputStream().write(body, 0, length);
+
+    try (InputStream in = connection.getInputStream()) {
+      drain(in);
+    } catch (IOException e) {
+      try (InputStream err = connection.getErrorStream()) {
+        if (err != null) { // possible, if the connection was dropped
+          drain(err);
+        }
+      }
+      throw e;
+    }
+  }
+
+  /** 0 means no timeout for both arguments. */
+  static int cap(int timeout, int max) {
+    if (max == 0) return timeout;
+    return timeout == 0 ? max : Math.min(timeout, max);
+  }
+
+  private void drain(InputStream in) throws IOException {
+    byte[] buffer = drainBuffers.get();
+    while (in.read(buffer) != -1) ; // skip
+  }
+}
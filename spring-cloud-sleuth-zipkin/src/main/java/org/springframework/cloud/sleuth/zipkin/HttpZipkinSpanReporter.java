@@ -1,139 +1,605 @@
 package org.springframework.cloud.sleuth.zipkin;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.Flushable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.extern.apachecommons.CommonsLog;
-import zipkin.Codec;
+import org.springframework.cloud.sleuth.export.DrainableSpanQueue;
+import org.springframework.cloud.sleuth.export.SpanQueueStatus;
+import org.springframework.cloud.sleuth.zipkin.SpanReporterMetrics.DropReason;
 import zipkin.Span;
 
-import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
- * Submits spans using Zipkin's {@code POST /spans} endpoint.
+ * Submits spans using Zipkin's {@code POST /spans} endpoint, encoded as configured by {@link
+ * ZipkinProperties#getEncoder()}.
+ *
+ * <p>Spans are encoded as they are reported, then queued and sent in batches of at most {@link
+ * ZipkinProperties#getMaxSpansPerMessage()} spans, every {@link
+ * ZipkinProperties#getFlushInterval() flush interval} or as soon as a batch is full. Several
+ * batches can be in flight at once when {@link ZipkinProperties#getSenderThreads()} is more
+ * than one. Messages of at least {@link ZipkinProperties.Compression#getMinBytes()} bytes can
+ * be gzipped, which typically shrinks them five to ten times.
+ *
+ * <p>Messages that can't be sent are retried with an exponential backoff. Should the
+ * collector remain unreachable, they can be spilled to a {@link ZipkinProperties.Spill file}
+ * and replayed in order once it is back; until then, newer messages are spilled behind them.
+ *
+ * <p>As a {@link SpanQueueStatus}, the reporter counts the spans lost because the queue was
+ * full or the collector couldn't be reached, so samplers can back off.
  */
 @CommonsLog
-public final class HttpZipkinSpanReporter implements ZipkinSpanReporter, Flushable, Closeable {
+public final class HttpZipkinSpanReporter
+    implements EncodedSpanReporter, DrainableSpanQueue, SpanQueueStatus, Flushable, Closeable {
   private static final Charset UTF_8 = Charset.forName("UTF-8");
+  // Deadlines are System.nanoTime() values. flush() has none
+  private static final long NO_DEADLINE = Long.MAX_VALUE;
 
-  private final String url;
-  private final BlockingQueue<Span> pending = new LinkedBlockingQueue<>(1000);
+  private final URL url;
+  private final HttpTransport transport;
+  private final SpanEncoder encoder;
+  private final BlockingQueue<byte[]> pending; // encoded spans
+  private final int queueCapacity;
+  private final AtomicLong acceptedSpans = new AtomicLong();
+  private final AtomicLong overloadDroppedSpans = new AtomicLong(); // queue full or unsent
+  private final AtomicInteger unsentOnDrain = new AtomicInteger(); // reported by abandon()
+  private final int maxSpansPerMessage;
+  private final int maxBytesPerMessage;
+  private final int compressionMinBytes; // Integer.MAX_VALUE when compression is disabled
+  // Every thread's compressor, so that close() can release their native memory
+  private final ConcurrentMap<Thread, GzipCompressor> allCompressors = new ConcurrentHashMap<>();
+  private final ThreadLocal<GzipCompressor> compressors = new ThreadLocal<>();
+  // Set by close(): threads still sending afterwards end their own compressor
+  private volatile boolean compressorsReleased;
+  private final int maxAttempts;
+  private final long initialBackoff;
+  private final long maxBackoff;
+  private final SpillFile spill; // Null when spilling is disabled
+  private final long spillMaxAge;
+  // Replaying one message at a time is what keeps them in order
+  private final ReentrantLock replayLock = new ReentrantLock();
+  // Whether the last POST failed, so that senders waiting for a replay don't try again
+  private volatile boolean unreachable;
   private final Flusher flusher; // Nullable for testing
+  private volatile boolean accepting = true;
+  private final SpanReporterMetrics metrics;
 
   /**
    * @param baseUrl URL of the zipkin query server instance. Like: http://localhost:9411/
    * @param flushInterval in seconds. 0 implies spans are {@link #flush() flushed} externally.
    */
   public HttpZipkinSpanReporter(String baseUrl, int flushInterval) {
-    this.url = baseUrl + (baseUrl.endsWith("/") ? "" : "/") + "api/v1/spans";
-    this.flusher = flushInterval > 0 ? new Flusher(this, flushInterval) : null;
+    this(baseUrl, flushInterval, SpanReporterMetrics.NOOP);
   }
 
   /**
-   * Queues the span for collection, or drops it if the queue is full.
+   * @param baseUrl URL of the zipkin query server instance. Like: http://localhost:9411/
+   * @param flushInterval in seconds. 0 implies spans are {@link #flush() flushed} externally.
+   * @param metrics records accepted and dropped spans, queue depth and POST statistics
+   */
+  public HttpZipkinSpanReporter(String baseUrl, int flushInterval, SpanReporterMetrics metrics) {
+    this(properties(baseUrl, flushInterval), metrics);
+  }
+
+  /**
+   * @param zipkin where and how to send spans. A flush interval of 0 implies spans are
+   * {@link #flush() flushed} externally.
+   * @param metrics records accepted and dropped spans, queue depth and POST statistics
+   */
+  public HttpZipkinSpanReporter(ZipkinProperties zipkin, SpanReporterMetrics metrics) {
+    this(zipkin, new HttpURLConnectionTransport(zipkin.getConnectTimeout(),
+        zipkin.getReadTimeout()), metrics);
+  }
+
+  /**
+   * @param zipkin where and how to send spans. A flush interval of 0 implies spans are
+   * {@link #flush() flushed} externally.
+   * @param transport sends the messages. The connect and read timeouts in {@code zipkin}
+   * are up to the transport.
+   * @param metrics records accepted and dropped spans, queue depth and POST statistics
+   */
+  public HttpZipkinSpanReporter(ZipkinProperties zipkin, HttpTransport transport,
+      SpanReporterMetrics metrics) {
+    String baseUrl = zipkin.getBaseUrl();
+    try {
+      this.url = new URL(baseUrl + (baseUrl.endsWith("/") ? "" : "/") + "api/v1/spans");
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException("Invalid zipkin base url: " + baseUrl, e);
+    }
+    this.transport = transport;
+    this.metrics = metrics;
+    this.encoder = zipkin.getEncoder();
+    this.pending = new LinkedBlockingQueue<>(zipkin.getQueueCapacity());
+    this.queueCapacity = zipkin.getQueueCapacity();
+    this.maxSpansPerMessage = zipkin.getMaxSpansPerMessage();
+    this.maxBytesPerMessage = zipkin.getMaxBytesPerMessage();
+    this.compressionMinBytes = zipkin.getCompression().isEnabled()
+        ? zipkin.getCompression().getMinBytes()
+        : Integer.MAX_VALUE;
+    ZipkinProperties.Retry retry = zipkin.getRetry();
+    this.maxAttempts = Math.max(1, retry.getMaxAttempts());
+    this.initialBackoff = retry.getInitialBackoff();
+    this.maxBackoff = retry.getMaxBackoff();
+    this.spill = openSpillFile(zipkin.getSpill());
+    this.spillMaxAge = zipkin.getSpill().getMaxAge();
+    long flushIntervalMillis = (long) (zipkin.getFlushInterval() * 1000);
+    this.flusher = flushIntervalMillis > 0
+        ? new Flusher(this, flushIntervalMillis, zipkin.getSenderThreads(), new Runnable() {
+          @Override public void run() {
+            endCompressor();
+          }
+        })
+        : null;
+  }
+
+  private static SpillFile openSpillFile(ZipkinProperties.Spill spill) {
+    if (spill.getPath() == null) return null;
+    try {
+      return SpillFile.open(new File(spill.getPath()), spill.getMaxBytes());
+    } catch (IOException e) {
+      log.warn("Could not open spill file " + spill.getPath()
+          + ", spans that can't be sent will be dropped", e);
+      return null;
+    }
+  }
+
+  private static ZipkinProperties properties(String baseUrl, int flushInterval) {
+    ZipkinProperties zipkin = new ZipkinProperties();
+    zipkin.setBaseUrl(baseUrl);
+    zipkin.setFlushInterval(flushInterval);
+    return zipkin;
+  }
+
+  /**
+   * Queues the span for collection, or drops it if the queue is full. Starts sending right
+   * away once a full batch is queued.
    *
    * @param span Span, should not be <code>null</code>.
    */
   @Override
   public void report(Span span) {
-    // TODO: metrics.incrementAcceptedSpans(1);
-    if (!pending.offer(span)) {
-      // TODO: metrics.incrementDroppedSpans(1);
+    byte[] encoded = encoder.encode(span);
+    // NOTE: https://github.com/openzipkin/zipkin-java/issues/66 will throw instead of return null.
+    if (encoded == null) {
+      log.debug("failed to encode span, dropping it: " + span);
+      metrics.incrementAcceptedSpans(1);
+      metrics.incrementDroppedSpans(1, DropReason.ENCODING_FAILURE);
+      return;
+    }
+    reportEncoded(encoded);
+  }
+
+  @Override
+  public SpanEncoder encoder() {
+    return encoder;
+  }
+
+  /**
+   * Like {@link #report(Span)}, for a span already encoded with the {@link #encoder()}.
+   */
+  @Override
+  public void reportEncoded(byte[] span) {
+    metrics.incrementAcceptedSpans(1);
+    if (!accepting) {
+      metrics.incrementDroppedSpans(1, DropReason.SHUTDOWN);
+      return;
+    }
+    if (pending.offer(span)) {
+      acceptedSpans.incrementAndGet();
+    } else {
+      overloadDroppedSpans.incrementAndGet();
+      metrics.incrementDroppedSpans(1, DropReason.QUEUE_FULL);
+    }
+    if (flusher != null && pending.size() >= maxSpansPerMessage) {
+      flusher.trigger();
     }
   }
 
   /**
    * Calling this will flush any pending spans to the http transport on the current thread.
+   * Spans reported while flushing may be left for the next flush. Spilled messages are
+   * replayed first.
    */
   @Override
   public void flush() {
-    if (pending.isEmpty()) return;
-    List<Span> drained = new ArrayList<>(pending.size());
-    pending.drainTo(drained);
-    if (drained.isEmpty()) return;
+    int remaining = pending.size();
+    metrics.updateQueuedSpans(remaining);
+    sendPending(remaining, NO_DEADLINE);
+  }
 
-    // json-encode the spans for transport
-    byte[] json = Codec.JSON.writeSpans(drained);
-    // NOTE: https://github.com/openzipkin/zipkin-java/issues/66 will throw instead of return null.
-    if (json == null) {
-      log.debug("failed to encode spans, dropping them: " + drained);
-      // TODO: metrics.incrementDroppedSpans(spanCount);
-      return;
+  /** Stops queueing spans: spans reported from now on are dropped. */
+  @Override
+  public void stopAccepting() {
+    accepting = false;
+    if (flusher != null) flusher.scheduler.shutdown();
+  }
+
+  /**
+   * Sends the queued spans on the current thread until none are left or the timeout has
+   * elapsed. Spans spilled to disk count as sent. Retries and the connect and read timeouts
+   * are cut short so as not to overrun the timeout; whatever could not be sent in time is
+   * left for {@link #abandon()}.
+   */
+  @Override
+  public int drain(long timeout, TimeUnit unit) {
+    metrics.updateQueuedSpans(pending.size());
+    return sendPending(Integer.MAX_VALUE, System.nanoTime() + unit.toNanos(timeout));
+  }
+
+  @Override
+  public int getQueuedSpans() {
+    return pending.size();
+  }
+
+  @Override
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  @Override
+  public long getAcceptedSpans() {
+    return acceptedSpans.get();
+  }
+
+  /** Spans dropped because the queue was full or they couldn't be sent nor spilled. */
+  @Override
+  public long getDroppedSpans() {
+    return overloadDroppedSpans.get();
+  }
+
+  /**
+   * Drops the queued spans.
+   *
+   * @return the number of spans dropped, plus those a {@link #drain(long, TimeUnit) drain}
+   * ran out of time to send
+   */
+  @Override
+  public int abandon() {
+    int dropped = pending.drainTo(new LinkedList<>());
+    if (dropped > 0) metrics.incrementDroppedSpans(dropped, DropReason.SHUTDOWN);
+    return dropped + unsentOnDrain.getAndSet(0);
+  }
+
+  /**
+   * Sends up to {@code maxSpans} queued spans, without starting a new message once the
+   * deadline has passed.
+   *
+   * @return the number of spans sent or spilled
+   */
+  private int sendPending(int maxSpans, long deadline) {
+    // While older messages wait in the spill file, newer ones queue up behind them
+    boolean spillOnly = spill != null && replaySpill(deadline) == Replay.FAILED;
+    List<byte[]> drained = new ArrayList<>(Math.min(pending.size(), maxSpansPerMessage));
+    int sent = 0;
+    while (maxSpans > 0 && nanosLeft(deadline) > 0) {
+      int count = pending.drainTo(drained, Math.min(maxSpans, maxSpansPerMessage));
+      if (count == 0) break; // another sender thread got there first
+      maxSpans -= count;
+      // Split so that no message is over the limit. A single span over it is still sent:
+      // the collector may accept it
+      for (int from = 0, to; from < count; from = to) {
+        int bytes = drained.get(from).length;
+        for (to = from + 1; to < count; to++) {
+          int next = bytes + drained.get(to).length;
+          if (encoder.messageSize(to - from + 1, next) > maxBytesPerMessage) break;
+          bytes = next;
+        }
+        // Once a message had to be spilled, the ones after it follow it there
+        sent += send(drained.subList(from, to), spillOnly || (spill != null && unreachable),
+            deadline);
+      }
+      drained.clear();
     }
+    return sent;
+  }
+
+  /** Outcome of {@link #replaySpill()}. */
+  enum Replay {
+    /** The spill file was already empty. */
+    NOTHING_PENDING,
+    /** Every spilled message has been sent or expired. */
+    REPLAYED,
+    /**
+     * The collector is still unreachable, or the deadline passed: messages are left in the
+     * spill file.
+     */
+    FAILED
+  }
 
-    // Send the json to the zipkin endpoint
+  private Replay replaySpill(long deadline) {
+    if (spill.isEmpty()) return Replay.NOTHING_PENDING;
+    boolean waited = !replayLock.tryLock();
+    // Another sender is replaying: wait for it rather than overtake the spilled messages
+    if (waited && !lockReplay(deadline)) return Replay.FAILED;
     try {
-      postSpans(json);
-    } catch (IOException e) {
-      if (log.isDebugEnabled()) { // don't pollute logs unless debug is on.
-        // TODO: logger test
-        log.debug("error POSTing spans to " + url + ": as json: " + new String(json, UTF_8), e);
+      if (spill.isEmpty()) return waited ? Replay.REPLAYED : Replay.NOTHING_PENDING;
+      // The sender we waited for just failed: no point in trying again right away
+      if (waited && unreachable) return Replay.FAILED;
+      SpillFile.Record record;
+      while ((record = spill.peek()) != null) {
+        int length = record.message.length;
+        if (System.currentTimeMillis() - record.timestamp > spillMaxAge) {
+          metrics.incrementExpiredBytes(length);
+          metrics.incrementDroppedSpans(record.spanCount, DropReason.EXPIRED);
+        } else {
+          long left = nanosLeft(deadline);
+          if (left <= 0) return Replay.FAILED;
+          try {
+            post(record.encoder, record.message, timeoutMillis(left));
+          } catch (IOException e) {
+            unreachable = true;
+            return Replay.FAILED; // try again on the next flush
+          }
+          metrics.incrementReplayedBytes(length);
+        }
+        spill.remove(record);
       }
-      // TODO: metrics.incrementDroppedSpans(spanCount);
-      return;
+      return Replay.REPLAYED;
+    } finally {
+      replayLock.unlock();
+    }
+  }
+
+  private boolean lockReplay(long deadline) {
+    if (deadline == NO_DEADLINE) {
+      replayLock.lock();
+      return true;
+    }
+    try {
+      return replayLock.tryLock(nanosLeft(deadline), NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /** Returns the number of spans sent or spilled. */
+  private int send(List<byte[]> spans, boolean spillOnly, long deadline) {
+    byte[] message = encoder.message(spans);
+
+    // Send the message to the zipkin endpoint
+    Post post = spillOnly ? Post.FAILED : postWithRetries(spans.size(), message, deadline);
+    if (post == Post.SENT) return spans.size();
+    if (spill != null
+        && spill.append(spans.size(), encoder, message, System.currentTimeMillis())) {
+      metrics.incrementSpilledBytes(message.length);
+      return spans.size();
+    }
+    if (post == Post.OUT_OF_TIME || nanosLeft(deadline) <= 0) { // left for abandon()
+      unsentOnDrain.addAndGet(spans.size());
+      metrics.incrementDroppedSpans(spans.size(), DropReason.SHUTDOWN);
+      return 0;
+    }
+    overloadDroppedSpans.addAndGet(spans.size());
+    metrics.incrementDroppedSpans(spans.size(), DropReason.TRANSPORT_FAILURE);
+    return 0;
+  }
+
+  /** Outcome of {@link #postWithRetries(int, byte[], long)}. */
+  enum Post {
+    SENT,
+    /** Every attempt failed. */
+    FAILED,
+    /** The deadline passed before the message could be sent or retried. */
+    OUT_OF_TIME
+  }
+
+  private Post postWithRetries(int spanCount, byte[] message, long deadline) {
+    long backoff = initialBackoff;
+    for (int attempt = 1; ; attempt++) {
+      long left = nanosLeft(deadline);
+      if (left <= 0) return Post.OUT_OF_TIME;
+      try {
+        post(encoder, message, timeoutMillis(left));
+        return Post.SENT;
+      } catch (IOException e) {
+        unreachable = true;
+        boolean outOfTime = attempt < maxAttempts
+            && MILLISECONDS.toNanos(backoff) >= nanosLeft(deadline);
+        if (attempt >= maxAttempts || outOfTime || !sleep(backoff)) {
+          if (log.isDebugEnabled()) { // don't pollute logs unless debug is on.
+            // TODO: logger test
+            log.debug("error POSTing spans to " + url + ": " + (encoder == SpanEncoder.JSON
+                ? "as json: " + new String(message, UTF_8)
+                : spanCount + " spans as " + encoder), e);
+          }
+          return outOfTime ? Post.OUT_OF_TIME : Post.FAILED;
+        }
+        backoff = Math.min(backoff * 2, maxBackoff);
+      }
+    }
+  }
+
+  private static boolean sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static long nanosLeft(long deadline) {
+    return deadline == NO_DEADLINE ? Long.MAX_VALUE : deadline - System.nanoTime();
+  }
+
+  /** Caps the transport's timeouts to the time left, or 0 to leave them as configured. */
+  private static int timeoutMillis(long nanosLeft) {
+    if (nanosLeft == Long.MAX_VALUE) return 0;
+    return (int) Math.max(1, Math.min(Integer.MAX_VALUE, NANOSECONDS.toMillis(nanosLeft)));
+  }
+
+  private void post(SpanEncoder encoder, byte[] message, int timeout) throws IOException {
+    long start = System.nanoTime();
+    int length;
+    if (message.length >= compressionMinBytes) {
+      GzipCompressor compressor = compressor();
+      try {
+        length = compressor.compress(message);
+        transport.post(url, encoder.contentType(), "gzip", compressor.buffer(), length, timeout);
+      } finally {
+        if (compressorsReleased) endCompressor();
+      }
+    } else {
+      length = message.length;
+      transport.post(url, encoder.contentType(), null, message, length, timeout);
     }
+    unreachable = false;
+    metrics.recordMessageLatency(NANOSECONDS.toMillis(System.nanoTime() - start));
+    metrics.incrementMessages();
+    metrics.recordMessageBytes(length);
   }
 
-  /** Calls flush on a fixed interval */
+  /** The compressor of the current thread, created on first use. */
+  private GzipCompressor compressor() {
+    GzipCompressor compressor = compressors.get();
+    if (compressor == null) {
+      compressor = new GzipCompressor();
+      compressors.set(compressor);
+      allCompressors.put(Thread.currentThread(), compressor);
+    }
+    return compressor;
+  }
+
+  /** Ends the compressor of the current thread, if it has one that wasn't released yet. */
+  void endCompressor() {
+    GzipCompressor compressor = compressors.get();
+    if (compressor == null) return;
+    compressors.remove();
+    if (allCompressors.remove(Thread.currentThread(), compressor)) compressor.end();
+  }
+
+  /**
+   * Calls flush on a fixed interval, or early when {@link #trigger() triggered}. Each sender
+   * thread runs {@code onThreadExit} when it terminates.
+   */
   static final class Flusher implements Runnable {
     final Flushable flushable;
-    final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    final int senderThreads;
+    final ScheduledExecutorService scheduler;
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicBoolean triggered = new AtomicBoolean();
 
-    Flusher(Flushable flushable, int flushInterval) {
+    Flusher(Flushable flushable, long flushIntervalMillis, int senderThreads,
+        final Runnable onThreadExit) {
       this.flushable = flushable;
-      this.scheduler.scheduleWithFixedDelay(this, 0, flushInterval, SECONDS);
+      this.senderThreads = senderThreads;
+      final ThreadFactory threads = Executors.defaultThreadFactory();
+      this.scheduler = Executors.newScheduledThreadPool(senderThreads, new ThreadFactory() {
+        @Override public Thread newThread(final Runnable worker) {
+          return threads.newThread(new Runnable() {
+            @Override public void run() {
+              try {
+                worker.run();
+              } finally {
+                onThreadExit.run();
+              }
+            }
+          });
+        }
+      });
+      this.scheduler.scheduleWithFixedDelay(new Runnable() {
+        @Override public void run() {
+          flush();
+        }
+      }, 0, flushIntervalMillis, MILLISECONDS);
+    }
+
+    /** Starts a flush now, unless one is about to start or every sender is busy. */
+    void trigger() {
+      if (running.get() < senderThreads && triggered.compareAndSet(false, true)) {
+        try {
+          scheduler.execute(this);
+        } catch (RuntimeException e) { // rejected after close
+          triggered.set(false);
+        }
+      }
     }
 
     @Override
     public void run() {
+      triggered.set(false);
+      flush();
+    }
+
+    void flush() {
+      running.incrementAndGet();
       try {
         flushable.flush();
       } catch (IOException ignored) {
+      } finally {
+        running.decrementAndGet();
       }
     }
   }
 
-  void postSpans(byte[] json) throws IOException {
-    // intentionally not closing the connection, so as to use keep-alives
-    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-    connection.setRequestMethod("POST");
-    connection.addRequestProperty("Content-Type", "application/json");
-    connection.setDoOutput(true);
-    connection.setFixedLengthStreamingMode(json.length);
-    connection.getOutputStream().write(json);
-
-    try (InputStream in = connection.getInputStream()) {
-      while (in.read() != -1) ; // skip
-    } catch (IOException e) {
-      try (InputStream err = connection.getErrorStream()) {
-        if (err != null) { // possible, if the connection was dropped
-          while (err.read() != -1) ; // skip
-        }
-      }
-      throw e;
-    }
-  }
-
   /**
    * Requests a cease of delivery. There will be at most one in-flight request processing after this
-   * call returns.
+   * call returns. Spans still queued are dropped: {@link #drain(long, TimeUnit) drain} them
+   * first to send them.
    */
   @Override
   public void close() {
-    if (flusher != null) flusher.scheduler.shutdown();
+    stopAccepting();
     // throw any outstanding spans on the floor
-    int dropped = pending.drainTo(new LinkedList<>());
-    // TODO: metrics.incrementDroppedSpans(dropped);
+    abandon();
+    releaseCompressors();
+    // spilled messages stay on disk, to be replayed after a restart
+    if (spill != null) {
+      try {
+        spill.close();
+      } catch (IOException e) {
+        log.debug("error closing spill file", e);
+      }
+    }
+  }
+
+  /**
+   * Ends the deflaters of the sender threads, whose native memory the garbage collector only
+   * reclaims late if at all. Waits a little for the sender threads to finish. A deflater is
+   * only ended here when no other thread can be using it: a sender thread still busy (e.g.
+   * retrying a slow collector) ends its own when it exits, and any other thread once its next
+   * message is sent.
+   */
+  private void releaseCompressors() {
+    compressorsReleased = true;
+    if (flusher != null) {
+      try {
+        flusher.scheduler.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    for (Map.Entry<Thread, GzipCompressor> entry : allCompressors.entrySet()) {
+      Thread owner = entry.getKey();
+      if ((owner == Thread.currentThread() || !owner.isAlive())
+          && allCompressors.remove(owner, entry.getValue())) {
+        entry.getValue().end();
+      }
+    }
+    compressors.remove();
   }
 }
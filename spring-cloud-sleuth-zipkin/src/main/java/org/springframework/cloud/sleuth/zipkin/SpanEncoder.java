@@ -0,0 +1,83 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.util.List;
+import zipkin.Codec;
+import zipkin.Span;
+
+/** How spans are encoded in the messages sent to the zipkin server. */
+public enum SpanEncoder {
+  /** Readable and the most widely supported. */
+  JSON("application/json", Codec.JSON),
+  /**
+   * Thrift's binary protocol. Smaller and cheaper to write than json, especially for spans
+   * with many tags.
+   */
+  THRIFT("application/x-thrift", Codec.THRIFT);
+
+  private final String contentType;
+  private final Codec codec;
+
+  SpanEncoder(String contentType, Codec codec) {
+    this.contentType = contentType;
+    this.codec = codec;
+  }
+
+  public String contentType() {
+    return contentType;
+  }
+
+  /** Returns the encoded spans, or null if they could not be encoded. */
+  public byte[] encode(List<Span> spans) {
+    return codec.writeSpans(spans);
+  }
+
+  /** Returns the encoded span, or null if it could not be encoded. */
+  public byte[] encode(Span span) {
+    return codec.writeSpan(span);
+  }
+
+  /**
+   * Returns the size of a {@link #message(List) message} holding spans that take {@code
+   * spanBytes} once encoded.
+   */
+  public int messageSize(int spanCount, int spanBytes) {
+    switch (this) {
+      case JSON: // brackets and commas
+        return spanBytes + 2 + Math.max(0, spanCount - 1);
+      case THRIFT: // list header: element type and count
+        return spanBytes + 5;
+      default:
+        throw new AssertionError(this);
+    }
+  }
+
+  /** Joins spans encoded with {@link #encode(Span)} into a list, as sent to the server. */
+  public byte[] message(List<byte[]> spans) {
+    int spanBytes = 0;
+    for (byte[] span : spans) {
+      spanBytes += span.length;
+    }
+    byte[] message = new byte[messageSize(spans.size(), spanBytes)];
+    int position;
+    if (this == JSON) {
+      message[0] = '[';
+      position = 1;
+    } else {
+      message[0] = 12; // TType.STRUCT
+      int count = spans.size();
+      message[1] = (byte) (count >>> 24);
+      message[2] = (byte) (count >>> 16);
+      message[3] = (byte) (count >>> 8);
+      message[4] = (byte) count;
+      position = 5;
+    }
+    for (int i = 0, length = spans.size(); i < length; i++) {
+      if (this == JSON && i > 0) message[position++] = ',';
+      byte[] span = spans.get(i);
+      System.arraycopy(span, 0, message, position, span.length);
+      position += span.length;
+    }
+    if (this == JSON) message[position] = ']';
+    return message;
+  }
+}
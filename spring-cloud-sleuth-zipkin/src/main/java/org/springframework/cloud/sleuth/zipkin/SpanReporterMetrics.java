@@ -0,0 +1,77 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+/**
+ * Instrumentation of a {@link ZipkinSpanReporter}: how many spans it accepts and drops,
+ * how many wait to be sent and what sending them costs.
+ */
+public interface SpanReporterMetrics {
+
+  /** Why spans were thrown away instead of being sent. */
+  enum DropReason {
+    /** The reporter could not keep up and its queue was full. */
+    QUEUE_FULL,
+    /** The spans could not be encoded for transport. */
+    ENCODING_FAILURE,
+    /** The collector could not be reached or rejected the spans. */
+    TRANSPORT_FAILURE,
+    /** The reporter was closed with spans still queued. */
+    SHUTDOWN,
+    /** The spans were spilled to disk, but not replayed before they got too old. */
+    EXPIRED
+  }
+
+  SpanReporterMetrics NOOP = new SpanReporterMetrics() {
+    @Override public void incrementAcceptedSpans(int quantity) {
+    }
+
+    @Override public void incrementDroppedSpans(int quantity, DropReason reason) {
+    }
+
+    @Override public void updateQueuedSpans(int quantity) {
+    }
+
+    @Override public void incrementMessages() {
+    }
+
+    @Override public void recordMessageBytes(int bytes) {
+    }
+
+    @Override public void recordMessageLatency(long millis) {
+    }
+
+    @Override public void incrementSpilledBytes(int bytes) {
+    }
+
+    @Override public void incrementReplayedBytes(int bytes) {
+    }
+
+    @Override public void incrementExpiredBytes(int bytes) {
+    }
+  };
+
+  /** Spans handed to the reporter, whether or not they could be queued. */
+  void incrementAcceptedSpans(int quantity);
+
+  void incrementDroppedSpans(int quantity, DropReason reason);
+
+  /** Spans waiting to be sent. */
+  void updateQueuedSpans(int quantity);
+
+  /** Messages (e.g. POST requests) successfully sent to the collector. */
+  void incrementMessages();
+
+  /** Size of a message sent to the collector. */
+  void recordMessageBytes(int bytes);
+
+  /** Time it took to send a message to the collector. */
+  void recordMessageLatency(long millis);
+
+  /** Bytes of messages written to the spill file as the collector was unreachable. */
+  void incrementSpilledBytes(int bytes);
+
+  /** Bytes of spilled messages eventually sent to the collector. */
+  void incrementReplayedBytes(int bytes);
+
+  /** Bytes of spilled messages discarded for being too old to replay. */
+  void incrementExpiredBytes(int bytes);
+}
@@ -0,0 +1,169 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Append-only, memory-mapped file of the messages a {@link HttpZipkinSpanReporter} could not
+ * send, so they can be replayed in order once the collector is reachable again. The file
+ * never grows past the size it was opened with: messages that don't fit are refused.
+ *
+ * <p>The read and write positions are kept in the file itself, so messages spilled before a
+ * restart are replayed after it. Writes reach the disk when the operating system flushes the
+ * mapping, or on {@link #close()}.
+ */
+final class SpillFile implements Closeable {
+  static final int MAGIC = 0x5a53504c; // ZSPL
+  // magic, read position, write position
+  static final int HEADER_LENGTH = 12;
+  // length, span count, timestamp, encoder
+  static final int RECORD_HEADER_LENGTH = 4 + 4 + 8 + 1;
+
+  private final RandomAccessFile file;
+  private final MappedByteBuffer buffer;
+  private int readPosition;
+  private int writePosition;
+
+  /**
+   * Opens the file, creating it if needed, and resumes from the messages it holds.
+   *
+   * @param maxBytes size of the file, including its own bookkeeping
+   */
+  static SpillFile open(File path, int maxBytes) throws IOException {
+    if (maxBytes <= HEADER_LENGTH + RECORD_HEADER_LENGTH) {
+      throw new IllegalArgumentException("maxBytes is too small: " + maxBytes);
+    }
+    RandomAccessFile file = new RandomAccessFile(path, "rw");
+    try {
+      FileChannel channel = file.getChannel();
+      return new SpillFile(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, maxBytes));
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  private SpillFile(RandomAccessFile file, MappedByteBuffer buffer) {
+    this.file = file;
+    this.buffer = buffer;
+    int read = buffer.getInt(4);
+    int write = buffer.getInt(8);
+    if (buffer.getInt(0) == MAGIC && HEADER_LENGTH <= read && read <= write
+        && write <= buffer.capacity()) {
+      readPosition = read;
+      writePosition = write;
+    } else { // new, resized or corrupt
+      buffer.putInt(0, MAGIC);
+      reset();
+    }
+  }
+
+  /**
+   * Appends a message unless there is no room left for it.
+   *
+   * @return false if the message was refused
+   */
+  synchronized boolean append(int spanCount, SpanEncoder encoder, byte[] message,
+      long timestamp) {
+    int size = RECORD_HEADER_LENGTH + message.length;
+    if (writePosition + size > buffer.capacity()) {
+      compact();
+      if (writePosition + size > buffer.capacity()) return false;
+    }
+    ByteBuffer record = buffer.duplicate();
+    record.position(writePosition);
+    record.putInt(message.length);
+    record.putInt(spanCount);
+    record.putLong(timestamp);
+    record.put((byte) encoder.ordinal());
+    record.put(message);
+    writePosition += size;
+    buffer.putInt(8, writePosition);
+    return true;
+  }
+
+  /** Returns the oldest message, or null if there is none. */
+  synchronized Record peek() {
+    if (readPosition == writePosition) return null;
+    ByteBuffer record = buffer.duplicate();
+    record.position(readPosition);
+    int length = record.getInt();
+    int spanCount = record.getInt();
+    long timestamp = record.getLong();
+    int encoder = record.get();
+    if (length < 0 || length > writePosition - record.position()
+        || encoder < 0 || encoder >= SpanEncoder.values().length) {
+      reset(); // corrupt: nothing after this point can be trusted
+      return null;
+    }
+    byte[] message = new byte[length];
+    record.get(message);
+    return new Record(spanCount, timestamp, SpanEncoder.values()[encoder], message);
+  }
+
+  /** Removes the message last returned by {@link #peek()}. */
+  synchronized void remove(Record record) {
+    readPosition += RECORD_HEADER_LENGTH + record.message.length;
+    if (readPosition >= writePosition) {
+      reset();
+    } else {
+      buffer.putInt(4, readPosition);
+    }
+  }
+
+  synchronized boolean isEmpty() {
+    return readPosition == writePosition;
+  }
+
+  /** Bytes taken by the messages waiting to be replayed. */
+  synchronized int sizeInBytes() {
+    return writePosition - readPosition;
+  }
+
+  /** Moves the messages waiting to be replayed to the start of the file. */
+  private void compact() {
+    if (readPosition == HEADER_LENGTH) return;
+    // copied through the heap as the ranges can overlap. Rare enough not to matter.
+    byte[] pending = new byte[writePosition - readPosition];
+    ByteBuffer copy = buffer.duplicate();
+    copy.position(readPosition);
+    copy.get(pending);
+    copy.position(HEADER_LENGTH);
+    copy.put(pending);
+    writePosition -= readPosition - HEADER_LENGTH;
+    readPosition = HEADER_LENGTH;
+    buffer.putInt(4, readPosition);
+    buffer.putInt(8, writePosition);
+  }
+
+  private void reset() {
+    readPosition = writePosition = HEADER_LENGTH;
+    buffer.putInt(4, readPosition);
+    buffer.putInt(8, writePosition);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    buffer.force();
+    file.close();
+  }
+
+  static final class Record {
+    final int spanCount;
+    final long timestamp;
+    final SpanEncoder encoder;
+    final byte[] message;
+
+    Record(int spanCount, long timestamp, SpanEncoder encoder, byte[] message) {
+      this.spanCount = spanCount;
+      this.timestamp = timestamp;
+      this.encoder = encoder;
+      this.message = message;
+    }
+  }
+}
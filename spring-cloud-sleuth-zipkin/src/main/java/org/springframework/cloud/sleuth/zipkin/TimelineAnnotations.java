@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin;
+
+import zipkin.Annotation;
+import zipkin.Constants;
+import zipkin.Endpoint;
+
+/**
+ * Creates the timeline annotations of an endpoint. The endpoint is bound once, and the
+ * rpc values ({@code cs}, {@code cr}, {@code sr}, {@code ss}) are the shared
+ * {@link Constants} instances, so only the timestamp is new for each log of a span,
+ * and no builder is needed to get there.
+ */
+class TimelineAnnotations {
+
+	private final Endpoint endpoint;
+
+	TimelineAnnotations(Endpoint endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * @param timestamp epoch microseconds of the event
+	 * @return an annotation of the endpoint
+	 */
+	Annotation create(long timestamp, String value) {
+		return Annotation.create(timestamp, canonical(value), this.endpoint);
+	}
+
+	private static String canonical(String value) {
+		switch (value) {
+		case Constants.CLIENT_SEND:
+			return Constants.CLIENT_SEND;
+		case Constants.CLIENT_RECV:
+			return Constants.CLIENT_RECV;
+		case Constants.SERVER_RECV:
+			return Constants.SERVER_RECV;
+		case Constants.SERVER_SEND:
+			return Constants.SERVER_SEND;
+		default:
+			return value;
+		}
+	}
+
+}
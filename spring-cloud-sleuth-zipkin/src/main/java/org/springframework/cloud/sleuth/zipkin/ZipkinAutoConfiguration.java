@@ -16,8 +16,13 @@
 
 package org.springframework.cloud.sleuth.zipkin;
 
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
@@ -25,6 +30,9 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.sleuth.export.SpanQueueLifecycle;
+import org.springframework.cloud.sleuth.export.SpanQueueStatus;
+import org.springframework.cloud.sleuth.export.SpanRingBuffer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -39,9 +47,18 @@ public class ZipkinAutoConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean(ZipkinSpanReporter.class)
-	public ZipkinSpanReporter reporter() {
+	public ZipkinSpanReporter reporter(HttpTransport transport,
+			SpanReporterMetrics metrics) {
+		ZipkinProperties zipkin = zipkinProperties();
+		return new HttpZipkinSpanReporter(zipkin, transport, metrics);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public HttpTransport zipkinHttpTransport() {
 		ZipkinProperties zipkin = zipkinProperties();
-    return new HttpZipkinSpanReporter(zipkin.getBaseUrl(), zipkin.getFlushInterval());
+		return new HttpURLConnectionTransport(zipkin.getConnectTimeout(),
+				zipkin.getReadTimeout());
 	}
 
 	@Bean
@@ -51,7 +68,60 @@ public class ZipkinAutoConfiguration {
 
 	@Bean
 	public ZipkinSpanListener sleuthTracer(ZipkinSpanReporter reporter, EndpointLocator endpointLocator) {
-		return new ZipkinSpanListener(reporter, endpointLocator.local());
+		ZipkinProperties.Export export = zipkinProperties().getExport();
+		SpanRingBuffer buffer = export.getCapacity() > 0
+				? new SpanRingBuffer(export.getCapacity(), export.getOverflowPolicy(),
+						export.getMaxBlockTime(), TimeUnit.MILLISECONDS)
+				: null;
+		return new ZipkinSpanListener(reporter, endpointLocator.local(), buffer);
+	}
+
+	@Bean
+	public SpanQueueLifecycle zipkinSpanQueueLifecycle(ZipkinSpanListener listener) {
+		return new SpanQueueLifecycle(listener, zipkinProperties().getShutdownTimeout());
+	}
+
+	/**
+	 * The export buffer and the reporter, for the adaptive sampler
+	 */
+	@Bean
+	@Qualifier(SpanQueueStatus.EXPORT_QUEUE)
+	public SpanQueueStatus zipkinSpanQueueStatus(ZipkinSpanListener listener) {
+		return listener.getQueueStatus();
+	}
+
+	@Configuration
+	@ConditionalOnClass(CounterService.class)
+	protected static class SpanReporterMetricsConfiguration {
+
+		@Autowired(required=false)
+		private CounterService counterService;
+
+		@Autowired(required=false)
+		private GaugeService gaugeService;
+
+		@Bean
+		@ConditionalOnMissingBean
+		public SpanReporterMetrics spanReporterMetrics() {
+			if (this.counterService == null || this.gaugeService == null) {
+				return SpanReporterMetrics.NOOP;
+			}
+			return new CounterServiceSpanReporterMetrics(this.counterService,
+					this.gaugeService);
+		}
+
+	}
+
+	@Configuration
+	@ConditionalOnMissingClass("org.springframework.boot.actuate.metrics.CounterService")
+	protected static class NoOpSpanReporterMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public SpanReporterMetrics spanReporterMetrics() {
+			return SpanReporterMetrics.NOOP;
+		}
+
 	}
 
 	@Configuration
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cloud.sleuth.Log;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.SpanParents;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.apachecommons.CommonsLog;
+import zipkin.Endpoint;
+
+/**
+ * Writes a Sleuth span straight to Zipkin's json format, the way {@link
+ * ZipkinSpanListener#convert(Span)} followed by {@link SpanEncoder#JSON} would, without
+ * building the intermediate {@link zipkin.Span}, its annotations and the strings of its
+ * ids. The local endpoint is written once up front and copied into every annotation.
+ *
+ * <p>Not thread-safe: the buffer spans are written to is reused, so each thread uses its
+ * own instance.
+ */
+@CommonsLog
+class ZipkinJsonSpanWriter {
+
+	private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+	private final byte[] endpoint; // Null if there is no local endpoint
+	private byte[] buffer = new byte[1024];
+	private int position;
+
+	ZipkinJsonSpanWriter(Endpoint endpoint) {
+		if (endpoint == null) {
+			this.endpoint = null;
+			return;
+		}
+		writeAscii(",\"endpoint\":{\"serviceName\":");
+		writeString(endpoint.serviceName);
+		writeAscii(",\"ipv4\":\"");
+		writeAscii((endpoint.ipv4 >> 24 & 0xff) + "." + (endpoint.ipv4 >> 16 & 0xff) + "."
+				+ (endpoint.ipv4 >> 8 & 0xff) + "." + (endpoint.ipv4 & 0xff) + "\"");
+		if (endpoint.port != null) {
+			writeAscii(",\"port\":" + (endpoint.port & 0xffff));
+		}
+		writeByte('}');
+		this.endpoint = Arrays.copyOf(this.buffer, this.position);
+	}
+
+	/**
+	 * @return the span as a Zipkin json object
+	 */
+	byte[] write(Span span) {
+		this.position = 0;
+		writeAscii("{\"traceId\":");
+		writeHex(span.getTraceId());
+		writeAscii(",\"name\":");
+		writeString(StringUtils.hasText(span.getName()) ? span.getName() : "");
+		writeAscii(",\"id\":");
+		writeHex(span.getSpanId());
+		if (SpanParents.hasParent(span)) {
+			if (span.getParents().size() > 1) {
+				log.error("Zipkin doesn't support spans with multiple parents. Omitting "
+						+ "other parents for " + span);
+			}
+			writeAscii(",\"parentId\":");
+			writeHex(SpanParents.parentId(span));
+		}
+		writeAscii(",\"timestamp\":");
+		writeAscii(Long.toString(span.getBegin() * 1000L));
+		writeAscii(",\"duration\":");
+		writeAscii(Long.toString((span.getEnd() - span.getBegin()) * 1000L));
+
+		List<Log> logs = span.logs();
+		Map<String, String> tags = span.tags();
+		// A zipkin span without any annotations cannot be queried, add special "lc" to avoid that.
+		if (logs.isEmpty() && tags.isEmpty()) {
+			writeAscii(",\"binaryAnnotations\":[");
+			writeBinaryAnnotation("lc", span.getProcessId() != null
+					? span.getProcessId().toLowerCase() : "unknown");
+			writeByte(']');
+		}
+		else {
+			if (!logs.isEmpty()) {
+				writeAscii(",\"annotations\":[");
+				for (int i = 0, length = logs.size(); i < length; i++) {
+					if (i > 0) {
+						writeByte(',');
+					}
+					Log entry = logs.get(i);
+					writeAscii("{\"timestamp\":");
+					writeAscii(Long.toString(entry.getTime() * 1000)); // Zipkin is in microseconds
+					writeAscii(",\"value\":");
+					writeString(entry.getMsg());
+					writeEndpoint();
+					writeByte('}');
+				}
+				writeByte(']');
+			}
+			if (!tags.isEmpty()) {
+				writeAscii(",\"binaryAnnotations\":[");
+				boolean first = true;
+				for (Map.Entry<String, String> tag : tags.entrySet()) {
+					if (!first) {
+						writeByte(',');
+					}
+					first = false;
+					writeBinaryAnnotation(tag.getKey(), tag.getValue());
+				}
+				writeByte(']');
+			}
+		}
+		writeByte('}');
+		return Arrays.copyOf(this.buffer, this.position);
+	}
+
+	// String is the default type, so it is left out like Zipkin's own codec does
+	private void writeBinaryAnnotation(String key, String value) {
+		writeAscii("{\"key\":");
+		writeString(key);
+		writeAscii(",\"value\":");
+		writeString(value);
+		writeEndpoint();
+		writeByte('}');
+	}
+
+	private void writeEndpoint() {
+		if (this.endpoint != null) {
+			ensureCapacity(this.endpoint.length);
+			System.arraycopy(this.endpoint, 0, this.buffer, this.position,
+					this.endpoint.length);
+			this.position += this.endpoint.length;
+		}
+	}
+
+	/**
+	 * Writes the id as 16 lower-hex characters, in quotes.
+	 */
+	private void writeHex(long id) {
+		ensureCapacity(18);
+		this.buffer[this.position++] = '"';
+		for (int shift = 60; shift >= 0; shift -= 4) {
+			this.buffer[this.position++] = HEX_DIGITS[(int) (id >>> shift) & 0xf];
+		}
+		this.buffer[this.position++] = '"';
+	}
+
+	/**
+	 * Writes the value as an escaped json string encoded in UTF-8.
+	 */
+	private void writeString(String value) {
+		// worst case: a \\u escape for every char
+		ensureCapacity(value.length() * 6 + 2);
+		byte[] buffer = this.buffer;
+		int position = this.position;
+		buffer[position++] = '"';
+		for (int i = 0, length = value.length(); i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				if (c < 0x20 || c == '"' || c == '\\') {
+					position = writeEscaped(position, c);
+				}
+				else {
+					buffer[position++] = (byte) c;
+				}
+			}
+			else if (c < 0x800) {
+				buffer[position++] = (byte) (0xc0 | c >> 6);
+				buffer[position++] = (byte) (0x80 | c & 0x3f);
+			}
+			else if (c == '\u2028' || c == '\u2029') {
+				// valid json, but not valid javascript
+				position = writeEscaped(position, c);
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < length
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				buffer[position++] = (byte) (0xf0 | codePoint >> 18);
+				buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+				buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+				buffer[position++] = (byte) (0x80 | codePoint & 0x3f);
+			}
+			else if (Character.isSurrogate(c)) {
+				buffer[position++] = '?'; // unpaired, like String.getBytes
+			}
+			else {
+				buffer[position++] = (byte) (0xe0 | c >> 12);
+				buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+				buffer[position++] = (byte) (0x80 | c & 0x3f);
+			}
+		}
+		buffer[position++] = '"';
+		this.position = position;
+	}
+
+	private int writeEscaped(int position, char c) {
+		byte[] buffer = this.buffer;
+		buffer[position++] = '\\';
+		switch (c) {
+		case '"':
+		case '\\':
+			buffer[position++] = (byte) c;
+			break;
+		case '\n':
+			buffer[position++] = 'n';
+			break;
+		case '\r':
+			buffer[position++] = 'r';
+			break;
+		case '\t':
+			buffer[position++] = 't';
+			break;
+		default:
+			buffer[position++] = 'u';
+			buffer[position++] = HEX_DIGITS[c >> 12 & 0xf];
+			buffer[position++] = HEX_DIGITS[c >> 8 & 0xf];
+			buffer[position++] = HEX_DIGITS[c >> 4 & 0xf];
+			buffer[position++] = HEX_DIGITS[c & 0xf];
+		}
+		return position;
+	}
+
+	private void writeAscii(String value) {
+		int length = value.length();
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			this.buffer[this.position++] = (byte) value.charAt(i);
+		}
+	}
+
+	private void writeByte(char c) {
+		ensureCapacity(1);
+		this.buffer[this.position++] = (byte) c;
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (this.position + bytes > this.buffer.length) {
+			this.buffer = Arrays.copyOf(this.buffer,
+					Math.max(this.buffer.length * 2, this.position + bytes));
+		}
+	}
+
+}
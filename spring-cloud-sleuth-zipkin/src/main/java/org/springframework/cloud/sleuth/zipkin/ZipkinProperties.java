@@ -17,6 +17,8 @@
 package org.springframework.cloud.sleuth.zipkin;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.sleuth.export.OverflowPolicy;
+import org.springframework.cloud.sleuth.export.SpanRingBuffer;
 
 import lombok.Data;
 
@@ -31,5 +33,88 @@ public class ZipkinProperties {
 	/** URL of the zipkin query server instance. */
 	private String baseUrl = "http://localhost:9411/";
 	private boolean enabled = true;
-	private int flushInterval = 1;
+	/**
+	 * Interval in seconds between two flushes of the spans queued for sending. Fractions,
+	 * e.g. 0.2, are allowed.
+	 */
+	private float flushInterval = 1;
+	/** Maximum number of spans waiting to be sent. Further spans are dropped. */
+	private int queueCapacity = 1000;
+	/**
+	 * Maximum number of spans sent in one message. Once that many are queued they are
+	 * sent without waiting for the flush interval.
+	 */
+	private int maxSpansPerMessage = 500;
+	/** Maximum size in bytes of one message. Larger batches are split. */
+	private int maxBytesPerMessage = 5 * 1024 * 1024;
+	/** Number of threads sending spans concurrently. */
+	private int senderThreads = 1;
+	/** Timeout in milliseconds to connect to the zipkin server. 0 waits forever. */
+	private int connectTimeout = 10 * 1000;
+	/**
+	 * Timeout in milliseconds for the zipkin server to respond to a message. 0 waits
+	 * forever.
+	 */
+	private int readTimeout = 60 * 1000;
+	/**
+	 * Time in milliseconds allowed on shutdown to send the spans still queued. Whatever
+	 * is left after that is dropped.
+	 */
+	private long shutdownTimeout = 5000;
+	/** Encoding of the spans sent to the zipkin server. */
+	private SpanEncoder encoder = SpanEncoder.JSON;
+	private Export export = new Export();
+	private Compression compression = new Compression();
+	private Retry retry = new Retry();
+	private Spill spill = new Spill();
+
+	@Data
+	public static class Export {
+		/**
+		 * Maximum number of completed spans waiting to be converted and reported from
+		 * a background thread. 0 does that on the thread completing the span instead.
+		 */
+		private int capacity = 1024;
+		/** What to do with a completed span when the export buffer is full. */
+		private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+		/**
+		 * Maximum time in milliseconds the BLOCK overflow policy waits for room in the
+		 * export buffer. The span is dropped after that.
+		 */
+		private long maxBlockTime = SpanRingBuffer.DEFAULT_MAX_BLOCK_MILLIS;
+	}
+
+	@Data
+	public static class Compression {
+		/** Whether to gzip the spans sent to the zipkin server. */
+		private boolean enabled = false;
+		/**
+		 * Messages smaller than this many bytes are sent uncompressed, as gzipping them
+		 * costs more CPU than it saves bandwidth.
+		 */
+		private int minBytes = 1024;
+	}
+
+	@Data
+	public static class Retry {
+		/** Number of times a message is sent before giving up on it. 1 never retries. */
+		private int maxAttempts = 3;
+		/** Time in milliseconds to wait before the first retry. Doubles on each retry. */
+		private long initialBackoff = 100;
+		/** Maximum time in milliseconds to wait between two retries. */
+		private long maxBackoff = 1000;
+	}
+
+	@Data
+	public static class Spill {
+		/**
+		 * File messages are written to while the zipkin server is unreachable, to be
+		 * sent once it is back. Not set disables spilling: such messages are dropped.
+		 */
+		private String path;
+		/** Maximum size of the spill file. Messages that don't fit are dropped. */
+		private int maxBytes = 16 * 1024 * 1024;
+		/** Age in milliseconds after which spilled messages are discarded unsent. */
+		private long maxAge = 60 * 60 * 1000;
+	}
 }
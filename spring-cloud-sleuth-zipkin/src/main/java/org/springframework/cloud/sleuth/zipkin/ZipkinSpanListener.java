@@ -19,30 +19,42 @@ package org.springframework.cloud.sleuth.zipkin;
 import lombok.extern.apachecommons.CommonsLog;
 import org.springframework.cloud.sleuth.Log;
 import org.springframework.cloud.sleuth.Span;
-import org.springframework.cloud.sleuth.event.ClientReceivedEvent;
-import org.springframework.cloud.sleuth.event.ClientSentEvent;
-import org.springframework.cloud.sleuth.event.ServerReceivedEvent;
-import org.springframework.cloud.sleuth.event.ServerSentEvent;
-import org.springframework.cloud.sleuth.event.SpanAcquiredEvent;
-import org.springframework.cloud.sleuth.event.SpanReleasedEvent;
-import org.springframework.context.event.EventListener;
+import org.springframework.cloud.sleuth.SpanParents;
+import org.springframework.cloud.sleuth.event.SpanListenerAdapter;
+import org.springframework.cloud.sleuth.export.AsyncSpanExporter;
+import org.springframework.cloud.sleuth.export.DrainableSpanQueue;
+import org.springframework.cloud.sleuth.export.SpanQueueStatus;
+import org.springframework.cloud.sleuth.export.SpanRingBuffer;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.core.annotation.Order;
 import org.springframework.util.StringUtils;
-import zipkin.Annotation;
-import zipkin.BinaryAnnotation;
 import zipkin.Constants;
 import zipkin.Endpoint;
 
-import java.nio.charset.Charset;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Listener that reports completed spans to Zipkin. When created with a
+ * {@link SpanRingBuffer} the spans are only queued on the thread that completes them,
+ * and converted and reported from a background thread. That thread runs while the
+ * listener is {@link #start() started}.
+ *
+ * <p>On shutdown, draining the listener reports the spans still in the buffer and then
+ * drains the reporter too, if it is a {@link DrainableSpanQueue}.
+ *
+ * <p>When the reporter takes {@link EncodedSpanReporter encoded} json spans, they are
+ * written straight to json instead of being converted to Zipkin spans first.
+ *
  * @author Spencer Gibb
  */
 @CommonsLog
-public class ZipkinSpanListener {
-	private static final Charset UTF_8 = Charset.forName("UTF-8");
-	private static final byte[] UNKNOWN_BYTES = "unknown".getBytes(UTF_8);
+@Order(0)
+public class ZipkinSpanListener extends SpanListenerAdapter
+		implements DrainableSpanQueue, SmartLifecycle, Flushable, Closeable {
 
 	private ZipkinSpanReporter reporter;
 	/**
@@ -51,63 +63,275 @@ public class ZipkinSpanListener {
 	 */
 	// Visible for testing
 	Endpoint localEndpoint;
+	private final AsyncSpanExporter exporter; // Null when reporting on the caller thread
+	// Tags and local components repeat across spans: their binary annotations are reused
+	private final BinaryAnnotationCache binaryAnnotations;
+	private final TimelineAnnotations annotations;
+	private final ThreadLocal<ZipkinJsonSpanWriter> jsonWriters;
+	private final SpanQueueStatus queueStatus = new QueueStatus();
+	private volatile boolean accepting = true;
+	private volatile boolean running;
 
 	public ZipkinSpanListener(ZipkinSpanReporter reporter, Endpoint localEndpoint) {
+		this(reporter, localEndpoint, null);
+	}
+
+	/**
+	 * @param buffer holds completed spans until they are reported. Null reports them
+	 * on the thread that completes them.
+	 */
+	public ZipkinSpanListener(ZipkinSpanReporter reporter, Endpoint localEndpoint,
+			SpanRingBuffer buffer) {
 		this.reporter = reporter;
 		this.localEndpoint = localEndpoint;
+		this.binaryAnnotations = new BinaryAnnotationCache(localEndpoint, 256, 32);
+		this.annotations = new TimelineAnnotations(localEndpoint);
+		this.jsonWriters = reporter instanceof EncodedSpanReporter
+				&& ((EncodedSpanReporter) reporter).encoder() == SpanEncoder.JSON
+				? new ThreadLocal<ZipkinJsonSpanWriter>() : null;
+		this.exporter = buffer != null ? new AsyncSpanExporter(buffer, new AsyncSpanExporter.Handler() {
+			@Override
+			public void handle(List<Span> spans) {
+				for (Span span : spans) {
+					reportNow(span);
+				}
+			}
+		}) : null;
 	}
 
-	@EventListener
-	@Order(0)
-	public void start(SpanAcquiredEvent event) {
+	@Override
+	public void spanAcquired(Span parent, Span span) {
 		// Zipkin Span.timestamp corresponds with Sleuth's Span.begin
-		assert event.getSpan().getBegin() != 0;
+		assert span.getBegin() != 0;
 	}
 
-	@EventListener
-	@Order(0)
-	public void serverReceived(ServerReceivedEvent event) {
-		if (event.getParent() != null && event.getParent().isRemote()) {
+	@Override
+	public void serverReceived(Span parent, Span span) {
+		if (parent != null && parent.isRemote()) {
 			// If an inbound RPC call, it should log a "sr" annotation.
 			// If possible, it should log a binary annotation of "ca", indicating the
 			// caller's address (ex X-Forwarded-For header)
-			event.getParent().log(Constants.SERVER_RECV);
+			parent.log(Constants.SERVER_RECV);
 		}
 	}
 
-	@EventListener
-	@Order(0)
-	public void clientSend(ClientSentEvent event) {
+	@Override
+	public void clientSent(Span span) {
 		// For an outbound RPC call, it should log a "cs" annotation.
 		// If possible, it should log a binary annotation of "sa", indicating the
 		// destination address.
-		event.getSpan().log(Constants.CLIENT_SEND);
+		span.log(Constants.CLIENT_SEND);
 	}
 
-	@EventListener
-	@Order(0)
-	public void clientReceive(ClientReceivedEvent event) {
-		event.getSpan().log(Constants.CLIENT_RECV);
+	@Override
+	public void clientReceived(Span span) {
+		span.log(Constants.CLIENT_RECV);
 	}
 
-	@EventListener
-	@Order(0)
-	public void serverSend(ServerSentEvent event) {
-		if (event.getParent() != null && event.getParent().isRemote()) {
-			event.getParent().log(Constants.SERVER_SEND);
-			this.reporter.report(convert(event.getParent()));
+	@Override
+	public void serverSent(Span parent, Span span) {
+		if (parent != null && parent.isRemote()) {
+			parent.log(Constants.SERVER_SEND);
+			report(parent);
 		}
 	}
 
-	@EventListener
-	@Order(0)
-	public void release(SpanReleasedEvent event) {
+	@Override
+	public void spanReleased(Span parent, Span span) {
 		// Ending a span in zipkin means adding duration and sending it out
 		// Zipkin Span.duration corresponds with Sleuth's Span.begin and end
-		assert event.getSpan().getEnd() != 0;
-		if (event.getSpan().isExportable()) {
-			this.reporter.report(convert(event.getSpan()));
+		if (span.isExportable()) {
+			assert span.getEnd() != 0;
+			report(span);
+		}
+	}
+
+	private void report(Span span) {
+		if (!this.accepting) {
+			return;
+		}
+		if (this.exporter != null) {
+			this.exporter.export(span);
+		}
+		else {
+			reportNow(span);
+		}
+	}
+
+	private void reportNow(Span span) {
+		if (this.jsonWriters != null) {
+			ZipkinJsonSpanWriter writer = this.jsonWriters.get();
+			if (writer == null) {
+				writer = new ZipkinJsonSpanWriter(this.localEndpoint);
+				this.jsonWriters.set(writer);
+			}
+			((EncodedSpanReporter) this.reporter).reportEncoded(writer.write(span));
+		}
+		else {
+			this.reporter.report(convert(span));
+		}
+	}
+
+	/**
+	 * Reports any spans still waiting in the buffer on the current thread.
+	 */
+	@Override
+	public void flush() {
+		if (this.exporter != null) {
+			this.exporter.flush();
+		}
+	}
+
+	/**
+	 * @return the load on the whole pipeline: the export buffer, if any, and the reporter,
+	 * if it is a {@link SpanQueueStatus}
+	 */
+	public SpanQueueStatus getQueueStatus() {
+		return this.queueStatus;
+	}
+
+	@Override
+	public void stopAccepting() {
+		this.accepting = false;
+	}
+
+	/**
+	 * Hands the buffered spans to the reporter, then drains the reporter with whatever is
+	 * left of the timeout.
+	 */
+	@Override
+	public int drain(long timeout, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (this.exporter != null) {
+			this.exporter.flush(timeout, unit);
+		}
+		if (this.reporter instanceof DrainableSpanQueue) {
+			DrainableSpanQueue reporter = (DrainableSpanQueue) this.reporter;
+			reporter.stopAccepting();
+			return reporter.drain(Math.max(0, deadline - System.nanoTime()),
+					TimeUnit.NANOSECONDS);
+		}
+		return 0;
+	}
+
+	@Override
+	public int abandon() {
+		int abandoned = 0;
+		if (this.exporter != null) {
+			abandoned += this.exporter.getBuffer().clear();
+		}
+		if (this.reporter instanceof DrainableSpanQueue) {
+			abandoned += ((DrainableSpanQueue) this.reporter).abandon();
+		}
+		return abandoned;
+	}
+
+	@Override
+	public void start() {
+		if (this.exporter != null) {
+			this.exporter.start();
+		}
+		this.running = true;
+	}
+
+	/**
+	 * Stops the background thread. Draining the spans it hasn't reported yet is up to
+	 * the {@link org.springframework.cloud.sleuth.export.SpanQueueLifecycle}, which is
+	 * stopped first.
+	 */
+	@Override
+	public void stop() {
+		if (this.exporter != null) {
+			this.exporter.stop();
+		}
+		this.running = false;
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE - 1;
+	}
+
+	@Override
+	public void close() {
+		if (this.exporter != null) {
+			this.exporter.close();
+		}
+	}
+
+	/**
+	 * Counts spans where they enter the pipeline and drops wherever they happen. The
+	 * queue reported is the fuller of the two.
+	 */
+	private class QueueStatus implements SpanQueueStatus {
+
+		@Override
+		public int getQueuedSpans() {
+			SpanQueueStatus fuller = fuller();
+			return fuller != null ? fuller.getQueuedSpans() : 0;
+		}
+
+		@Override
+		public int getQueueCapacity() {
+			SpanQueueStatus fuller = fuller();
+			return fuller != null ? fuller.getQueueCapacity() : 0;
+		}
+
+		@Override
+		public long getAcceptedSpans() {
+			SpanQueueStatus first = ZipkinSpanListener.this.exporter != null
+					? ZipkinSpanListener.this.exporter.getBuffer() : reporterStatus();
+			return first != null ? first.getAcceptedSpans() : 0;
+		}
+
+		@Override
+		public long getDroppedSpans() {
+			long dropped = 0;
+			if (ZipkinSpanListener.this.exporter != null) {
+				dropped += ZipkinSpanListener.this.exporter.getBuffer().getDroppedSpans();
+			}
+			SpanQueueStatus reporter = reporterStatus();
+			if (reporter != null) {
+				dropped += reporter.getDroppedSpans();
+			}
+			return dropped;
+		}
+
+		private SpanQueueStatus reporterStatus() {
+			return ZipkinSpanListener.this.reporter instanceof SpanQueueStatus
+					? (SpanQueueStatus) ZipkinSpanListener.this.reporter : null;
+		}
+
+		private SpanQueueStatus fuller() {
+			SpanQueueStatus buffer = ZipkinSpanListener.this.exporter != null
+					? ZipkinSpanListener.this.exporter.getBuffer() : null;
+			SpanQueueStatus reporter = reporterStatus();
+			if (buffer == null || reporter == null) {
+				return buffer != null ? buffer : reporter;
+			}
+			return load(buffer) >= load(reporter) ? buffer : reporter;
 		}
+
+		private float load(SpanQueueStatus queue) {
+			return (float) queue.getQueuedSpans() / Math.max(1, queue.getQueueCapacity());
+		}
+
 	}
 
 	/**
@@ -124,29 +348,25 @@ public class ZipkinSpanListener {
 
 		// A zipkin span without any annotations cannot be queried, add special "lc" to avoid that.
 		if (span.logs().isEmpty() && span.tags().isEmpty()) {
-			byte[] processId = span.getProcessId() != null
-					? span.getProcessId().toLowerCase().getBytes(UTF_8)
-					: UNKNOWN_BYTES;
-			BinaryAnnotation component = new BinaryAnnotation.Builder()
-					.type(BinaryAnnotation.Type.STRING)
-					.key("lc") // LOCAL_COMPONENT
-					.value(processId)
-					.endpoint(this.localEndpoint).build();
-			zipkinSpan.addBinaryAnnotation(component);
+			String processId = span.getProcessId() != null
+					? span.getProcessId().toLowerCase()
+					: "unknown";
+			zipkinSpan.addBinaryAnnotation(
+					this.binaryAnnotations.get("lc", processId)); // LOCAL_COMPONENT
 		} else {
-			addZipkinAnnotations(zipkinSpan, span, this.localEndpoint);
-			addZipkinBinaryAnnotations(zipkinSpan, span, this.localEndpoint);
+			addZipkinAnnotations(zipkinSpan, span);
+			addZipkinBinaryAnnotations(zipkinSpan, span);
 		}
 
 		zipkinSpan.timestamp(span.getBegin() * 1000L);
 		zipkinSpan.duration((span.getEnd() - span.getBegin()) * 1000L);
 		zipkinSpan.traceId(span.getTraceId());
-		if (span.getParents().size() > 0) {
+		if (SpanParents.hasParent(span)) {
 			if (span.getParents().size() > 1) {
 				log.error("Zipkin doesn't support spans with multiple parents. Omitting "
 						+ "other parents for " + span);
 			}
-			zipkinSpan.parentId(span.getParents().get(0));
+			zipkinSpan.parentId(SpanParents.parentId(span));
 		}
 		zipkinSpan.id(span.getSpanId());
 		if (StringUtils.hasText(span.getName())) {
@@ -158,14 +378,10 @@ public class ZipkinSpanListener {
 	/**
 	 * Add annotations from the sleuth Span.
 	 */
-	private void addZipkinAnnotations(zipkin.Span.Builder zipkinSpan,
-			Span span, Endpoint endpoint) {
+	private void addZipkinAnnotations(zipkin.Span.Builder zipkinSpan, Span span) {
 		for (Log ta : span.logs()) {
-			Annotation zipkinAnnotation = new Annotation.Builder()
-					.endpoint(endpoint)
-					.timestamp(ta.getTime() * 1000) // Zipkin is in microseconds
-					.value(ta.getMsg()).build();
-			zipkinSpan.addAnnotation(zipkinAnnotation);
+			zipkinSpan.addAnnotation(this.annotations
+					.create(ta.getTime() * 1000, ta.getMsg())); // Zipkin is in microseconds
 		}
 	}
 
@@ -174,15 +390,10 @@ public class ZipkinSpanListener {
 	 *
 	 * @return list of Annotations that could be added to Zipkin Span.
 	 */
-	private void addZipkinBinaryAnnotations(zipkin.Span.Builder zipkinSpan,
-			Span span, Endpoint endpoint) {
+	private void addZipkinBinaryAnnotations(zipkin.Span.Builder zipkinSpan, Span span) {
 		for (Map.Entry<String, String> e : span.tags().entrySet()) {
-			BinaryAnnotation binaryAnn = new BinaryAnnotation.Builder()
-					.type(BinaryAnnotation.Type.STRING)
-					.key(e.getKey())
-					.value(e.getValue().getBytes(UTF_8))
-					.endpoint(endpoint).build();
-			zipkinSpan.addBinaryAnnotation(binaryAnn);
+			zipkinSpan.addBinaryAnnotation(
+					this.binaryAnnotations.get(e.getKey(), e.getValue()));
 		}
 	}
 
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import org.junit.Test;
+
+import zipkin.BinaryAnnotation;
+import zipkin.Endpoint;
+
+public class BinaryAnnotationCacheTests {
+
+	Endpoint endpoint = Endpoint.create("my-tomcat", 127 << 24 | 1, 8080);
+
+	BinaryAnnotationCache cache = new BinaryAnnotationCache(this.endpoint, 2, 2);
+
+	@Test
+	public void should_build_string_annotations_of_the_endpoint() {
+		BinaryAnnotation annotation = this.cache.get("http/method", "GET");
+
+		then(annotation.key).isEqualTo("http/method");
+		then(annotation.value).isEqualTo("GET".getBytes());
+		then(annotation.type).isEqualTo(BinaryAnnotation.Type.STRING);
+		then(annotation.endpoint).isEqualTo(this.endpoint);
+	}
+
+	@Test
+	public void should_reuse_annotations_of_repeated_tags() {
+		then(this.cache.get("http/method", "GET"))
+				.isSameAs(this.cache.get("http/method", "GET"));
+	}
+
+	@Test
+	public void should_stop_caching_values_of_a_key_past_the_limit() {
+		this.cache.get("http/url", "/a");
+		this.cache.get("http/url", "/b");
+
+		then(this.cache.get("http/url", "/c")).isNotSameAs(this.cache.get("http/url", "/c"))
+				.isEqualTo(this.cache.get("http/url", "/c"));
+		then(this.cache.get("http/url", "/a")).isSameAs(this.cache.get("http/url", "/a"));
+	}
+
+	@Test
+	public void should_stop_caching_keys_past_the_limit() {
+		this.cache.get("lc", "foo");
+		this.cache.get("http/method", "GET");
+
+		then(this.cache.get("http/host", "localhost"))
+				.isNotSameAs(this.cache.get("http/host", "localhost"))
+				.isEqualTo(this.cache.get("http/host", "localhost"));
+	}
+
+}
@@ -0,0 +1,70 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GzipCompressorTest {
+
+  GzipCompressor compressor = new GzipCompressor();
+
+  @After
+  public void end() {
+    compressor.end();
+  }
+
+  @Test
+  public void compressesToGzip() throws Exception {
+    byte[] json = "[{\"traceId\":\"0000000000000001\",\"name\":\"foo\"}]".getBytes("UTF-8");
+
+    int length = compressor.compress(json);
+
+    assertThat(length).isEqualTo(compressor.length());
+    assertThat(gunzip(compressor.buffer(), length)).isEqualTo(json);
+  }
+
+  @Test
+  public void reusesTheBufferAcrossMessages() throws Exception {
+    byte[] big = repeat("{\"serviceName\":\"foo\"},", 10000);
+    byte[] small = repeat("bar", 10);
+
+    compressor.compress(big);
+    byte[] buffer = compressor.buffer();
+    int length = compressor.compress(small);
+
+    assertThat(compressor.buffer()).isSameAs(buffer);
+    assertThat(gunzip(compressor.buffer(), length)).isEqualTo(small);
+  }
+
+  @Test
+  public void growsTheBufferForIncompressibleInput() throws Exception {
+    byte[] random = new byte[100000];
+    new Random(1L).nextBytes(random);
+
+    int length = compressor.compress(random);
+
+    assertThat(length).isGreaterThan(random.length);
+    assertThat(gunzip(compressor.buffer(), length)).isEqualTo(random);
+  }
+
+  static byte[] repeat(String value, int times) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int i = 0; i < times; i++) out.write(value.getBytes("UTF-8"));
+    return out.toByteArray();
+  }
+
+  static byte[] gunzip(byte[] gzipped, int length) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped, 0, length))) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      for (int read; (read = in.read(buffer)) != -1; ) out.write(buffer, 0, read);
+      return out.toByteArray();
+    }
+  }
+}
@@ -4,12 +4,23 @@ import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
 import okhttp3.mockwebserver.SocketPolicy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import zipkin.Codec;
 import zipkin.Span;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class HttpZipkinSpanReporterTest {
@@ -17,8 +28,13 @@ public class HttpZipkinSpanReporterTest {
   @Rule
   public final MockWebServer server = new MockWebServer();
 
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  InMemorySpanReporterMetrics metrics = new InMemorySpanReporterMetrics();
+
   // set flush interval to 0 so that tests can drive flushing explicitly
-  HttpZipkinSpanReporter reporter = new HttpZipkinSpanReporter(server.url("").toString(), 0);
+  HttpZipkinSpanReporter reporter = new HttpZipkinSpanReporter(properties(), metrics);
 
   @Test
   public void reportDoesntDoIO() throws Exception {
@@ -31,8 +47,8 @@ public class HttpZipkinSpanReporterTest {
   public void reportIncrementsAcceptedMetrics() throws Exception {
     reporter.report(span(1L, "foo"));
 
-    // TODO: assertThat(metrics.acceptedSpans.get()).isEqualTo(1);
-    // TODO: assertThat(metrics.droppedSpans.get()).isZero();
+    assertThat(metrics.acceptedSpans.get()).isEqualTo(1);
+    assertThat(metrics.droppedSpans.get()).isZero();
   }
 
   @Test
@@ -40,8 +56,19 @@ public class HttpZipkinSpanReporterTest {
     for (int i = 0; i < 1001; i++)
       reporter.report(span(1L, "foo"));
 
-    // TODO: assertThat(metrics.acceptedSpans.get()).isEqualTo(1001);
-    // TODO: assertThat(metrics.droppedSpans.get()).isEqualTo(1);
+    assertThat(metrics.acceptedSpans.get()).isEqualTo(1001);
+    assertThat(metrics.droppedSpans.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void reportsQueueStatus() throws Exception {
+    for (int i = 0; i < 1001; i++)
+      reporter.report(span(1L, "foo"));
+
+    assertThat(reporter.getQueuedSpans()).isEqualTo(1000);
+    assertThat(reporter.getQueueCapacity()).isEqualTo(1000);
+    assertThat(reporter.getAcceptedSpans()).isEqualTo(1000);
+    assertThat(reporter.getDroppedSpans()).isEqualTo(1);
   }
 
   @Test
@@ -66,6 +93,22 @@ public class HttpZipkinSpanReporterTest {
     );
   }
 
+  @Test
+  public void postIncrementsMessageMetrics() throws Exception {
+    server.enqueue(new MockResponse());
+
+    reporter.report(span(1L, "foo"));
+    reporter.report(span(2L, "bar"));
+
+    reporter.flush(); // manually flush the spans
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(metrics.queuedSpans.get()).isEqualTo(2);
+    assertThat(metrics.messages.get()).isEqualTo(1);
+    assertThat(metrics.messageBytes.get()).isEqualTo(request.getBodySize());
+    assertThat(metrics.droppedSpans.get()).isZero();
+  }
+
   @Test
   public void incrementsDroppedSpansWhenServerErrors() throws Exception {
     server.enqueue(new MockResponse().setResponseCode(500));
@@ -75,7 +118,7 @@ public class HttpZipkinSpanReporterTest {
 
     reporter.flush(); // manually flush the spans
 
-    // TODO: assertThat(metrics.droppedSpans.get()).isEqualTo(2);
+    assertThat(metrics.droppedSpans.get()).isEqualTo(2);
   }
 
   @Test
@@ -87,7 +130,434 @@ public class HttpZipkinSpanReporterTest {
 
     reporter.flush(); // manually flush the spans
 
-    // TODO: assertThat(metrics.droppedSpans.get()).isEqualTo(2);
+    assertThat(metrics.droppedSpans.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void splitsMessagesByMaxSpans() throws Exception {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+    ZipkinProperties zipkin = properties();
+    zipkin.setMaxSpansPerMessage(2);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+
+    reporter.report(span(1L, "foo"));
+    reporter.report(span(2L, "bar"));
+    reporter.report(span(3L, "baz"));
+
+    reporter.flush(); // manually flush the spans
+
+    assertThat(Codec.JSON.readSpans(server.takeRequest().getBody().readByteArray()))
+        .containsExactly(span(1L, "foo"), span(2L, "bar"));
+    assertThat(Codec.JSON.readSpans(server.takeRequest().getBody().readByteArray()))
+        .containsExactly(span(3L, "baz"));
+    assertThat(metrics.messages.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void splitsMessagesByMaxBytes() throws Exception {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+    ZipkinProperties zipkin = properties();
+    // room for one span, but not two
+    zipkin.setMaxBytesPerMessage(Codec.JSON.writeSpans(asList(span(1L, "foo"))).length);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+
+    reporter.report(span(1L, "foo"));
+    reporter.report(span(2L, "bar"));
+
+    reporter.flush(); // manually flush the spans
+
+    assertThat(Codec.JSON.readSpans(server.takeRequest().getBody().readByteArray()))
+        .containsExactly(span(1L, "foo"));
+    assertThat(Codec.JSON.readSpans(server.takeRequest().getBody().readByteArray()))
+        .containsExactly(span(2L, "bar"));
+    assertThat(metrics.droppedSpans.get()).isZero();
+  }
+
+  @Test
+  public void flushesEarlyWhenABatchIsFull() throws Exception {
+    server.enqueue(new MockResponse());
+    ZipkinProperties zipkin = properties();
+    zipkin.setFlushInterval(60);
+    zipkin.setMaxSpansPerMessage(2);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+    // the first scheduled flush runs immediately; let it pass before reporting
+    Thread.sleep(100);
+
+    reporter.report(span(1L, "foo"));
+    reporter.report(span(2L, "bar"));
+
+    RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+    reporter.close();
+    assertThat(request).isNotNull();
+    assertThat(Codec.JSON.readSpans(request.getBody().readByteArray()))
+        .containsExactly(span(1L, "foo"), span(2L, "bar"));
+  }
+
+  @Test
+  public void gzipsLargeMessages() throws Exception {
+    server.enqueue(new MockResponse());
+    ZipkinProperties zipkin = properties();
+    zipkin.getCompression().setEnabled(true);
+    zipkin.getCompression().setMinBytes(0);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+
+    reporter.report(span(1L, "foo"));
+    reporter.report(span(2L, "bar"));
+
+    reporter.flush(); // manually flush the spans
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Encoding")).isEqualTo("gzip");
+    assertThat(metrics.messageBytes.get()).isEqualTo(request.getBodySize());
+    byte[] gzipped = request.getBody().readByteArray();
+    assertThat(Codec.JSON.readSpans(GzipCompressorTest.gunzip(gzipped, gzipped.length)))
+        .containsExactly(span(1L, "foo"), span(2L, "bar"));
+  }
+
+  @Test
+  public void doesntGzipMessagesUnderTheThreshold() throws Exception {
+    server.enqueue(new MockResponse());
+    ZipkinProperties zipkin = properties();
+    zipkin.getCompression().setEnabled(true);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+
+    reporter.report(span(1L, "foo"));
+
+    reporter.flush(); // manually flush the spans
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Encoding")).isNull();
+    assertThat(Codec.JSON.readSpans(request.getBody().readByteArray()))
+        .containsExactly(span(1L, "foo"));
+  }
+
+  @Test
+  public void postsThrift() throws Exception {
+    server.enqueue(new MockResponse());
+    ZipkinProperties zipkin = properties();
+    zipkin.setEncoder(SpanEncoder.THRIFT);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+
+    reporter.report(span(1L, "foo"));
+    reporter.report(span(2L, "bar"));
+
+    reporter.flush(); // manually flush the spans
+
+    RecordedRequest request = server.takeRequest();
+    assertThat(request.getHeader("Content-Type")).isEqualTo("application/x-thrift");
+    assertThat(Codec.THRIFT.readSpans(request.getBody().readByteArray()))
+        .containsExactly(span(1L, "foo"), span(2L, "bar"));
+  }
+
+  @Test
+  public void postsSpansReportedEncoded() throws Exception {
+    server.enqueue(new MockResponse());
+
+    reporter.reportEncoded(Codec.JSON.writeSpan(span(1L, "foo")));
+    reporter.report(span(2L, "bar"));
+
+    reporter.flush(); // manually flush the spans
+
+    assertThat(Codec.JSON.readSpans(server.takeRequest().getBody().readByteArray()))
+        .containsExactly(span(1L, "foo"), span(2L, "bar"));
+  }
+
+  @Test
+  public void reusesConnections() throws Exception {
+    server.enqueue(new MockResponse().setBody("ignored response body"));
+    server.enqueue(new MockResponse());
+
+    reporter.report(span(1L, "foo"));
+    reporter.flush();
+    reporter.report(span(2L, "bar"));
+    reporter.flush();
+
+    assertThat(server.takeRequest().getSequenceNumber()).isZero();
+    // the second message went over the connection the first one opened
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(1);
+  }
+
+  @Test
+  public void incrementsDroppedSpansWhenServerTimesOut() throws Exception {
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+    ZipkinProperties zipkin = properties();
+    zipkin.setReadTimeout(100);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+
+    reporter.report(span(1L, "foo"));
+
+    reporter.flush(); // returns once the read times out
+
+    assertThat(metrics.droppedSpans.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void postsWithTheGivenTransport() throws Exception {
+    final List<byte[]> messages = new ArrayList<>();
+    HttpTransport transport = new HttpTransport() {
+      @Override public void post(URL url, String contentType, String contentEncoding,
+          byte[] body, int length, int timeout) {
+        assertThat(url.toString()).isEqualTo(server.url("/api/v1/spans").toString());
+        messages.add(Arrays.copyOf(body, length));
+      }
+    };
+    reporter = new HttpZipkinSpanReporter(properties(), transport, metrics);
+
+    reporter.report(span(1L, "foo"));
+
+    reporter.flush(); // manually flush the spans
+
+    assertThat(server.getRequestCount()).isZero();
+    assertThat(messages).hasSize(1);
+    assertThat(Codec.JSON.readSpans(messages.get(0))).containsExactly(span(1L, "foo"));
+  }
+
+  @Test
+  public void retriesFailedMessages() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(500));
+    server.enqueue(new MockResponse());
+    ZipkinProperties zipkin = properties();
+    zipkin.getRetry().setMaxAttempts(2);
+    zipkin.getRetry().setInitialBackoff(1);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+
+    reporter.report(span(1L, "foo"));
+
+    reporter.flush(); // manually flush the spans
+
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(metrics.messages.get()).isEqualTo(1);
+    assertThat(metrics.droppedSpans.get()).isZero();
+  }
+
+  @Test
+  public void spillsMessagesAndReplaysThemInOrder() throws Exception {
+    ZipkinProperties zipkin = properties();
+    zipkin.getSpill().setPath(folder.newFile().getPath());
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+
+    server.enqueue(new MockResponse().setResponseCode(500));
+    reporter.report(span(1L, "foo"));
+    reporter.flush(); // the collector fails: spilled
+
+    server.enqueue(new MockResponse().setResponseCode(500));
+    reporter.report(span(2L, "bar"));
+    reporter.flush(); // replaying fails: spilled behind the first message
+
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(metrics.spilledBytes.get()).isGreaterThan(0);
+    assertThat(metrics.droppedSpans.get()).isZero();
+
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+    reporter.flush(); // the collector is back
+
+    server.takeRequest();
+    server.takeRequest();
+    assertThat(Codec.JSON.readSpans(server.takeRequest().getBody().readByteArray()))
+        .containsExactly(span(1L, "foo"));
+    assertThat(Codec.JSON.readSpans(server.takeRequest().getBody().readByteArray()))
+        .containsExactly(span(2L, "bar"));
+    assertThat(metrics.replayedBytes.get()).isEqualTo(metrics.spilledBytes.get());
+  }
+
+  @Test
+  public void waitsForAnotherSendersReplayInsteadOfSpilling() throws Exception {
+    final AtomicBoolean down = new AtomicBoolean(true);
+    final CountDownLatch replaying = new CountDownLatch(1);
+    final CountDownLatch replayed = new CountDownLatch(1);
+    final List<byte[]> messages = new CopyOnWriteArrayList<>();
+    HttpTransport transport = new HttpTransport() {
+      @Override public void post(URL url, String contentType, String contentEncoding,
+          byte[] body, int length, int timeout) throws IOException {
+        if (down.get()) throw new IOException("collector down");
+        if (messages.isEmpty()) { // the spilled message: hold it until the second flush waits
+          replaying.countDown();
+          try {
+            replayed.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+          }
+        }
+        messages.add(Arrays.copyOf(body, length));
+      }
+    };
+    ZipkinProperties zipkin = properties();
+    zipkin.getSpill().setPath(folder.newFile().getPath());
+    reporter = new HttpZipkinSpanReporter(zipkin, transport, metrics);
+
+    reporter.report(span(1L, "foo"));
+    reporter.flush(); // the collector fails: spilled
+    long spilledBytes = metrics.spilledBytes.get();
+    down.set(false);
+
+    Thread replayer = flushInBackground();
+    replaying.await(5, TimeUnit.SECONDS);
+    reporter.report(span(2L, "bar"));
+    Thread sender = flushInBackground();
+    Thread.sleep(100); // lets the sender find the replay lock taken
+    replayed.countDown();
+    replayer.join(5000);
+    sender.join(5000);
+
+    assertThat(metrics.spilledBytes.get()).isEqualTo(spilledBytes);
+    assertThat(metrics.droppedSpans.get()).isZero();
+    assertThat(messages).hasSize(2);
+    assertThat(Codec.JSON.readSpans(messages.get(0))).containsExactly(span(1L, "foo"));
+    assertThat(Codec.JSON.readSpans(messages.get(1))).containsExactly(span(2L, "bar"));
+  }
+
+  @Test
+  public void closeLeavesTheCompressorOfABusySenderAlone() throws Exception {
+    final CountDownLatch posting = new CountDownLatch(1);
+    final CountDownLatch closed = new CountDownLatch(1);
+    final List<byte[]> messages = new CopyOnWriteArrayList<>();
+    HttpTransport transport = new HttpTransport() {
+      @Override public void post(URL url, String contentType, String contentEncoding,
+          byte[] body, int length, int timeout) throws IOException {
+        if (posting.getCount() > 0) { // fail slowly, so that the retry runs after close
+          posting.countDown();
+          try {
+            closed.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+          }
+          throw new IOException("collector slow");
+        }
+        messages.add(Arrays.copyOf(body, length));
+      }
+    };
+    ZipkinProperties zipkin = properties();
+    zipkin.getCompression().setEnabled(true);
+    zipkin.getCompression().setMinBytes(0);
+    zipkin.getRetry().setMaxAttempts(2);
+    zipkin.getRetry().setInitialBackoff(1);
+    reporter = new HttpZipkinSpanReporter(zipkin, transport, metrics);
+
+    reporter.report(span(1L, "foo"));
+    Thread sender = flushInBackground();
+    posting.await(5, TimeUnit.SECONDS);
+    reporter.close();
+    closed.countDown();
+    sender.join(5000);
+
+    assertThat(messages).hasSize(1);
+    assertThat(Codec.JSON.readSpans(GzipCompressorTest.gunzip(messages.get(0),
+        messages.get(0).length))).containsExactly(span(1L, "foo"));
+  }
+
+  Thread flushInBackground() {
+    Thread thread = new Thread(new Runnable() {
+      @Override public void run() {
+        reporter.flush();
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  @Test
+  public void expiresOldSpilledMessages() throws Exception {
+    ZipkinProperties zipkin = properties();
+    zipkin.getSpill().setPath(folder.newFile().getPath());
+    zipkin.getSpill().setMaxAge(0);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+
+    server.enqueue(new MockResponse().setResponseCode(500));
+    reporter.report(span(1L, "foo"));
+    reporter.flush(); // the collector fails: spilled
+    Thread.sleep(10);
+
+    reporter.flush(); // too old to replay
+
+    assertThat(server.getRequestCount()).isEqualTo(1);
+    assertThat(metrics.expiredBytes.get()).isEqualTo(metrics.spilledBytes.get());
+    assertThat(metrics.droppedSpans.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void drainSendsTheQueuedSpans() throws Exception {
+    server.enqueue(new MockResponse());
+    server.enqueue(new MockResponse());
+    ZipkinProperties zipkin = properties();
+    zipkin.setMaxSpansPerMessage(2);
+    reporter = new HttpZipkinSpanReporter(zipkin, metrics);
+    reporter.report(span(1L, "foo"));
+    reporter.report(span(2L, "bar"));
+    reporter.report(span(3L, "baz"));
+
+    reporter.stopAccepting();
+    reporter.report(span(4L, "qux"));
+
+    assertThat(reporter.drain(1, TimeUnit.SECONDS)).isEqualTo(3);
+    assertThat(server.getRequestCount()).isEqualTo(2);
+    assertThat(reporter.abandon()).isZero();
+    assertThat(metrics.droppedSpans.get()).isEqualTo(1); // reported after stopAccepting
+  }
+
+  @Test
+  public void drainStopsRetryingOnceTheTimeoutHasElapsed() throws Exception {
+    HttpTransport transport = new HttpTransport() {
+      @Override public void post(URL url, String contentType, String contentEncoding,
+          byte[] body, int length, int timeout) throws IOException {
+        throw new IOException("collector down");
+      }
+    };
+    ZipkinProperties zipkin = properties();
+    zipkin.getRetry().setMaxAttempts(10);
+    zipkin.getRetry().setInitialBackoff(1000);
+    reporter = new HttpZipkinSpanReporter(zipkin, transport, metrics);
+    reporter.report(span(1L, "foo"));
+
+    long start = System.nanoTime();
+    assertThat(reporter.drain(200, TimeUnit.MILLISECONDS)).isZero();
+
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(1000));
+    assertThat(reporter.abandon()).isEqualTo(1);
+    assertThat(reporter.getDroppedSpans()).isZero(); // abandoned on shutdown, not overloaded
+  }
+
+  @Test
+  public void drainCapsTheTransportTimeoutsToTheTimeLeft() throws Exception {
+    final List<Integer> timeouts = new ArrayList<>();
+    HttpTransport transport = new HttpTransport() {
+      @Override public void post(URL url, String contentType, String contentEncoding,
+          byte[] body, int length, int timeout) {
+        timeouts.add(timeout);
+      }
+    };
+    reporter = new HttpZipkinSpanReporter(properties(), transport, metrics);
+
+    reporter.report(span(1L, "foo"));
+    reporter.flush();
+    reporter.report(span(2L, "bar"));
+    reporter.drain(1, TimeUnit.SECONDS);
+
+    assertThat(timeouts).hasSize(2);
+    assertThat(timeouts.get(0)).isZero(); // flushing leaves the timeouts as configured
+    assertThat(timeouts.get(1)).isBetween(1, 1000);
+  }
+
+  @Test
+  public void abandonDropsWhatDrainCouldNotSend() throws Exception {
+    reporter.report(span(1L, "foo"));
+    reporter.report(span(2L, "bar"));
+
+    assertThat(reporter.drain(0, TimeUnit.SECONDS)).isZero();
+    assertThat(reporter.abandon()).isEqualTo(2);
+
+    assertThat(server.getRequestCount()).isZero();
+    assertThat(metrics.droppedSpans.get()).isEqualTo(2);
+  }
+
+  ZipkinProperties properties() {
+    ZipkinProperties zipkin = new ZipkinProperties();
+    zipkin.setBaseUrl(server.url("").toString());
+    zipkin.setFlushInterval(0);
+    zipkin.getRetry().setMaxAttempts(1); // retries are tested separately
+    return zipkin;
   }
 
   static Span span(long traceId, String spanName) {
@@ -0,0 +1,49 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class InMemorySpanReporterMetrics implements SpanReporterMetrics {
+  final AtomicInteger acceptedSpans = new AtomicInteger();
+  final AtomicInteger droppedSpans = new AtomicInteger();
+  final AtomicInteger queuedSpans = new AtomicInteger();
+  final AtomicInteger messages = new AtomicInteger();
+  final AtomicInteger messageBytes = new AtomicInteger();
+  final AtomicInteger spilledBytes = new AtomicInteger();
+  final AtomicInteger replayedBytes = new AtomicInteger();
+  final AtomicInteger expiredBytes = new AtomicInteger();
+
+  @Override public void incrementAcceptedSpans(int quantity) {
+    acceptedSpans.addAndGet(quantity);
+  }
+
+  @Override public void incrementDroppedSpans(int quantity, DropReason reason) {
+    droppedSpans.addAndGet(quantity);
+  }
+
+  @Override public void updateQueuedSpans(int quantity) {
+    queuedSpans.set(quantity);
+  }
+
+  @Override public void incrementMessages() {
+    messages.incrementAndGet();
+  }
+
+  @Override public void recordMessageBytes(int bytes) {
+    messageBytes.addAndGet(bytes);
+  }
+
+  @Override public void recordMessageLatency(long millis) {
+  }
+
+  @Override public void incrementSpilledBytes(int bytes) {
+    spilledBytes.addAndGet(bytes);
+  }
+
+  @Override public void incrementReplayedBytes(int bytes) {
+    replayedBytes.addAndGet(bytes);
+  }
+
+  @Override public void incrementExpiredBytes(int bytes) {
+    expiredBytes.addAndGet(bytes);
+  }
+}
@@ -0,0 +1,92 @@
+package org.springframework.cloud.sleuth.zipkin;
+
+import java.io.File;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpillFileTest {
+  static final int MAX_BYTES =
+      SpillFile.HEADER_LENGTH + 2 * (SpillFile.RECORD_HEADER_LENGTH + 10);
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  File path;
+
+  @Before
+  public void path() throws Exception {
+    path = folder.newFile();
+  }
+
+  @Test
+  public void replaysInOrder() throws Exception {
+    try (SpillFile spill = SpillFile.open(path, MAX_BYTES)) {
+      spill.append(1, SpanEncoder.JSON, message(1), 1L);
+      spill.append(2, SpanEncoder.THRIFT, message(2), 2L);
+
+      SpillFile.Record first = spill.peek();
+      assertThat(first.spanCount).isEqualTo(1);
+      assertThat(first.encoder).isEqualTo(SpanEncoder.JSON);
+      assertThat(first.timestamp).isEqualTo(1L);
+      assertThat(first.message).isEqualTo(message(1));
+      spill.remove(first);
+
+      SpillFile.Record second = spill.peek();
+      assertThat(second.encoder).isEqualTo(SpanEncoder.THRIFT);
+      assertThat(second.message).isEqualTo(message(2));
+      spill.remove(second);
+
+      assertThat(spill.isEmpty()).isTrue();
+      assertThat(spill.peek()).isNull();
+    }
+  }
+
+  @Test
+  public void keepsMessagesAcrossRestarts() throws Exception {
+    try (SpillFile spill = SpillFile.open(path, MAX_BYTES)) {
+      spill.append(1, SpanEncoder.JSON, message(1), 1L);
+      spill.append(2, SpanEncoder.JSON, message(2), 2L);
+      spill.remove(spill.peek());
+    }
+
+    try (SpillFile spill = SpillFile.open(path, MAX_BYTES)) {
+      assertThat(spill.peek().message).isEqualTo(message(2));
+      assertThat(spill.sizeInBytes()).isEqualTo(SpillFile.RECORD_HEADER_LENGTH + 10);
+    }
+  }
+
+  @Test
+  public void refusesMessagesOnceFull() throws Exception {
+    try (SpillFile spill = SpillFile.open(path, MAX_BYTES)) {
+      assertThat(spill.append(1, SpanEncoder.JSON, message(1), 1L)).isTrue();
+      assertThat(spill.append(2, SpanEncoder.JSON, message(2), 2L)).isTrue();
+
+      assertThat(spill.append(3, SpanEncoder.JSON, message(3), 3L)).isFalse();
+    }
+  }
+
+  @Test
+  public void reclaimsTheSpaceOfReplayedMessages() throws Exception {
+    try (SpillFile spill = SpillFile.open(path, MAX_BYTES)) {
+      spill.append(1, SpanEncoder.JSON, message(1), 1L);
+      spill.append(2, SpanEncoder.JSON, message(2), 2L);
+      spill.remove(spill.peek());
+
+      assertThat(spill.append(3, SpanEncoder.JSON, message(3), 3L)).isTrue();
+
+      assertThat(spill.peek().message).isEqualTo(message(2));
+      spill.remove(spill.peek());
+      assertThat(spill.peek().message).isEqualTo(message(3));
+    }
+  }
+
+  static byte[] message(int value) {
+    byte[] message = new byte[10];
+    message[0] = (byte) value;
+    return message;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import org.junit.Test;
+
+import zipkin.Annotation;
+import zipkin.Constants;
+import zipkin.Endpoint;
+
+public class TimelineAnnotationsTests {
+
+	Endpoint endpoint = Endpoint.create("my-tomcat", 127 << 24 | 1, 8080);
+
+	TimelineAnnotations annotations = new TimelineAnnotations(this.endpoint);
+
+	@Test
+	public void should_build_annotations_of_the_endpoint() {
+		Annotation annotation = this.annotations.create(1000L, "my-event");
+
+		then(annotation.timestamp).isEqualTo(1000L);
+		then(annotation.value).isEqualTo("my-event");
+		then(annotation.endpoint).isSameAs(this.endpoint);
+	}
+
+	@Test
+	public void should_share_the_values_of_rpc_annotations() {
+		String serverReceived = new String(Constants.SERVER_RECV);
+
+		then(this.annotations.create(1000L, serverReceived).value)
+				.isSameAs(Constants.SERVER_RECV);
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.sleuth.zipkin;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.cloud.sleuth.MilliSpan;
+import org.springframework.cloud.sleuth.Span;
+
+import zipkin.Codec;
+import zipkin.Endpoint;
+
+public class ZipkinJsonSpanWriterTests {
+
+	Endpoint endpoint = Endpoint.create("my-tomcat", 127 << 24 | 1, 8080);
+
+	List<byte[]> encoded = new ArrayList<>();
+
+	ZipkinSpanListener listener = new ZipkinSpanListener(new EncodedSpanReporter() {
+		@Override
+		public SpanEncoder encoder() {
+			return SpanEncoder.JSON;
+		}
+
+		@Override
+		public void reportEncoded(byte[] span) {
+			ZipkinJsonSpanWriterTests.this.encoded.add(span);
+		}
+
+		@Override
+		public void report(zipkin.Span span) {
+			throw new AssertionError("should have been reported encoded");
+		}
+	}, this.endpoint);
+
+	ZipkinJsonSpanWriter writer = new ZipkinJsonSpanWriter(this.endpoint);
+
+	@Test
+	public void should_write_what_converting_and_encoding_would() {
+		Span span = MilliSpan.builder().begin(1L).end(3L).name("http:/greeting")
+				.traceId(-1L).spanId(2L).parents(Arrays.asList(-2L)).build();
+		span.log("cs");
+		span.log("cr");
+		span.tag("http.method", "GET");
+		span.tag("http.url", "/greeting?name=\"quoted\"\\\n\t\u0001\u2028 \u00e9\u20ac\ud83d\ude00");
+
+		then(Codec.JSON.readSpan(this.writer.write(span)))
+				.isEqualTo(this.listener.convert(span));
+	}
+
+	@Test
+	public void should_add_local_component_to_spans_without_annotations() {
+		Span span = MilliSpan.builder().begin(1L).end(3L).name("foo").traceId(1L)
+				.spanId(1L).processId("PROCESS").build();
+
+		zipkin.Span decoded = Codec.JSON.readSpan(this.writer.write(span));
+
+		then(decoded).isEqualTo(this.listener.convert(span));
+		then(decoded.binaryAnnotations.get(0).value).isEqualTo("process".getBytes());
+	}
+
+	@Test
+	public void should_reuse_the_buffer_across_spans() {
+		Span big = MilliSpan.builder().begin(1L).end(3L).name("big").traceId(1L)
+				.spanId(1L).build();
+		big.tag("payload", new String(new char[4096]).replace('\0', 'x'));
+		Span small = MilliSpan.builder().begin(1L).end(3L).name("small").traceId(1L)
+				.spanId(2L).build();
+		small.log("cs");
+
+		this.writer.write(big);
+
+		then(Codec.JSON.readSpan(this.writer.write(small)))
+				.isEqualTo(this.listener.convert(small));
+	}
+
+	@Test
+	public void should_report_encoded_spans_when_the_reporter_takes_json() {
+		Span span = MilliSpan.builder().begin(1L).end(3L).name("foo").traceId(1L)
+				.spanId(1L).exportable(true).build();
+
+		this.listener.spanReleased(null, span);
+
+		then(this.encoded).hasSize(1);
+		then(Codec.JSON.readSpan(this.encoded.get(0)))
+				.isEqualTo(this.listener.convert(span));
+	}
+
+}
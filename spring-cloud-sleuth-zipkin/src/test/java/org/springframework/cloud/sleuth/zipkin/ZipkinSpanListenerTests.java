@@ -39,6 +39,9 @@ import org.springframework.cloud.sleuth.event.ClientReceivedEvent;
 import org.springframework.cloud.sleuth.event.ClientSentEvent;
 import org.springframework.cloud.sleuth.event.ServerReceivedEvent;
 import org.springframework.cloud.sleuth.event.ServerSentEvent;
+import org.springframework.cloud.sleuth.export.OverflowPolicy;
+import org.springframework.cloud.sleuth.export.SpanQueueStatus;
+import org.springframework.cloud.sleuth.export.SpanRingBuffer;
 import org.springframework.cloud.sleuth.sampler.AlwaysSampler;
 import org.springframework.cloud.sleuth.zipkin.ZipkinSpanListenerTests.TestConfiguration;
 import org.springframework.context.ApplicationContext;
@@ -121,6 +124,7 @@ public class ZipkinSpanListenerTests {
 	public void spanWithoutAnnotationsLogsComponent() {
 		Trace context = this.tracer.startTrace("foo");
 		this.tracer.close(context);
+		this.listener.flush();
 		assertEquals(1, this.test.spans.size());
 		assertThat(this.test.spans.get(0).binaryAnnotations.get(0).endpoint.serviceName)
 				.isEqualTo("unknown"); // TODO: "unknown" bc process id, documented as not nullable, is null.
@@ -134,9 +138,28 @@ public class ZipkinSpanListenerTests {
 		this.application.publishEvent(new ServerSentEvent(this, parent, context.getSpan()));
 		this.application.publishEvent(new ClientReceivedEvent(this, context.getSpan()));
 		this.tracer.close(context);
+		this.listener.flush();
 		assertEquals(2, this.test.spans.size());
 	}
 
+	@Test
+	public void queueStatusCountsTheSpansTheExportBufferDrops() {
+		ZipkinSpanListener listener = new ZipkinSpanListener(this.test.spans::add,
+				this.listener.localEndpoint,
+				new SpanRingBuffer(1, OverflowPolicy.DROP_NEWEST));
+		Span span = MilliSpan.builder().traceId(1L).name("foo").begin(1L).end(2L)
+				.exportable(true).build();
+
+		// not started, so the buffer isn't drained: the second span doesn't fit
+		listener.spanReleased(null, span);
+		listener.spanReleased(null, span);
+
+		SpanQueueStatus status = listener.getQueueStatus();
+		assertThat(status.getAcceptedSpans()).isEqualTo(1);
+		assertThat(status.getDroppedSpans()).isEqualTo(1);
+		assertThat(status.getQueuedSpans()).isEqualTo(status.getQueueCapacity());
+	}
+
 	@Configuration
 	@Import({ ZipkinTestConfiguration.class, ZipkinAutoConfiguration.class, TraceAutoConfiguration.class,
 			PropertyPlaceholderAutoConfiguration.class })